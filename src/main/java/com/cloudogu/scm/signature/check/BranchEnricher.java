@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import jakarta.inject.Inject;
+import sonia.scm.api.v2.resources.Enrich;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricher;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+
+@Extension
+@Enrich(Branch.class)
+public class BranchEnricher implements HalEnricher {
+
+  private final PolicyCompiler policyCompiler;
+
+  @Inject
+  public BranchEnricher(PolicyCompiler policyCompiler) {
+    this.policyCompiler = policyCompiler;
+  }
+
+  @Override
+  public void enrich(HalEnricherContext context, HalAppender appender) {
+    Repository repository = context.oneRequireByType(Repository.class);
+    Branch branch = context.oneRequireByType(Branch.class);
+
+    SignaturePolicy policy = policyCompiler.getPolicy(repository);
+    if (!policy.isEnabled()) {
+      return;
+    }
+    GpgVerificationType verificationType = policy.resolveBranch(branch.getName());
+    if (verificationType != null) {
+      appender.appendEmbedded("signatureProtection", new SignatureProtectionDto(verificationType));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Decision table of ordered branch rules. Rules without wildcards are resolved with a single hash lookup, only
+ * rules with wildcards are matched one after another. As with the ordered list, the first matching rule wins.
+ */
+final class BranchRuleTable {
+
+  private final Map<String, Integer> exactRules = new HashMap<>();
+  private final Pattern[] patterns;
+  private final int[] patternRules;
+  private final GpgVerificationType[] verificationTypes;
+
+  BranchRuleTable(List<BranchRule> rules) {
+    List<Pattern> wildcardPatterns = new ArrayList<>();
+    List<Integer> wildcardRules = new ArrayList<>();
+    verificationTypes = new GpgVerificationType[rules.size()];
+    for (int i = 0; i < rules.size(); i++) {
+      BranchRule rule = rules.get(i);
+      verificationTypes[i] = rule.getVerificationType();
+      if (isWildcard(rule.getPattern())) {
+        wildcardPatterns.add(compileGlob(rule.getPattern()));
+        wildcardRules.add(i);
+      } else {
+        exactRules.putIfAbsent(rule.getPattern(), i);
+      }
+    }
+    patterns = wildcardPatterns.toArray(new Pattern[0]);
+    patternRules = wildcardRules.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Returns the verification type of the first rule matching the branch or {@code null}, if no rule matches.
+   */
+  GpgVerificationType resolve(String branch) {
+    Integer exactRule = exactRules.get(branch);
+    int limit = exactRule != null ? exactRule : verificationTypes.length;
+    for (int i = 0; i < patterns.length && patternRules[i] < limit; i++) {
+      if (patterns[i].matcher(branch).matches()) {
+        return verificationTypes[patternRules[i]];
+      }
+    }
+    return exactRule != null ? verificationTypes[exactRule] : null;
+  }
+
+  private static boolean isWildcard(String pattern) {
+    return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+  }
+
+  static Pattern compileGlob(String glob) {
+    StringBuilder regex = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        if (literal.length() > 0) {
+          regex.append(Pattern.quote(literal.toString()));
+          literal.setLength(0);
+        }
+        if (c == '?') {
+          regex.append("[^/]");
+        } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          regex.append(".*");
+          i++;
+        } else {
+          regex.append("[^/]*");
+        }
+      } else {
+        literal.append(c);
+      }
+    }
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+    }
+    return Pattern.compile(regex.toString());
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.servlet.http.HttpServletRequest;
+import sonia.scm.api.v2.resources.Enrich;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricher;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+/**
+ * Appends the signature compliance of changesets. Compliance which is not cached yet is only computed with the cheap
+ * verifiers and for at most {@link #MAX_LAZY_COMPUTATIONS_PER_REQUEST} changesets of a single request.
+ */
+@Extension
+@Enrich(Changeset.class)
+public class ChangesetEnricher implements HalEnricher {
+
+  static final int MAX_LAZY_COMPUTATIONS_PER_REQUEST = 20;
+
+  private static final String LAZY_COMPUTATIONS_ATTRIBUTE = ChangesetEnricher.class.getName() + ".lazyComputations";
+
+  private final PolicyCompiler policyCompiler;
+  private final ComplianceCache complianceCache;
+  private final Provider<HttpServletRequest> requestProvider;
+
+  @Inject
+  public ChangesetEnricher(PolicyCompiler policyCompiler, ComplianceCache complianceCache, Provider<HttpServletRequest> requestProvider) {
+    this.policyCompiler = policyCompiler;
+    this.complianceCache = complianceCache;
+    this.requestProvider = requestProvider;
+  }
+
+  @Override
+  public void enrich(HalEnricherContext context, HalAppender appender) {
+    Repository repository = context.oneRequireByType(Repository.class);
+    Changeset changeset = context.oneRequireByType(Changeset.class);
+
+    SignaturePolicy policy = policyCompiler.getPolicy(repository);
+    if (!policy.isEnabled()) {
+      return;
+    }
+    // changesets of a log mostly come without branches, those are checked against the default verification type
+    GpgVerificationType verificationType = changeset.getBranches() == null || changeset.getBranches().isEmpty()
+      ? policy.getConfig().getVerificationType()
+      : policy.resolveVerificationType(changeset.getBranches());
+    if (verificationType == null) {
+      return;
+    }
+
+    SignatureCompliance compliance = complianceCache.get(
+      repository,
+      changeset.getId(),
+      policy.getVersion(),
+      verificationType,
+      () -> acquireLazyComputation() ? verifyCheap(repository, changeset, policy.getVerifierChain(verificationType), verificationType) : null
+    );
+    if (compliance != null) {
+      appender.appendEmbedded("signatureCompliance", new SignatureComplianceDto(
+        compliance.getVerificationType(),
+        compliance.isCompliant(),
+        compliance.getReason(),
+        compliance.getMessage()
+      ));
+    }
+  }
+
+  private boolean acquireLazyComputation() {
+    HttpServletRequest request = requestProvider.get();
+    Integer computations = (Integer) request.getAttribute(LAZY_COMPUTATIONS_ATTRIBUTE);
+    int count = computations == null ? 0 : computations;
+    if (count >= MAX_LAZY_COMPUTATIONS_PER_REQUEST) {
+      return false;
+    }
+    request.setAttribute(LAZY_COMPUTATIONS_ATTRIBUTE, count + 1);
+    return true;
+  }
+
+  /**
+   * Violations of the cheap verifiers are final; if the chain has expensive verifiers left, passing the cheap ones
+   * does not decide the compliance and {@code null} is returned.
+   */
+  private static SignatureCompliance verifyCheap(Repository repository,
+                                                 Changeset changeset,
+                                                 VerifierChain verifierChain,
+                                                 GpgVerificationType verificationType) {
+    try {
+      verifierChain.verifyCheap(repository, changeset);
+    } catch (InvalidSignatureException e) {
+      return SignatureCompliance.violated(verificationType, e);
+    }
+    return verifierChain.hasExpensiveVerifiers() ? null : SignatureCompliance.compliant(verificationType);
+  }
+}
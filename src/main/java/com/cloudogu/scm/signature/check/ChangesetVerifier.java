@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import jakarta.inject.Inject;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pipeline of all {@link Verifier} extensions, ordered by their cost.
+ */
+public class ChangesetVerifier {
+
+  private final List<Verifier> verifiers;
+
+  @Inject
+  public ChangesetVerifier(Set<Verifier> verifiers) {
+    this.verifiers = verifiers.stream()
+      .sorted(Comparator.comparingInt(Verifier::getCost).thenComparing(verifier -> verifier.getClass().getName()))
+      .toList();
+  }
+
+  public VerifierChain compile(BaseSignatureConfig config) {
+    return new VerifierChain(
+      config,
+      verifiers.stream().filter(verifier -> verifier.isApplicable(config)).toList()
+    );
+  }
+
+  /**
+   * Runs all changeset verifiers, which apply to the given config, for a single changeset.
+   */
+  public void verify(Changeset c, Repository r, BaseSignatureConfig config) {
+    compile(config).verify(r, c);
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import sonia.scm.plugin.ExtensionPoint;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+@ExtensionPoint
+public interface CommitInspector {
+
+  boolean isSupported(Repository repository);
+
+  /**
+   * Returns the ids of the given commits which are already reachable from an existing branch of the repository, which
+   * is accepted by the given predicate. Tags and other refs are not considered, because their commits were never
+   * verified.
+   */
+  Set<String> findKnownCommits(Repository repository, Collection<String> commitIds, Predicate<String> verifiedBranch);
+
+  /**
+   * Reads and verifies the signatures of the given commits, which are already stored in the repository, e.g. for the
+   * preflight check. The returned changesets only contain the id and the signatures; commits which could not be found
+   * are omitted. The push hook does not use this method, because core provides the pushed changesets with verified
+   * signatures.
+   */
+  List<Changeset> readSignatures(Repository repository, Collection<String> commitIds) throws IOException;
+}
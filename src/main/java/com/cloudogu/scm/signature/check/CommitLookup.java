@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+public class CommitLookup {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CommitLookup.class);
+
+  private final Set<CommitInspector> commitInspectors;
+  private final RepositoryServiceFactory serviceFactory;
+
+  @Inject
+  public CommitLookup(Set<CommitInspector> commitInspectors, RepositoryServiceFactory serviceFactory) {
+    this.commitInspectors = commitInspectors;
+    this.serviceFactory = serviceFactory;
+  }
+
+  public Set<String> findKnownCommits(Repository repository, Collection<String> commitIds, Predicate<String> verifiedBranch) {
+    return findInspector(repository)
+      .map(inspector -> inspector.findKnownCommits(repository, commitIds, verifiedBranch))
+      .orElse(Collections.emptySet());
+  }
+
+  /**
+   * Reads the signatures of stored commits for the preflight check. Repositories without a {@link CommitInspector}
+   * fall back to the log command.
+   */
+  public List<Changeset> readSignatures(Repository repository, Collection<String> commitIds) throws IOException {
+    Optional<CommitInspector> inspector = findInspector(repository);
+    if (inspector.isPresent()) {
+      return inspector.get().readSignatures(repository, commitIds);
+    }
+
+    List<Changeset> changesets = new ArrayList<>(commitIds.size());
+    try (RepositoryService service = serviceFactory.create(repository)) {
+      LogCommandBuilder logCommand = service.getLogCommand();
+      for (String commitId : commitIds) {
+        Changeset changeset = logCommand.getChangeset(commitId);
+        if (changeset != null) {
+          changesets.add(changeset);
+        }
+      }
+    }
+    return changesets;
+  }
+
+  /**
+   * Returns {@code false}, if the repository has no branch yet. A push of an import user into such a repository carries
+   * its initial history, e.g. from an import or the first synchronisation of a mirror.
+   */
+  public boolean hasHistory(Repository repository) {
+    try (RepositoryService service = serviceFactory.create(repository)) {
+      return !service.getBranchesCommand().setDisableCache(true).getBranches().getBranches().isEmpty();
+    } catch (IOException e) {
+      LOG.warn("could not read branches of repository {}, push is treated as regular push", repository, e);
+      return true;
+    }
+  }
+
+  private Optional<CommitInspector> findInspector(Repository repository) {
+    return commitInspectors.stream()
+      .filter(inspector -> inspector.isSupported(repository))
+      .findFirst();
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Value;
+import sonia.scm.repository.Repository;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the results of signature verifications of pushes and background verifications per changeset and verification
+ * type, so that changesets can be shown with their compliance without verifying them again. Results are only returned
+ * for the configuration version they were computed with.
+ */
+@Singleton
+public class ComplianceCache {
+
+  static final String SKIPPED_COUNTER = "scm.signature.check.compliance.skipped";
+
+  static final long MAX_SIZE = 100_000;
+  static final Duration TTL = Duration.ofHours(12);
+  static final int MAX_LAZY_COMPUTATIONS = 4;
+
+  private final Cache<Key, Entry> cache;
+  private final Semaphore lazyComputations = new Semaphore(MAX_LAZY_COMPUTATIONS);
+  private final Counter skippedCounter;
+
+  @Inject
+  public ComplianceCache(MeterRegistry meterRegistry) {
+    this(meterRegistry, Ticker.systemTicker());
+  }
+
+  ComplianceCache(MeterRegistry meterRegistry, Ticker ticker) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(TTL)
+      .ticker(ticker)
+      .build();
+    this.skippedCounter = meterRegistry.counter(SKIPPED_COUNTER);
+  }
+
+  public void put(Repository repository, String changesetId, long configVersion, SignatureCompliance compliance) {
+    cache.put(new Key(repository.getId(), changesetId, compliance.getVerificationType()), new Entry(configVersion, compliance));
+  }
+
+  public void invalidate(Repository repository, String changesetId) {
+    for (GpgVerificationType verificationType : GpgVerificationType.values()) {
+      cache.invalidate(new Key(repository.getId(), changesetId, verificationType));
+    }
+  }
+
+  /**
+   * Returns the cached compliance of the changeset or computes it, if less than {@link #MAX_LAZY_COMPUTATIONS} other
+   * computations are running. Returns {@code null}, if the computation was skipped or could not decide the compliance.
+   * Results of an older configuration version are ignored.
+   */
+  public SignatureCompliance get(Repository repository,
+                                 String changesetId,
+                                 long configVersion,
+                                 GpgVerificationType verificationType,
+                                 Supplier<SignatureCompliance> computation) {
+    Key key = new Key(repository.getId(), changesetId, verificationType);
+    Entry entry = cache.getIfPresent(key);
+    if (entry != null && entry.getConfigVersion() == configVersion) {
+      return entry.getCompliance();
+    }
+
+    if (!lazyComputations.tryAcquire()) {
+      skippedCounter.increment();
+      return null;
+    }
+    try {
+      SignatureCompliance compliance = computation.get();
+      if (compliance != null) {
+        cache.put(key, new Entry(configVersion, compliance));
+      }
+      return compliance;
+    } finally {
+      lazyComputations.release();
+    }
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  @Value
+  private static class Key {
+    String repositoryId;
+    String changesetId;
+    GpgVerificationType verificationType;
+  }
+
+  @Value
+  private static class Entry {
+    long configVersion;
+    SignatureCompliance compliance;
+  }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Verifies changesets in the background, which were accepted without verification because the verification timeout
+ * of a push was exceeded. Queued changesets are persisted until they are verified, so that their verification is
+ * resumed after a restart.
+ */
+@Extension
+@Singleton
+public class DeferredSignatureVerifier implements ServletContextListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DeferredSignatureVerifier.class);
+
+  private final ChangesetVerifier changesetVerifier;
+  private final SignatureViolationStore violationStore;
+  private final KeyCommitIndex keyCommitIndex;
+  private final RepositoryManager repositoryManager;
+  private final CommitLookup commitLookup;
+  private final PolicyCompiler policyCompiler;
+  private final PendingVerificationStore pendingStore;
+  private final ExecutorService executor;
+  private final Counter flaggedCounter;
+
+  @Inject
+  public DeferredSignatureVerifier(ChangesetVerifier changesetVerifier,
+                                   SignatureViolationStore violationStore,
+                                   KeyCommitIndex keyCommitIndex,
+                                   RepositoryManager repositoryManager,
+                                   CommitLookup commitLookup,
+                                   PolicyCompiler policyCompiler,
+                                   PendingVerificationStore pendingStore,
+                                   MeterRegistry meterRegistry) {
+    this(
+      changesetVerifier,
+      violationStore,
+      keyCommitIndex,
+      repositoryManager,
+      commitLookup,
+      policyCompiler,
+      pendingStore,
+      meterRegistry,
+      Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckDeferred-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  DeferredSignatureVerifier(ChangesetVerifier changesetVerifier,
+                            SignatureViolationStore violationStore,
+                            KeyCommitIndex keyCommitIndex,
+                            RepositoryManager repositoryManager,
+                            CommitLookup commitLookup,
+                            PolicyCompiler policyCompiler,
+                            PendingVerificationStore pendingStore,
+                            MeterRegistry meterRegistry,
+                            ExecutorService executor) {
+    this.changesetVerifier = changesetVerifier;
+    this.violationStore = violationStore;
+    this.keyCommitIndex = keyCommitIndex;
+    this.repositoryManager = repositoryManager;
+    this.commitLookup = commitLookup;
+    this.policyCompiler = policyCompiler;
+    this.pendingStore = pendingStore;
+    this.executor = executor;
+    this.flaggedCounter = meterRegistry.counter("scm.signature.check.deferred.flagged");
+  }
+
+  public void enqueue(Repository repository, BaseSignatureConfig config, List<Changeset> changesets) {
+    String id = pendingStore.add(repository, PendingVerification.Origin.TIMEOUT, config.getVerificationType(), changesets);
+    LOG.info("queued {} changesets of repository {} for deferred signature verification", changesets.size(), repository);
+    executor.execute(() -> {
+      try {
+        verify(repository, config, changesets);
+      } finally {
+        pendingStore.remove(id);
+      }
+    });
+  }
+
+  void verify(Repository repository, BaseSignatureConfig config, List<Changeset> changesets) {
+    List<Changeset> accepted = new ArrayList<>(changesets.size());
+    for (Changeset c : changesets) {
+      try {
+        changesetVerifier.verify(c, repository, config);
+        accepted.add(c);
+      } catch (InvalidSignatureException e) {
+        LOG.warn("deferred signature verification flagged changeset {} of repository {}: {}", c.getId(), repository, e.getMessage());
+        violationStore.flag(repository, c.getId(), e.getMessage());
+        flaggedCounter.increment();
+      }
+    }
+    keyCommitIndex.record(repository, accepted);
+  }
+
+  /**
+   * Verifies commits, which were queued before a restart. The commits are read from the repository again and verified
+   * against its current configuration. Commits of deleted repositories are skipped.
+   */
+  void verifyPending(PendingVerification pending) throws IOException {
+    Repository repository = repositoryManager.get(pending.getRepositoryId());
+    if (repository == null) {
+      LOG.info("skipping pending verification of deleted repository {}", pending.getRepositoryId());
+      return;
+    }
+    List<Changeset> changesets = commitLookup.readSignatures(repository, pending.getCommitIds());
+    BaseSignatureConfig config = policyCompiler.getPolicy(repository).getConfig(pending.getVerificationType());
+    LOG.info("resuming verification of {} changesets of repository {}", changesets.size(), repository);
+    verify(repository, config, changesets);
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    resume();
+  }
+
+  @VisibleForTesting
+  void resume() {
+    pendingStore.getAll().forEach((id, pending) -> {
+      if (pending.getOrigin() == PendingVerification.Origin.TIMEOUT) {
+        executor.execute(() -> {
+          try {
+            verifyPending(pending);
+          } catch (IOException | RuntimeException e) {
+            LOG.warn("failed to resume deferred signature verification of repository {}", pending.getRepositoryId(), e);
+          } finally {
+            pendingStore.remove(id);
+          }
+        });
+      }
+    });
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies the initial history of imported or mirrored repositories in the background. The history is split into
+ * chunks which are verified by a small pool of low priority threads, so that bulk migrations neither block the hook
+ * nor starve the server. A repository is flagged as pending until all of its chunks are verified. Queued chunks are
+ * persisted until they are verified, so that their verification is resumed after a restart.
+ */
+@Extension
+@Singleton
+public class HistoryImportVerifier implements ServletContextListener {
+
+  static final int CHUNK_SIZE = 500;
+
+  private static final Logger LOG = LoggerFactory.getLogger(HistoryImportVerifier.class);
+
+  private final DeferredSignatureVerifier deferredSignatureVerifier;
+  private final PendingVerificationStore pendingStore;
+  private final ThreadPoolExecutor executor;
+  private final Counter deferredCounter;
+  private final ConcurrentMap<String, Integer> pendingChunks = new ConcurrentHashMap<>();
+
+  @Inject
+  public HistoryImportVerifier(DeferredSignatureVerifier deferredSignatureVerifier,
+                               PendingVerificationStore pendingStore,
+                               MeterRegistry meterRegistry) {
+    this(
+      deferredSignatureVerifier,
+      pendingStore,
+      meterRegistry,
+      new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadFactoryBuilder()
+          .setNameFormat("SignatureCheckHistory-%d")
+          .setDaemon(true)
+          .setPriority(Thread.MIN_PRIORITY)
+          .build()
+      )
+    );
+  }
+
+  @VisibleForTesting
+  HistoryImportVerifier(DeferredSignatureVerifier deferredSignatureVerifier,
+                        PendingVerificationStore pendingStore,
+                        MeterRegistry meterRegistry,
+                        ThreadPoolExecutor executor) {
+    this.deferredSignatureVerifier = deferredSignatureVerifier;
+    this.pendingStore = pendingStore;
+    this.executor = executor;
+    this.deferredCounter = meterRegistry.counter("scm.signature.check.history.deferred");
+  }
+
+  public void enqueue(Repository repository, SignaturePolicy policy, Map<GpgVerificationType, List<Changeset>> changesetsByType) {
+    Map<String, Chunk> chunks = new LinkedHashMap<>();
+    int total = 0;
+    for (Map.Entry<GpgVerificationType, List<Changeset>> entry : changesetsByType.entrySet()) {
+      total += entry.getValue().size();
+      for (List<Changeset> chunk : Lists.partition(entry.getValue(), CHUNK_SIZE)) {
+        String id = pendingStore.add(repository, PendingVerification.Origin.HISTORY_IMPORT, entry.getKey(), chunk);
+        chunks.put(id, () -> deferredSignatureVerifier.verify(repository, policy.getConfig(entry.getKey()), chunk));
+      }
+    }
+    if (chunks.isEmpty()) {
+      return;
+    }
+
+    resize(policy.getGlobalConfig().getHistoryVerificationThreads());
+    deferredCounter.increment(total);
+    LOG.info("accepted initial history of repository {}, queued {} changesets for background verification", repository, total);
+    schedule(repository.getId(), chunks);
+  }
+
+  private void schedule(String repositoryId, Map<String, Chunk> chunks) {
+    pendingChunks.merge(repositoryId, chunks.size(), Integer::sum);
+    chunks.forEach((id, chunk) -> executor.execute(() -> {
+      try {
+        chunk.verify();
+      } catch (IOException | RuntimeException e) {
+        LOG.warn("failed to verify imported history of repository {}", repositoryId, e);
+      } finally {
+        pendingStore.remove(id);
+        complete(repositoryId);
+      }
+    }));
+  }
+
+  /**
+   * Returns {@code true}, if the imported history of the repository is not yet completely verified.
+   */
+  public boolean isPending(Repository repository) {
+    return pendingChunks.containsKey(repository.getId());
+  }
+
+  private void complete(String repositoryId) {
+    Integer remaining = pendingChunks.computeIfPresent(repositoryId, (id, count) -> count > 1 ? count - 1 : null);
+    if (remaining == null) {
+      LOG.info("finished background verification of the imported history of repository {}", repositoryId);
+    }
+  }
+
+  private synchronized void resize(int threads) {
+    int size = Math.max(1, threads);
+    if (size > executor.getMaximumPoolSize()) {
+      executor.setMaximumPoolSize(size);
+      executor.setCorePoolSize(size);
+    } else if (size < executor.getMaximumPoolSize()) {
+      executor.setCorePoolSize(size);
+      executor.setMaximumPoolSize(size);
+    }
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    resume();
+  }
+
+  @VisibleForTesting
+  void resume() {
+    Map<String, Map<String, Chunk>> chunksByRepository = new LinkedHashMap<>();
+    pendingStore.getAll().forEach((id, pending) -> {
+      if (pending.getOrigin() == PendingVerification.Origin.HISTORY_IMPORT) {
+        chunksByRepository
+          .computeIfAbsent(pending.getRepositoryId(), repositoryId -> new LinkedHashMap<>())
+          .put(id, () -> deferredSignatureVerifier.verifyPending(pending));
+      }
+    });
+    chunksByRepository.forEach((repositoryId, chunks) -> {
+      LOG.info("resuming background verification of {} chunks of the imported history of repository {}", chunks.size(), repositoryId);
+      schedule(repositoryId, chunks);
+    });
+  }
+
+  @FunctionalInterface
+  private interface Chunk {
+    void verify() throws IOException;
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Value;
+import sonia.scm.repository.Repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Singleton
+public class InFlightVerifications {
+
+  static final int MAX_IN_FLIGHT = 10_000;
+
+  private final ConcurrentMap<Key, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+  private final ComplianceCache complianceCache;
+  private final Counter deduplicatedCounter;
+
+  @Inject
+  public InFlightVerifications(MeterRegistry meterRegistry, ComplianceCache complianceCache) {
+    this.complianceCache = complianceCache;
+    this.deduplicatedCounter = meterRegistry.counter("scm.signature.check.verifications.deduplicated");
+  }
+
+  public void verify(Repository repository,
+                     String changesetId,
+                     long configVersion,
+                     GpgVerificationType verificationType,
+                     Runnable verification) {
+    Key key = new Key(repository.getId(), changesetId, configVersion, verificationType);
+    CompletableFuture<Void> own = new CompletableFuture<>();
+    CompletableFuture<Void> running = register(key, own);
+
+    if (running != null) {
+      deduplicatedCounter.increment();
+      awaitResult(running);
+      return;
+    }
+
+    try {
+      verification.run();
+      own.complete(null);
+      complianceCache.put(repository, changesetId, configVersion, SignatureCompliance.compliant(verificationType));
+    } catch (InvalidSignatureException e) {
+      own.completeExceptionally(e);
+      complianceCache.put(repository, changesetId, configVersion, SignatureCompliance.violated(verificationType, e));
+      throw e;
+    } catch (RuntimeException | Error e) {
+      own.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, own);
+    }
+  }
+
+  int size() {
+    return inFlight.size();
+  }
+
+  private CompletableFuture<Void> register(Key key, CompletableFuture<Void> own) {
+    if (inFlight.size() >= MAX_IN_FLIGHT) {
+      // registry is full, verify without sharing the result
+      return null;
+    }
+    return inFlight.putIfAbsent(key, own);
+  }
+
+  private void awaitResult(CompletableFuture<Void> running) {
+    try {
+      running.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @Value
+  private static class Key {
+    String repositoryId;
+    String changesetId;
+    long configVersion;
+    GpgVerificationType verificationType;
+  }
+}
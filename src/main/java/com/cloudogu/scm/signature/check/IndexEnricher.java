@@ -16,6 +16,7 @@
 
 package com.cloudogu.scm.signature.check;
 
+import com.cloudogu.scm.signature.check.badge.BadgeResource;
 import com.cloudogu.scm.signature.check.config.SignatureConfigResource;
 import sonia.scm.api.v2.resources.Enrich;
 import sonia.scm.api.v2.resources.HalAppender;
@@ -50,5 +51,10 @@ public class IndexEnricher implements HalEnricher {
         linkBuilder.method("getGlobalConfig").parameters().href()
       );
     }
+
+    appender.appendLink(
+      "signatureCheckBadges",
+      new LinkBuilder(pathInfoStore.get().get(), BadgeResource.class).method("getBadges").parameters().href()
+    );
   }
 }
@@ -26,12 +26,39 @@ public class InvalidSignatureException extends ExceptionWithContext {
 
   private static final String CODE = "DDTuAVZpr1";
 
-  InvalidSignatureException(Repository repository, Changeset c, String message) {
+  private final String changesetId;
+  private final Reason reason;
+
+  /**
+   * Creates the exception for a changeset which violates the signature policy. Verifiers whose violation is not
+   * covered by one of the specific reasons should use {@link Reason#POLICY_VIOLATION}; {@code null} is treated alike.
+   */
+  public InvalidSignatureException(Repository repository, Changeset c, Reason reason, String message) {
     super(entity("Changeset", c.getId()).in(repository).build(), message);
+    this.changesetId = c.getId();
+    this.reason = reason == null ? Reason.POLICY_VIOLATION : reason;
+  }
+
+  public String getChangesetId() {
+    return changesetId;
+  }
+
+  public Reason getReason() {
+    return reason;
   }
 
   @Override
   public String getCode() {
     return CODE;
   }
+
+  public enum Reason {
+    MISSING_SIGNATURE,
+    INVALID_SIGNATURE,
+    UNTRUSTED_SIGNATURE,
+    /**
+     * Any other violation, e.g. of a rule of a verifier from another plugin.
+     */
+    POLICY_VIOLATION
+  }
 }
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.signature.check;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Reverse index from the id of a signing key to the commits, which were accepted with a verified signature of
+ * that key. The index is written in the background: all updates queued in the meantime are merged, so that every
+ * key is written at most once per batch and recording a push never waits for the store. The commits of a key are
+ * split into chunks of about {@link #CHUNK_SIZE} commits, which are stored as entries of their own. New commits are
+ * only appended to the last chunk, so that the cost of a write does not grow with the number of commits of the key.
+ */
+@Extension
+@Singleton
+public class KeyCommitIndex implements ServletContextListener {
+
+  public static final String STORE_NAME = "signature-check-key-index";
+
+  static final int CHUNK_SIZE = 1_000;
+  private static final String CHUNK_SEPARATOR = "~";
+
+  private static final Logger LOG = LoggerFactory.getLogger(KeyCommitIndex.class);
+
+  private final DataStoreFactory storeFactory;
+  private final ExecutorService executor;
+  private final Queue<Update> pending = new ConcurrentLinkedQueue<>();
+  private final Striped<Lock> locks = Striped.lock(64);
+  private final ConcurrentMap<String, Integer> lastChunks = new ConcurrentHashMap<>();
+
+  @Inject
+  public KeyCommitIndex(DataStoreFactory storeFactory) {
+    this(
+      storeFactory,
+      Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckKeyIndex-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  @VisibleForTesting
+  KeyCommitIndex(DataStoreFactory storeFactory, ExecutorService executor) {
+    this.storeFactory = storeFactory;
+    this.executor = executor;
+  }
+
+  public void record(Repository repository, Collection<Changeset> changesets) {
+    Map<String, List<String>> commitsByKey = new HashMap<>();
+    for (Changeset changeset : changesets) {
+      if (changeset.getSignatures() == null) {
+        continue;
+      }
+      for (Signature signature : changeset.getSignatures()) {
+        if (signature.getStatus() == SignatureStatus.VERIFIED && !Strings.isNullOrEmpty(signature.getKeyId())) {
+          commitsByKey.computeIfAbsent(signature.getKeyId(), keyId -> new ArrayList<>()).add(changeset.getId());
+        }
+      }
+    }
+    if (commitsByKey.isEmpty()) {
+      return;
+    }
+
+    pending.add(new Update(repository.getId(), commitsByKey));
+    executor.execute(this::writePending);
+  }
+
+  private void writePending() {
+    Map<String, Map<String, List<String>>> commitsByKeyAndRepository = new LinkedHashMap<>();
+    for (Update update = pending.poll(); update != null; update = pending.poll()) {
+      Update current = update;
+      current.getCommitsByKey().forEach((keyId, commitIds) ->
+        commitsByKeyAndRepository
+          .computeIfAbsent(keyId, id -> new LinkedHashMap<>())
+          .computeIfAbsent(current.getRepositoryId(), id -> new ArrayList<>())
+          .addAll(commitIds)
+      );
+    }
+    if (commitsByKeyAndRepository.isEmpty()) {
+      return;
+    }
+
+    DataStore<SignedCommits> store = createStore();
+    commitsByKeyAndRepository.forEach((keyId, commitsByRepository) -> {
+      Lock lock = locks.get(keyId);
+      lock.lock();
+      try {
+        int chunk = findLastChunk(store, keyId);
+        SignedCommits signedCommits = chunk < 0 ? null : store.get(chunkId(keyId, chunk));
+        if (signedCommits == null || signedCommits.countCommits() >= CHUNK_SIZE) {
+          chunk++;
+          signedCommits = new SignedCommits();
+        }
+        commitsByRepository.forEach(signedCommits::add);
+        store.put(chunkId(keyId, chunk), signedCommits);
+        lastChunks.put(keyId, chunk);
+      } catch (RuntimeException e) {
+        LOG.warn("could not update key index for key {}", keyId, e);
+      } finally {
+        lock.unlock();
+      }
+    });
+  }
+
+  /**
+   * Returns the index of the last chunk of the key or {@code -1}, if the key has no chunk yet. Must be called with the
+   * lock of the key.
+   */
+  private int findLastChunk(DataStore<SignedCommits> store, String keyId) {
+    Integer cached = lastChunks.get(keyId);
+    if (cached != null) {
+      return cached;
+    }
+    int chunk = -1;
+    while (store.get(chunkId(keyId, chunk + 1)) != null) {
+      chunk++;
+    }
+    return chunk;
+  }
+
+  private static String chunkId(String keyId, int chunk) {
+    // the first chunk keeps the plain key id, so that entries written before the index was chunked are still found
+    return chunk == 0 ? keyId : keyId + CHUNK_SEPARATOR + chunk;
+  }
+
+  public Optional<SignedCommits> find(String keyId) {
+    DataStore<SignedCommits> store = createStore();
+    SignedCommits result = null;
+    for (int chunk = 0; ; chunk++) {
+      SignedCommits signedCommits = store.get(chunkId(keyId, chunk));
+      if (signedCommits == null) {
+        return Optional.ofNullable(result);
+      }
+      if (result == null) {
+        result = signedCommits;
+      } else {
+        result.addAll(signedCommits);
+      }
+    }
+  }
+
+  public Set<String> getKeyIds() {
+    Set<String> keyIds = new LinkedHashSet<>();
+    for (String id : createStore().getAll().keySet()) {
+      int separator = id.lastIndexOf(CHUNK_SEPARATOR);
+      keyIds.add(separator > 0 && isChunkNumber(id.substring(separator + 1)) ? id.substring(0, separator) : id);
+    }
+    return keyIds;
+  }
+
+  private static boolean isChunkNumber(String value) {
+    return !value.isEmpty() && value.chars().allMatch(Character::isDigit);
+  }
+
+  public void remove(String keyId) {
+    Lock lock = locks.get(keyId);
+    lock.lock();
+    try {
+      DataStore<SignedCommits> store = createStore();
+      for (int chunk = 0; store.get(chunkId(keyId, chunk)) != null; chunk++) {
+        store.remove(chunkId(keyId, chunk));
+      }
+      lastChunks.remove(keyId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private DataStore<SignedCommits> createStore() {
+    return storeFactory
+      .withType(SignedCommits.class)
+      .withName(STORE_NAME)
+      .build();
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    // nothing to initialize
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+
+  @Value
+  private static class Update {
+    String repositoryId;
+    Map<String, List<String>> commitsByKey;
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import de.otto.edison.hal.Links;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.config.ConfigurationPermissions;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.otto.edison.hal.Link.link;
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Path("v2/signature-check/keys")
+public class KeyCommitIndexResource {
+
+  private final KeyCommitIndex keyCommitIndex;
+  private final RemovedKeyFlagger removedKeyFlagger;
+  private final RepositoryManager repositoryManager;
+  private final ScmPathInfoStore scmPathInfoStore;
+
+  @Inject
+  public KeyCommitIndexResource(KeyCommitIndex keyCommitIndex, RemovedKeyFlagger removedKeyFlagger, RepositoryManager repositoryManager, ScmPathInfoStore scmPathInfoStore) {
+    this.keyCommitIndex = keyCommitIndex;
+    this.removedKeyFlagger = removedKeyFlagger;
+    this.repositoryManager = repositoryManager;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @GET
+  @Path("/{keyId}/commits")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Gets the commits signed with a key",
+    description = "Gets all commits which were accepted with a verified signature of the given key",
+    tags = "Signature Check Plugin",
+    operationId = "get_key_commits"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response getCommits(@PathParam("keyId") String keyId) {
+    ConfigurationPermissions.read("signatureCheck").check();
+    List<KeyCommitsDto.RepositoryCommitsDto> repositories = new ArrayList<>();
+    keyCommitIndex.find(keyId).ifPresent(signedCommits -> {
+      for (SignedCommits.RepositoryCommits commits : signedCommits.getRepositories()) {
+        Repository repository = repositoryManager.get(commits.getRepositoryId());
+        if (repository != null) {
+          repositories.add(new KeyCommitsDto.RepositoryCommitsDto(
+            repository.getNamespace(),
+            repository.getName(),
+            List.copyOf(commits.getCommitIds())
+          ));
+        }
+      }
+    });
+
+    KeyCommitsDto dto = new KeyCommitsDto(keyId, repositories);
+    Links.Builder linksBuilder = linkingTo().self(keyLink("getCommits", keyId));
+    if (ConfigurationPermissions.write("signatureCheck").isPermitted()) {
+      linksBuilder.single(link("flag", keyLink("flagCommits", keyId)));
+    }
+    dto.add(linksBuilder.build());
+    return Response.ok().entity(dto).build();
+  }
+
+  @POST
+  @Path("/{keyId}/flag")
+  @Operation(
+    summary = "Flags the commits signed with a key",
+    description = "Flags all commits which were accepted with a verified signature of the given key as violations",
+    tags = "Signature Check Plugin",
+    operationId = "flag_key_commits"
+  )
+  @ApiResponse(responseCode = "204", description = "Ok")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response flagCommits(@PathParam("keyId") String keyId) {
+    ConfigurationPermissions.write("signatureCheck").check();
+    removedKeyFlagger.flag(keyId);
+    return Response.noContent().build();
+  }
+
+  private String keyLink(String method, String keyId) {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), KeyCommitIndexResource.class);
+    return linkBuilder.method(method).parameters(keyId).href();
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists commits, which are queued for background verification, so that the verification is resumed after a
+ * restart. Every queued chunk is stored as an entry of its own, so that queueing and completing a chunk are single
+ * writes.
+ */
+@Singleton
+public class PendingVerificationStore {
+
+  public static final String STORE_NAME = "signature-check-pending-verifications";
+
+  private final DataStore<PendingVerification> store;
+
+  @Inject
+  public PendingVerificationStore(DataStoreFactory dataStoreFactory) {
+    this.store = dataStoreFactory.withType(PendingVerification.class).withName(STORE_NAME).build();
+  }
+
+  /**
+   * Stores the changesets and returns the id of the new entry.
+   */
+  public String add(Repository repository, PendingVerification.Origin origin, GpgVerificationType verificationType, List<Changeset> changesets) {
+    List<String> commitIds = new ArrayList<>(changesets.size());
+    for (Changeset changeset : changesets) {
+      commitIds.add(changeset.getId());
+    }
+    return store.put(new PendingVerification(repository.getId(), origin, verificationType, commitIds));
+  }
+
+  public void remove(String id) {
+    store.remove(id);
+  }
+
+  public Map<String, PendingVerification> getAll() {
+    return store.getAll();
+  }
+}
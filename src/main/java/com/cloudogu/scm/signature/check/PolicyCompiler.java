@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Value;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Compiles the effective configuration of a repository to a {@link SignaturePolicy}. Compiled policies are cached
+ * until any signature check configuration changes.
+ */
+@Singleton
+public class PolicyCompiler {
+
+  private final SignatureConfigService signatureConfigService;
+  private final NamespaceManager namespaceManager;
+  private final ConfigEvaluator configEvaluator;
+  private final ChangesetVerifier changesetVerifier;
+  private final ConcurrentMap<String, CompiledPolicy> policies = new ConcurrentHashMap<>();
+
+  @Inject
+  public PolicyCompiler(SignatureConfigService signatureConfigService,
+                        NamespaceManager namespaceManager,
+                        ConfigEvaluator configEvaluator,
+                        ChangesetVerifier changesetVerifier) {
+    this.signatureConfigService = signatureConfigService;
+    this.namespaceManager = namespaceManager;
+    this.configEvaluator = configEvaluator;
+    this.changesetVerifier = changesetVerifier;
+  }
+
+  public SignaturePolicy getPolicy(Repository repository) {
+    long version = signatureConfigService.getVersion();
+    CompiledPolicy compiled = policies.get(repository.getId());
+    if (compiled != null && compiled.getVersion() == version && compiled.getNamespace().equals(repository.getNamespace())) {
+      return compiled.getPolicy();
+    }
+
+    SignaturePolicy policy = compile(version, repository);
+    policies.put(repository.getId(), new CompiledPolicy(version, repository.getNamespace(), policy));
+    return policy;
+  }
+
+  private SignaturePolicy compile(long version, Repository repository) {
+    GlobalSignatureConfig globalConfig = signatureConfigService.getGlobalConfig();
+    RepositorySignatureConfig repoConfig = signatureConfigService.getRepoConfig(repository);
+    //Namespace will always be there, because the repository could not exist otherwise
+    //noinspection OptionalGetWithoutIsPresent
+    NamespaceSignatureConfig namespaceConfig = signatureConfigService.getNamespaceConfig(
+      namespaceManager.get(repository.getNamespace()).get()
+    );
+
+    BaseSignatureConfig activeConfig = configEvaluator.evaluate(globalConfig, namespaceConfig, repoConfig);
+    return new SignaturePolicy(version, globalConfig, activeConfig, changesetVerifier);
+  }
+
+  @Value
+  private static class CompiledPolicy {
+    long version;
+    String namespace;
+    SignaturePolicy policy;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import lombok.Getter;
+import sonia.scm.repository.Changeset;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+@Getter
+public class PushedChangeset {
+
+  private final Changeset changeset;
+  private final Set<String> branches = new HashSet<>();
+
+  private PushedChangeset(Changeset changeset) {
+    this.changeset = changeset;
+  }
+
+  public static Collection<PushedChangeset> collectUnique(Iterable<Changeset> changesets) {
+    Map<String, PushedChangeset> unique = new LinkedHashMap<>();
+    for (Changeset c : changesets) {
+      PushedChangeset pushed = unique.computeIfAbsent(c.getId(), id -> new PushedChangeset(c));
+      if (c.getBranches() != null) {
+        pushed.branches.addAll(c.getBranches());
+      }
+    }
+    return unique.values();
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.security.GPG;
+import sonia.scm.web.security.AdministrationContext;
+
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Extension
+@Singleton
+public class RemovedKeyFlagger implements ServletContextListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RemovedKeyFlagger.class);
+
+  private final KeyCommitIndex keyCommitIndex;
+  private final SignatureViolationStore violationStore;
+  private final RepositoryManager repositoryManager;
+  private final SignatureConfigService signatureConfigService;
+  private final GPG gpg;
+  private final AdministrationContext administrationContext;
+  private final ScheduledExecutorService executor;
+  private final Counter flaggedCounter;
+
+  @Inject
+  public RemovedKeyFlagger(KeyCommitIndex keyCommitIndex,
+                           SignatureViolationStore violationStore,
+                           RepositoryManager repositoryManager,
+                           SignatureConfigService signatureConfigService,
+                           GPG gpg,
+                           AdministrationContext administrationContext,
+                           MeterRegistry meterRegistry) {
+    this(
+      keyCommitIndex,
+      violationStore,
+      repositoryManager,
+      signatureConfigService,
+      gpg,
+      administrationContext,
+      meterRegistry,
+      Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckRemovedKeys-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  RemovedKeyFlagger(KeyCommitIndex keyCommitIndex,
+                    SignatureViolationStore violationStore,
+                    RepositoryManager repositoryManager,
+                    SignatureConfigService signatureConfigService,
+                    GPG gpg,
+                    AdministrationContext administrationContext,
+                    MeterRegistry meterRegistry,
+                    ScheduledExecutorService executor) {
+    this.keyCommitIndex = keyCommitIndex;
+    this.violationStore = violationStore;
+    this.repositoryManager = repositoryManager;
+    this.signatureConfigService = signatureConfigService;
+    this.gpg = gpg;
+    this.administrationContext = administrationContext;
+    this.executor = executor;
+    this.flaggedCounter = meterRegistry.counter("scm.signature.check.removed.key.flagged");
+  }
+
+  public int flag(String keyId) {
+    Optional<SignedCommits> signedCommits = keyCommitIndex.find(keyId);
+    if (signedCommits.isEmpty()) {
+      return 0;
+    }
+
+    AtomicInteger flagged = new AtomicInteger();
+    administrationContext.runAsAdmin(() -> {
+      for (SignedCommits.RepositoryCommits commits : signedCommits.get().getRepositories()) {
+        Repository repository = repositoryManager.get(commits.getRepositoryId());
+        if (repository == null) {
+          continue;
+        }
+        for (String commitId : commits.getCommitIds()) {
+          violationStore.flag(repository, commitId, "Changeset was signed with removed key " + keyId);
+          flagged.incrementAndGet();
+        }
+      }
+    });
+    LOG.info("flagged {} changesets signed with key {}", flagged.get(), keyId);
+    flaggedCounter.increment(flagged.get());
+    return flagged.get();
+  }
+
+  void flagCommitsOfRemovedKeys() {
+    if (!signatureConfigService.getGlobalConfig().isFlagCommitsOfRemovedKeys()) {
+      return;
+    }
+
+    for (String keyId : keyCommitIndex.getKeyIds()) {
+      if (gpg.findPublicKey(keyId).isEmpty()) {
+        flag(keyId);
+        keyCommitIndex.remove(keyId);
+      }
+    }
+  }
+
+  private void runScheduled() {
+    try {
+      flagCommitsOfRemovedKeys();
+    } catch (RuntimeException e) {
+      LOG.warn("failed to flag changesets of removed keys", e);
+    }
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    executor.scheduleWithFixedDelay(this::runScheduled, 1, 1, TimeUnit.HOURS);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+}
@@ -41,18 +41,27 @@ public class RepositoryEnricher implements HalEnricher {
   private final Provider<ScmPathInfoStore> pathInfoStore;
   private final SignatureConfigService signatureConfigService;
   private final NamespaceManager namespaceManager;
+  private final HistoryImportVerifier historyImportVerifier;
 
   @Inject
-  public RepositoryEnricher(Provider<ScmPathInfoStore> pathInfoStore, SignatureConfigService signatureConfigService, NamespaceManager namespaceManager) {
+  public RepositoryEnricher(Provider<ScmPathInfoStore> pathInfoStore,
+                            SignatureConfigService signatureConfigService,
+                            NamespaceManager namespaceManager,
+                            HistoryImportVerifier historyImportVerifier) {
     this.pathInfoStore = pathInfoStore;
     this.signatureConfigService = signatureConfigService;
     this.namespaceManager = namespaceManager;
+    this.historyImportVerifier = historyImportVerifier;
   }
 
   @Override
   public void enrich(HalEnricherContext context, HalAppender appender) {
     Repository repository = context.oneRequireByType(Repository.class);
 
+    if (historyImportVerifier.isPending(repository)) {
+      appender.appendEmbedded("signatureHistoryVerification", new HistoryVerificationDto(true));
+    }
+
     GlobalSignatureConfig globalConfig = signatureConfigService.getGlobalConfig();
     if(globalConfig.isChildrenConfigDisabled()) {
       return;
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.github.legman.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.plugin.Extension;
+import sonia.scm.user.User;
+import sonia.scm.user.UserEvent;
+import sonia.scm.user.UserManager;
+import sonia.scm.web.security.AdministrationContext;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Index of the active state of users, which is built once on startup and kept up to date by user events. Users which
+ * do not exist are not cached, so that users which are created without an event are found by the next lookup.
+ */
+@Extension
+@Singleton
+@EagerSingleton
+public class ScmUserIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ScmUserIndex.class);
+
+  private final UserManager userManager;
+  private final AdministrationContext administrationContext;
+  private final ConcurrentMap<String, Boolean> activeUsers = new ConcurrentHashMap<>();
+
+  @Inject
+  public ScmUserIndex(UserManager userManager, AdministrationContext administrationContext) {
+    // the index is built on a short-lived thread, so that there is no executor left to shut down
+    this(userManager, administrationContext, startThread(
+      new ThreadFactoryBuilder().setNameFormat("SignatureCheckUserIndex-%d").setDaemon(true).build()
+    ));
+  }
+
+  ScmUserIndex(UserManager userManager, AdministrationContext administrationContext, Executor buildExecutor) {
+    this.userManager = userManager;
+    this.administrationContext = administrationContext;
+    buildExecutor.execute(this::build);
+  }
+
+  private static Executor startThread(ThreadFactory threadFactory) {
+    return runnable -> threadFactory.newThread(runnable).start();
+  }
+
+  public boolean isActiveUser(String username) {
+    Boolean active = activeUsers.get(username);
+    if (active != null) {
+      return active;
+    }
+
+    User user = lookup(username);
+    if (user == null) {
+      return false;
+    }
+    activeUsers.putIfAbsent(username, user.isActive());
+    return user.isActive();
+  }
+
+  private User lookup(String username) {
+    User[] user = new User[1];
+    administrationContext.runAsAdmin(() -> user[0] = userManager.get(username));
+    return user[0];
+  }
+
+  @Subscribe(async = false)
+  public void onUserEvent(UserEvent event) {
+    if (!event.getEventType().isPost()) {
+      return;
+    }
+
+    User user = event.getItem();
+    switch (event.getEventType()) {
+      case DELETE -> activeUsers.remove(user.getName());
+      case CREATE, MODIFY -> activeUsers.put(user.getName(), user.isActive());
+      default -> {
+        // before events are ignored
+      }
+    }
+  }
+
+  private void build() {
+    administrationContext.runAsAdmin(() -> {
+      for (User user : userManager.getAll()) {
+        activeUsers.putIfAbsent(user.getName(), user.isActive());
+      }
+    });
+    LOG.debug("built signature check user index with {} users", activeUsers.size());
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import jakarta.inject.Inject;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+import java.util.function.Predicate;
+
+@Extension
+public class ScmUserSignatureVerifier implements Verifier {
+
+  private final Predicate<String> activeUser;
+
+  @Inject
+  public ScmUserSignatureVerifier(ScmUserIndex userIndex) {
+    this(userIndex::isActiveUser);
+  }
+
+  public ScmUserSignatureVerifier(Predicate<String> activeUser) {
+    this.activeUser = activeUser;
+  }
+
+  @Override
+  public int getCost() {
+    return 30;
+  }
+
+  @Override
+  public Scope getScope() {
+    return Scope.CHANGESET;
+  }
+
+  @Override
+  public boolean isApplicable(BaseSignatureConfig config) {
+    return config.getVerificationType() == GpgVerificationType.SCM_USER_SIGNATURE;
+  }
+
+  @Override
+  public void verify(Repository repository, Changeset changeset, BaseSignatureConfig config) {
+    for (Signature s : changeset.getSignatures()) {
+      if(s.getStatus() != SignatureStatus.VERIFIED
+        || s.getOwner().isEmpty()
+        || !activeUser.test(s.getOwner().get())) {
+        throw new InvalidSignatureException(repository, changeset, InvalidSignatureException.Reason.UNTRUSTED_SIGNATURE, "Changeset does not have a valid signature from a scm user");
+      }
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.plugin.Extension;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts the outcome events of the signature check from a background thread, so that neither the event bus nor
+ * synchronous subscribers can slow down a push. If the bounded queue is full, events are dropped and counted.
+ */
+@Extension
+@Singleton
+public class SignatureCheckEventDispatcher implements ServletContextListener {
+
+  static final int QUEUE_SIZE = 1_000;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SignatureCheckEventDispatcher.class);
+
+  private final ScmEventBus eventBus;
+  private final ExecutorService executor;
+  private final Counter droppedCounter;
+
+  @Inject
+  public SignatureCheckEventDispatcher(ScmEventBus eventBus, MeterRegistry meterRegistry) {
+    this(
+      eventBus,
+      meterRegistry,
+      new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_SIZE),
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckEvents-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  @VisibleForTesting
+  SignatureCheckEventDispatcher(ScmEventBus eventBus, MeterRegistry meterRegistry, ExecutorService executor) {
+    this.eventBus = eventBus;
+    this.executor = executor;
+    this.droppedCounter = meterRegistry.counter("scm.signature.check.events.dropped");
+  }
+
+  public void dispatch(Object event) {
+    try {
+      executor.execute(() -> post(event));
+    } catch (RejectedExecutionException e) {
+      droppedCounter.increment();
+    }
+  }
+
+  private void post(Object event) {
+    try {
+      eventBus.post(event);
+    } catch (RuntimeException e) {
+      LOG.warn("failed to post signature check event {}", event.getClass().getSimpleName(), e);
+    }
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    // nothing to initialize
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+}
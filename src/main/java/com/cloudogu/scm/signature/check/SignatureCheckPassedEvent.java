@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import sonia.scm.event.Event;
+import sonia.scm.repository.Repository;
+
+import java.util.Set;
+
+/**
+ * Is posted once for every push which passed the signature check. Changesets which are verified in the background,
+ * because the push exceeded the time budget or carried the initial history of the repository, are only counted.
+ */
+@Event
+@Getter
+@AllArgsConstructor
+public class SignatureCheckPassedEvent {
+
+  private final Repository repository;
+  private final String pusher;
+  private final int verifiedChangesets;
+  private final int deferredChangesets;
+  private final Set<GpgVerificationType> verificationTypes;
+  private final long durationNanos;
+}
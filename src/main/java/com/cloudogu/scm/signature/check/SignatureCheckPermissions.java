@@ -16,7 +16,10 @@
 
 package com.cloudogu.scm.signature.check;
 
+import sonia.scm.config.ConfigurationPermissions;
 import sonia.scm.repository.NamespacePermissions;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
 
 public final class SignatureCheckPermissions {
   private SignatureCheckPermissions() {}
@@ -24,4 +27,12 @@ public final class SignatureCheckPermissions {
   public static void checkNamespace(String namespace) {
     NamespacePermissions.custom("signatureCheck", namespace).check();
   }
+
+  public static void checkRepository(Repository repository) {
+    RepositoryPermissions.custom("signatureCheck", repository.getId()).check();
+  }
+
+  public static void checkGlobal() {
+    ConfigurationPermissions.read("signatureCheck").check();
+  }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import sonia.scm.event.Event;
+import sonia.scm.repository.Repository;
+
+/**
+ * Is posted once for every push which was rejected by the signature check.
+ */
+@Event
+@Getter
+@AllArgsConstructor
+public class SignatureCheckRejectedEvent {
+
+  private final Repository repository;
+  private final String pusher;
+  /**
+   * Id of the rejected changeset or {@code null}, if the push was rejected as a whole.
+   */
+  private final String changesetId;
+  private final String code;
+  private final String message;
+  private final int checkedChangesets;
+  private final long durationNanos;
+}
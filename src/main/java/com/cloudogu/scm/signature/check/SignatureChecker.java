@@ -16,40 +16,125 @@
 
 package com.cloudogu.scm.signature.check;
 
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.audit.AuditLog;
+import com.cloudogu.scm.signature.check.audit.AuditRecord;
 import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
-import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
-import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
 import com.cloudogu.scm.signature.check.config.GpgVerificationType;
-import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
-import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
-import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import com.cloudogu.scm.signature.check.recording.PushRecorder;
+import com.cloudogu.scm.signature.check.rejection.RejectionHistory;
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import com.cloudogu.scm.signature.check.stats.SignatureCheckStatistics;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCounters;
 import com.github.legman.Subscribe;
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Value;
+import org.apache.shiro.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.EagerSingleton;
+import sonia.scm.ExceptionWithContext;
+import sonia.scm.group.GroupCollector;
 import sonia.scm.plugin.Extension;
 import sonia.scm.repository.Changeset;
-import sonia.scm.repository.NamespaceManager;
 import sonia.scm.repository.PreReceiveRepositoryHookEvent;
 import sonia.scm.repository.Repository;
-import sonia.scm.repository.Signature;
-import sonia.scm.repository.SignatureStatus;
 
 import jakarta.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Extension
 @EagerSingleton
 public class SignatureChecker {
 
-  private final SignatureConfigService signatureConfigService;
-  private final NamespaceManager namespaceManager;
-  private final ConfigEvaluator configEvaluator;
+  static final String VERIFICATION_TIMER = "scm.signature.check.verification";
+  static final String BUDGET_EXCEEDED_COUNTER = "scm.signature.check.budget.exceeded";
+  static final String EXEMPT_PUSH_COUNTER = "scm.signature.check.exempt";
+
+  private static final Logger LOG = LoggerFactory.getLogger(SignatureChecker.class);
+
+  private final PolicyCompiler policyCompiler;
+  private final DeferredSignatureVerifier deferredSignatureVerifier;
+  private final VerificationBulkhead bulkhead;
+  private final InFlightVerifications inFlightVerifications;
+  private final CommitLookup commitLookup;
+  private final KeyCommitIndex keyCommitIndex;
+  private final HistoryImportVerifier historyImportVerifier;
+  private final GroupCollector groupCollector;
+  private final AuditLog auditLog;
+  private final RejectionHistory rejectionHistory;
+  private final SignatureCheckEventDispatcher eventDispatcher;
+  private final SignatureCheckStatistics statistics;
+  private final SignedCommitCounters signedCommitCounters;
+  private final PushRecorder pushRecorder;
+  private final MeterRegistry meterRegistry;
+  private final Ticker ticker;
 
   @Inject
-  public SignatureChecker(SignatureConfigService signatureConfigService, NamespaceManager namespaceManager, ConfigEvaluator configEvaluator) {
-    this.signatureConfigService = signatureConfigService;
-    this.namespaceManager = namespaceManager;
-    this.configEvaluator = configEvaluator;
+  public SignatureChecker(PolicyCompiler policyCompiler,
+                          DeferredSignatureVerifier deferredSignatureVerifier,
+                          VerificationBulkhead bulkhead,
+                          InFlightVerifications inFlightVerifications,
+                          CommitLookup commitLookup,
+                          KeyCommitIndex keyCommitIndex,
+                          HistoryImportVerifier historyImportVerifier,
+                          GroupCollector groupCollector,
+                          AuditLog auditLog,
+                          RejectionHistory rejectionHistory,
+                          SignatureCheckEventDispatcher eventDispatcher,
+                          SignatureCheckStatistics statistics,
+                          SignedCommitCounters signedCommitCounters,
+                          PushRecorder pushRecorder,
+                          MeterRegistry meterRegistry) {
+    this(policyCompiler, deferredSignatureVerifier, bulkhead, inFlightVerifications, commitLookup, keyCommitIndex, historyImportVerifier, groupCollector, auditLog, rejectionHistory, eventDispatcher, statistics, signedCommitCounters, pushRecorder, meterRegistry, Ticker.systemTicker());
+  }
+
+  SignatureChecker(PolicyCompiler policyCompiler,
+                   DeferredSignatureVerifier deferredSignatureVerifier,
+                   VerificationBulkhead bulkhead,
+                   InFlightVerifications inFlightVerifications,
+                   CommitLookup commitLookup,
+                   KeyCommitIndex keyCommitIndex,
+                   HistoryImportVerifier historyImportVerifier,
+                   GroupCollector groupCollector,
+                   AuditLog auditLog,
+                   RejectionHistory rejectionHistory,
+                   SignatureCheckEventDispatcher eventDispatcher,
+                   SignatureCheckStatistics statistics,
+                   SignedCommitCounters signedCommitCounters,
+                   PushRecorder pushRecorder,
+                   MeterRegistry meterRegistry,
+                   Ticker ticker) {
+    this.policyCompiler = policyCompiler;
+    this.deferredSignatureVerifier = deferredSignatureVerifier;
+    this.bulkhead = bulkhead;
+    this.inFlightVerifications = inFlightVerifications;
+    this.commitLookup = commitLookup;
+    this.keyCommitIndex = keyCommitIndex;
+    this.historyImportVerifier = historyImportVerifier;
+    this.groupCollector = groupCollector;
+    this.auditLog = auditLog;
+    this.rejectionHistory = rejectionHistory;
+    this.eventDispatcher = eventDispatcher;
+    this.statistics = statistics;
+    this.signedCommitCounters = signedCommitCounters;
+    this.pushRecorder = pushRecorder;
+    this.meterRegistry = meterRegistry;
+    this.ticker = ticker;
   }
 
   @Subscribe(async = false)
@@ -58,69 +143,320 @@ public class SignatureChecker {
       return;
     }
 
-    GlobalSignatureConfig globalConfig = signatureConfigService.getGlobalConfig();
-    RepositorySignatureConfig repoConfig = signatureConfigService.getRepoConfig(event.getRepository());
-    //Namespace will always be there, because the repository could not exist otherwise
-    //noinspection OptionalGetWithoutIsPresent
-    NamespaceSignatureConfig namespaceConfig = signatureConfigService.getNamespaceConfig(
-      namespaceManager.get(event.getRepository().getNamespace()).get()
-    );
-
-    BaseSignatureConfig activeConfig = configEvaluator.evaluate(globalConfig, namespaceConfig, repoConfig);
+    SignaturePolicy policy = policyCompiler.getPolicy(event.getRepository());
+    if(!policy.isEnabled()) {
+      recordUnchecked(event, policy);
+      return;
+    }
 
-    checkSignatures(event, activeConfig);
-  }
+    Repository repository = event.getRepository();
+    Push push = new Push(repository, currentPusher(), ticker.read());
+    String exemption = findExemption(policy, push.getPusher());
+    if (exemption != null) {
+      LOG.info("skipped signature check of push to {} by {}, because the pusher is exempt as {}", repository, push.getPusher(), exemption);
+      meterRegistry.counter(EXEMPT_PUSH_COUNTER).increment();
+      audit(push, AuditDecision.EXEMPT, null, "exempt " + exemption, List.of());
+      signedCommitCounters.discard(repository);
+      return;
+    }
 
-  private void checkSignatures(PreReceiveRepositoryHookEvent event, BaseSignatureConfig activeConfig) {
-    if(!activeConfig.isEnabled()) {
+    if (policy.isHistoryImportUser(push.getPusher()) && !commitLookup.hasHistory(repository)) {
+      Collection<PushedChangeset> pushedChangesets = PushedChangeset.collectUnique(
+        event.getContext().getChangesetProvider().getChangesets()
+      );
+      List<Candidate> candidates = deferHistoryImport(repository, policy, pushedChangesets);
+      audit(push, AuditDecision.DEFERRED, rules(candidates), "initial history", commitIds(candidates));
+      passed(push, candidates, 0, candidates.size());
+      signedCommitCounters.prepare(repository, changesets(pushedChangesets));
       return;
     }
 
-    for(Changeset c : event.getContext().getChangesetProvider().getChangesets()) {
-      if(!containsProtectedBranch(c, activeConfig.getProtectedBranches())) {
-        continue;
+    try (VerificationBulkhead.Permit permit = bulkhead.acquire(repository, policy.getGlobalConfig())) {
+      checkSignatures(event, policy, push);
+    } catch (VerificationCapacityExceededException e) {
+      audit(push, AuditDecision.REJECTED, null, e.getMessage(), List.of());
+      rejected(push, null, e, RejectionReason.CAPACITY, 0);
+      throw e;
+    }
+  }
+
+  private String currentPusher() {
+    Object principal = SecurityUtils.getSubject().getPrincipal();
+    return principal == null ? null : principal.toString();
+  }
+
+  private String findExemption(SignaturePolicy policy, String pusher) {
+    if (pusher == null) {
+      return null;
+    }
+    if (policy.isExemptUser(pusher)) {
+      return "user";
+    }
+    if (policy.hasExemptGroups()) {
+      String group = policy.findExemptGroup(groupCollector.collect(pusher));
+      if (group != null) {
+        return "group " + group;
       }
+    }
+    return null;
+  }
+
+  private void checkSignatures(PreReceiveRepositoryHookEvent event, SignaturePolicy policy, Push push) {
+    Repository repository = event.getRepository();
+    long budget = policy.getBudgetNanos();
+    long start = push.getStart();
+    List<Candidate> candidates = List.of();
+    Collection<PushedChangeset> pushedChangesets = List.of();
+    Set<String> knownCommits = Collections.emptySet();
+    AuditDecision outcome = AuditDecision.REJECTED;
+    try {
+      pushedChangesets = PushedChangeset.collectUnique(
+        event.getContext().getChangesetProvider().getChangesets()
+      );
+      knownCommits = findKnownCommits(repository, policy, pushedChangesets);
+      candidates = collectCandidates(policy, pushedChangesets, knownCommits);
 
-      checkSignatureExist(c, event.getRepository());
-      for (Signature s : c.getSignatures()) {
-        checkSignatureInvalid(s, c, event.getRepository());
+      // stage one: cheap checks like the presence of signatures for all changesets
+      groupByVerificationType(candidates.iterator()).forEach((verificationType, changesets) ->
+        policy.getVerifierChain(verificationType).verifyCheap(repository, changesets)
+      );
 
-        if(activeConfig.getVerificationType() == GpgVerificationType.SCM_USER_SIGNATURE) {
-          checkSignatureFromScmUser(s, c, event.getRepository());
+      // stage two: expensive checks like status and owner of the signatures
+      List<Changeset> accepted = new ArrayList<>(candidates.size());
+      String reason = null;
+      int deferred = 0;
+      Iterator<Candidate> remaining = candidates.iterator();
+      while (remaining.hasNext()) {
+        if (budget > 0 && ticker.read() - start > budget) {
+          deferred = handleExceededBudget(repository, policy, remaining);
+          reason = "time budget exceeded, " + deferred + " changesets deferred";
+          break;
         }
+
+        Candidate candidate = remaining.next();
+        Changeset c = candidate.getChangeset();
+        VerifierChain verifierChain = policy.getVerifierChain(candidate.getVerificationType());
+        inFlightVerifications.verify(
+          repository,
+          c.getId(),
+          policy.getVersion(),
+          candidate.getVerificationType(),
+          () -> verifierChain.verifyExpensive(repository, c)
+        );
+        accepted.add(c);
       }
+      keyCommitIndex.record(repository, accepted);
+      outcome = AuditDecision.ACCEPTED;
+      audit(push, AuditDecision.ACCEPTED, rules(candidates), reason, commitIds(candidates));
+      passed(push, candidates, accepted.size(), deferred);
+      signedCommitCounters.prepare(repository, changesets(pushedChangesets));
+    } catch (InvalidSignatureException e) {
+      audit(push, AuditDecision.REJECTED, rule(candidates, e.getChangesetId()), e.getMessage(), List.of(e.getChangesetId()));
+      rejectionHistory.record(repository, push.getPusher(), e.getChangesetId(), e.getCode(), e.getMessage());
+      rejected(push, e.getChangesetId(), e, RejectionReason.of(e.getReason()), candidates.size());
+      throw e;
+    } catch (VerificationTimeoutException e) {
+      audit(push, AuditDecision.REJECTED, rules(candidates), e.getMessage(), commitIds(candidates));
+      rejected(push, null, e, RejectionReason.TIMEOUT, candidates.size());
+      throw e;
+    } finally {
+      long duration = ticker.read() - start;
+      meterRegistry.timer(VERIFICATION_TIMER).record(duration, TimeUnit.NANOSECONDS);
+      record(repository, policy, pushedChangesets, knownCommits, outcome, duration);
     }
   }
 
-  private void checkSignatureExist(Changeset c, Repository r) {
-    if(c.getSignatures() == null || c.getSignatures().isEmpty()) {
-      throw new InvalidSignatureException(r, c, "Changeset is missing a signature");
+  private void record(Repository repository,
+                      SignaturePolicy policy,
+                      Collection<PushedChangeset> pushedChangesets,
+                      Set<String> knownCommits,
+                      AuditDecision outcome,
+                      long duration) {
+    try {
+      pushRecorder.record(repository, policy, pushedChangesets, knownCommits, outcome, duration);
+    } catch (RuntimeException e) {
+      // the recording must never replace the result of the check
+      LOG.warn("failed to record push to {}", repository, e);
     }
   }
 
-  private void checkSignatureInvalid(Signature s, Changeset c, Repository r) {
-    if(s.getStatus() == SignatureStatus.INVALID) {
-      throw new InvalidSignatureException(r, c, "Changeset has invalid signature");
+  /**
+   * Records pushes to repositories without an active signature check, so that enabling the check can be simulated.
+   */
+  private void recordUnchecked(PreReceiveRepositoryHookEvent event, SignaturePolicy policy) {
+    if (!pushRecorder.isRecording(policy)) {
+      return;
     }
+    Repository repository = event.getRepository();
+    try {
+      Collection<PushedChangeset> pushedChangesets = PushedChangeset.collectUnique(
+        event.getContext().getChangesetProvider().getChangesets()
+      );
+      pushRecorder.record(repository, policy, pushedChangesets, Collections.emptySet(), AuditDecision.ACCEPTED, 0);
+    } catch (RuntimeException e) {
+      LOG.warn("failed to record push to {}", repository, e);
+    }
+  }
+
+  private void audit(Push push, AuditDecision decision, String rule, String reason, List<String> commitIds) {
+    auditLog.publish(new AuditRecord(
+      0L,
+      push.getRepository().getId(),
+      push.getPusher(),
+      decision,
+      rule,
+      reason,
+      commitIds,
+      ticker.read() - push.getStart()
+    ));
+  }
+
+  private void passed(Push push, List<Candidate> candidates, int verified, int deferred) {
+    long duration = ticker.read() - push.getStart();
+    statistics.recordPassed(push.getRepository(), verified, duration);
+    eventDispatcher.dispatch(new SignatureCheckPassedEvent(
+      push.getRepository(),
+      push.getPusher(),
+      verified,
+      deferred,
+      verificationTypes(candidates),
+      duration
+    ));
+  }
+
+  private void rejected(Push push, String changesetId, ExceptionWithContext exception, RejectionReason reason, int checked) {
+    long duration = ticker.read() - push.getStart();
+    statistics.recordRejected(push.getRepository(), checked, reason, duration);
+    eventDispatcher.dispatch(new SignatureCheckRejectedEvent(
+      push.getRepository(),
+      push.getPusher(),
+      changesetId,
+      exception.getCode(),
+      exception.getMessage(),
+      checked,
+      duration
+    ));
   }
 
-  private void checkSignatureFromScmUser(Signature s, Changeset c, Repository r) {
-    if(s.getStatus() != SignatureStatus.VERIFIED || s.getOwner().isEmpty()) {
-      throw new InvalidSignatureException(r, c, "Changeset does not have a valid signature from a scm user");
+  private static Set<GpgVerificationType> verificationTypes(List<Candidate> candidates) {
+    Set<GpgVerificationType> verificationTypes = EnumSet.noneOf(GpgVerificationType.class);
+    for (Candidate candidate : candidates) {
+      verificationTypes.add(candidate.getVerificationType());
     }
+    return verificationTypes;
   }
 
-  private boolean containsProtectedBranch(Changeset c, List<String> protectedBranches) {
-    if(protectedBranches.isEmpty()) {
-      return true;
+  private static String rules(List<Candidate> candidates) {
+    Set<GpgVerificationType> verificationTypes = verificationTypes(candidates);
+    return verificationTypes.isEmpty() ? null : verificationTypes.stream().map(Enum::name).collect(Collectors.joining(","));
+  }
+
+  private static String rule(List<Candidate> candidates, String changesetId) {
+    for (Candidate candidate : candidates) {
+      if (candidate.getChangeset().getId().equals(changesetId)) {
+        return candidate.getVerificationType().name();
+      }
+    }
+    return null;
+  }
+
+  private static List<String> commitIds(List<Candidate> candidates) {
+    List<String> commitIds = new ArrayList<>(candidates.size());
+    for (Candidate candidate : candidates) {
+      commitIds.add(candidate.getChangeset().getId());
+    }
+    return commitIds;
+  }
+
+  private List<Candidate> deferHistoryImport(Repository repository,
+                                             SignaturePolicy policy,
+                                             Collection<PushedChangeset> pushedChangesets) {
+    List<Candidate> candidates = collectCandidates(policy, pushedChangesets, Collections.emptySet());
+    historyImportVerifier.enqueue(repository, policy, groupByVerificationType(candidates.iterator()));
+    return candidates;
+  }
+
+  private static List<Changeset> changesets(Collection<PushedChangeset> pushedChangesets) {
+    List<Changeset> changesets = new ArrayList<>(pushedChangesets.size());
+    for (PushedChangeset pushed : pushedChangesets) {
+      changesets.add(pushed.getChangeset());
     }
+    return changesets;
+  }
 
-    for(String changedBranch: c.getBranches()) {
-      if(protectedBranches.contains(changedBranch)) {
-        return true;
+  private List<Candidate> collectCandidates(SignaturePolicy policy,
+                                            Collection<PushedChangeset> pushedChangesets,
+                                            Set<String> knownCommits) {
+    List<Candidate> candidates = new ArrayList<>(pushedChangesets.size());
+    for (PushedChangeset pushed : pushedChangesets) {
+      if (knownCommits.contains(pushed.getChangeset().getId())) {
+        continue;
+      }
+      GpgVerificationType verificationType = policy.resolveVerificationType(pushed.getBranches());
+      if (verificationType != null) {
+        candidates.add(new Candidate(pushed.getChangeset(), verificationType));
       }
     }
+    return candidates;
+  }
+
+  private static Map<GpgVerificationType, List<Changeset>> groupByVerificationType(Iterator<Candidate> candidates) {
+    Map<GpgVerificationType, List<Changeset>> changesetsByType = new EnumMap<>(GpgVerificationType.class);
+    candidates.forEachRemaining(candidate ->
+      changesetsByType.computeIfAbsent(candidate.getVerificationType(), type -> new ArrayList<>()).add(candidate.getChangeset())
+    );
+    return changesetsByType;
+  }
+
+  private Set<String> findKnownCommits(Repository repository,
+                                       SignaturePolicy policy,
+                                       Collection<PushedChangeset> pushedChangesets) {
+    if (!policy.isVerifyOnlyNewCommits()) {
+      return Collections.emptySet();
+    }
+
+    // commits are only known, if they are reachable from a branch which is verified at least as strictly
+    Map<GpgVerificationType, List<String>> commitIdsByType = new EnumMap<>(GpgVerificationType.class);
+    for (PushedChangeset pushed : pushedChangesets) {
+      GpgVerificationType verificationType = policy.resolveVerificationType(pushed.getBranches());
+      if (verificationType != null) {
+        commitIdsByType.computeIfAbsent(verificationType, type -> new ArrayList<>()).add(pushed.getChangeset().getId());
+      }
+    }
+
+    Set<String> knownCommits = new HashSet<>();
+    commitIdsByType.forEach((verificationType, commitIds) -> knownCommits.addAll(
+      commitLookup.findKnownCommits(repository, commitIds, branch -> policy.isVerifiedAtLeast(branch, verificationType))
+    ));
+    return knownCommits;
+  }
+
+  private int handleExceededBudget(Repository repository,
+                                   SignaturePolicy policy,
+                                   Iterator<Candidate> remaining) {
+    BaseSignatureConfig activeConfig = policy.getConfig();
+    meterRegistry.counter(BUDGET_EXCEEDED_COUNTER, "fallback", activeConfig.getTimeoutFallback().name()).increment();
+    if (activeConfig.getTimeoutFallback() == TimeoutFallback.REJECT) {
+      throw new VerificationTimeoutException(repository, activeConfig.getVerificationTimeout());
+    }
+
+    Map<GpgVerificationType, List<Changeset>> deferred = groupByVerificationType(remaining);
+    deferred.forEach((verificationType, changesets) ->
+      deferredSignatureVerifier.enqueue(repository, policy.getConfig(verificationType), changesets)
+    );
+    return deferred.values().stream().mapToInt(List::size).sum();
+  }
+
+  @Value
+  private static class Push {
+    Repository repository;
+    String pusher;
+    long start;
+  }
 
-    return false;
+  @Value
+  private static class Candidate {
+    Changeset changeset;
+    GpgVerificationType verificationType;
   }
 }
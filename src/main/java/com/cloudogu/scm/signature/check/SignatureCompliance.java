@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import lombok.Value;
+
+@Value
+public class SignatureCompliance {
+
+  GpgVerificationType verificationType;
+  boolean compliant;
+  /**
+   * Reason of the violation or {@code null}, if the changeset is compliant.
+   */
+  InvalidSignatureException.Reason reason;
+  String message;
+
+  public static SignatureCompliance compliant(GpgVerificationType verificationType) {
+    return new SignatureCompliance(verificationType, true, null, null);
+  }
+
+  public static SignatureCompliance violated(GpgVerificationType verificationType, InvalidSignatureException exception) {
+    return new SignatureCompliance(verificationType, false, exception.getReason(), exception.getMessage());
+  }
+}
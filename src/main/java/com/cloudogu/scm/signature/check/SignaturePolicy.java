@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable, pre-evaluated form of the signature check configuration of a repository.
+ */
+@Getter
+public final class SignaturePolicy {
+
+  static final int MAX_RESOLVED_BRANCHES = 10_000;
+
+  /**
+   * Version of the configuration this policy was compiled from, see {@link com.cloudogu.scm.signature.check.config.SignatureConfigService#getVersion()}.
+   */
+  private final long version;
+  private final boolean enabled;
+  private final GlobalSignatureConfig globalConfig;
+  private final BaseSignatureConfig config;
+  private final long budgetNanos;
+  private final boolean verifyOnlyNewCommits;
+  @Getter(lombok.AccessLevel.NONE)
+  private final Set<String> protectedBranches;
+  @Getter(lombok.AccessLevel.NONE)
+  private final BranchRuleTable branchRules;
+  @Getter(lombok.AccessLevel.NONE)
+  private final Set<String> exemptUsers;
+  @Getter(lombok.AccessLevel.NONE)
+  private final Set<String> exemptGroups;
+  @Getter(lombok.AccessLevel.NONE)
+  private final Set<String> historyImportUsers;
+  @Getter(lombok.AccessLevel.NONE)
+  private final Map<GpgVerificationType, BaseSignatureConfig> configs = new EnumMap<>(GpgVerificationType.class);
+  @Getter(lombok.AccessLevel.NONE)
+  private final Map<GpgVerificationType, VerifierChain> verifierChains = new EnumMap<>(GpgVerificationType.class);
+  @Getter(lombok.AccessLevel.NONE)
+  private final ConcurrentMap<String, Optional<GpgVerificationType>> resolvedBranches = new ConcurrentHashMap<>();
+
+  public SignaturePolicy(GlobalSignatureConfig globalConfig, BaseSignatureConfig config, ChangesetVerifier changesetVerifier) {
+    this(0L, globalConfig, config, changesetVerifier);
+  }
+
+  public SignaturePolicy(long version, GlobalSignatureConfig globalConfig, BaseSignatureConfig config, ChangesetVerifier changesetVerifier) {
+    this.version = version;
+    this.enabled = config.isEnabled();
+    this.globalConfig = globalConfig;
+    this.config = config;
+    this.budgetNanos = TimeUnit.SECONDS.toNanos(config.getVerificationTimeout());
+    this.verifyOnlyNewCommits = config.isVerifyOnlyNewCommits();
+    this.protectedBranches = config.getProtectedBranches() == null ? Set.of() : Set.copyOf(config.getProtectedBranches());
+    this.branchRules = new BranchRuleTable(config.getBranchRules() == null ? List.of() : config.getBranchRules());
+    this.exemptUsers = config.getExemptUsers() == null ? Set.of() : Set.copyOf(config.getExemptUsers());
+    this.exemptGroups = config.getExemptGroups() == null ? Set.of() : Set.copyOf(config.getExemptGroups());
+    this.historyImportUsers = globalConfig.getHistoryImportUsers() == null ? Set.of() : Set.copyOf(globalConfig.getHistoryImportUsers());
+    for (GpgVerificationType verificationType : GpgVerificationType.values()) {
+      BaseSignatureConfig typedConfig = withVerificationType(config, verificationType);
+      configs.put(verificationType, typedConfig);
+      verifierChains.put(verificationType, changesetVerifier.compile(typedConfig));
+    }
+  }
+
+  /**
+   * Returns {@code true}, if pushes to the branch are verified at least as strictly as the given verification type
+   * requires.
+   */
+  public boolean isVerifiedAtLeast(String branch, GpgVerificationType verificationType) {
+    GpgVerificationType branchType = resolveVerificationType(List.of(branch));
+    return branchType != null && branchType.compareTo(verificationType) >= 0;
+  }
+
+  /**
+   * Returns the strictest verification type of all protected branches or {@code null}, if none of the branches is
+   * protected.
+   */
+  public GpgVerificationType resolveVerificationType(Collection<String> branches) {
+    if (branches.isEmpty()) {
+      return protectedBranches.isEmpty() ? config.getVerificationType() : null;
+    }
+
+    GpgVerificationType strictest = null;
+    for (String branch : branches) {
+      GpgVerificationType verificationType = resolveBranch(branch);
+      if (verificationType != null) {
+        strictest = verificationType.stricter(strictest);
+      }
+    }
+    return strictest;
+  }
+
+  public boolean isProtected(Collection<String> branches) {
+    return resolveVerificationType(branches) != null;
+  }
+
+  public boolean isExemptUser(String username) {
+    return exemptUsers.contains(username);
+  }
+
+  /**
+   * Returns {@code true}, if pushes of the user into repositories without history are imports, whose history may be
+   * verified in the background.
+   */
+  public boolean isHistoryImportUser(String username) {
+    return globalConfig.isDeferHistoryImports() && username != null && historyImportUsers.contains(username);
+  }
+
+  public boolean hasExemptGroups() {
+    return !exemptGroups.isEmpty();
+  }
+
+  /**
+   * Returns the first of the given groups which is exempt from the signature check or {@code null}, if there is none.
+   */
+  public String findExemptGroup(Collection<String> groups) {
+    for (String group : groups) {
+      if (exemptGroups.contains(group)) {
+        return group;
+      }
+    }
+    return null;
+  }
+
+  public BaseSignatureConfig getConfig(GpgVerificationType verificationType) {
+    return configs.get(verificationType);
+  }
+
+  public VerifierChain getVerifierChain(GpgVerificationType verificationType) {
+    return verifierChains.get(verificationType);
+  }
+
+  /**
+   * Returns the verification type of a single branch or {@code null}, if the branch is not protected. Branches are
+   * resolved once per policy, so that repeated lookups of the same branch cost a single hash lookup.
+   */
+  public GpgVerificationType resolveBranch(String branch) {
+    Optional<GpgVerificationType> resolved = resolvedBranches.get(branch);
+    if (resolved != null) {
+      return resolved.orElse(null);
+    }
+    GpgVerificationType verificationType = matchBranch(branch);
+    if (resolvedBranches.size() < MAX_RESOLVED_BRANCHES) {
+      resolvedBranches.put(branch, Optional.ofNullable(verificationType));
+    }
+    return verificationType;
+  }
+
+  private GpgVerificationType matchBranch(String branch) {
+    GpgVerificationType ruleType = branchRules.resolve(branch);
+    if (ruleType != null) {
+      return ruleType;
+    }
+    if (protectedBranches.isEmpty() || protectedBranches.contains(branch)) {
+      return config.getVerificationType();
+    }
+    return null;
+  }
+
+  private static BaseSignatureConfig withVerificationType(BaseSignatureConfig config, GpgVerificationType verificationType) {
+    if (config.getVerificationType() == verificationType) {
+      return config;
+    }
+    BaseSignatureConfig typedConfig = new BaseSignatureConfig();
+    typedConfig.setEnabled(config.isEnabled());
+    typedConfig.setProtectedBranches(config.getProtectedBranches());
+    typedConfig.setVerificationType(verificationType);
+    typedConfig.setVerificationTimeout(config.getVerificationTimeout());
+    typedConfig.setTimeoutFallback(config.getTimeoutFallback());
+    typedConfig.setVerifyOnlyNewCommits(config.isVerifyOnlyNewCommits());
+    typedConfig.setBranchRules(config.getBranchRules());
+    typedConfig.setExemptUsers(config.getExemptUsers());
+    typedConfig.setExemptGroups(config.getExemptGroups());
+    return typedConfig;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import sonia.scm.repository.Repository;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import jakarta.inject.Inject;
+import java.time.Clock;
+import java.util.Map;
+
+public class SignatureViolationStore {
+
+  public static final String STORE_NAME = "signature-check-violations";
+
+  private final DataStoreFactory storeFactory;
+  private final ComplianceCache complianceCache;
+  private final Clock clock;
+
+  @Inject
+  public SignatureViolationStore(DataStoreFactory storeFactory, ComplianceCache complianceCache) {
+    this(storeFactory, complianceCache, Clock.systemUTC());
+  }
+
+  SignatureViolationStore(DataStoreFactory storeFactory, ComplianceCache complianceCache, Clock clock) {
+    this.storeFactory = storeFactory;
+    this.complianceCache = complianceCache;
+    this.clock = clock;
+  }
+
+  public void flag(Repository repository, String changesetId, String message) {
+    createStore(repository).put(changesetId, new SignatureViolation(changesetId, message, clock.millis()));
+    complianceCache.invalidate(repository, changesetId);
+  }
+
+  public Map<String, SignatureViolation> getAll(Repository repository) {
+    return createStore(repository).getAll();
+  }
+
+  private DataStore<SignatureViolation> createStore(Repository repository) {
+    return storeFactory
+      .withType(SignatureViolation.class)
+      .withName(STORE_NAME)
+      .forRepository(repository)
+      .build();
+  }
+}
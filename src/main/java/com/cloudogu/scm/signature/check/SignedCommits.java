@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "signed-commits")
+public class SignedCommits {
+
+  @XmlElement(name = "repository")
+  private List<RepositoryCommits> repositories = new ArrayList<>();
+
+  void add(String repositoryId, Collection<String> commitIds) {
+    RepositoryCommits commits = repositories.stream()
+      .filter(candidate -> candidate.getRepositoryId().equals(repositoryId))
+      .findFirst()
+      .orElseGet(() -> {
+        RepositoryCommits created = new RepositoryCommits(repositoryId, new LinkedHashSet<>());
+        repositories.add(created);
+        return created;
+      });
+    commits.getCommitIds().addAll(commitIds);
+  }
+
+  void addAll(SignedCommits other) {
+    for (RepositoryCommits commits : other.getRepositories()) {
+      add(commits.getRepositoryId(), commits.getCommitIds());
+    }
+  }
+
+  int countCommits() {
+    int count = 0;
+    for (RepositoryCommits commits : repositories) {
+      count += commits.getCommitIds().size();
+    }
+    return count;
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class RepositoryCommits {
+
+    private String repositoryId;
+
+    @XmlElement(name = "commit")
+    private Set<String> commitIds = new LinkedHashSet<>();
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+@Extension
+public class ValidSignatureVerifier implements Verifier {
+
+  @Override
+  public int getCost() {
+    return 20;
+  }
+
+  @Override
+  public Scope getScope() {
+    return Scope.CHANGESET;
+  }
+
+  @Override
+  public void verify(Repository repository, Changeset changeset, BaseSignatureConfig config) {
+    for (Signature s : changeset.getSignatures()) {
+      if(s.getStatus() == SignatureStatus.INVALID) {
+        throw new InvalidSignatureException(repository, changeset, InvalidSignatureException.Reason.INVALID_SIGNATURE, "Changeset has invalid signature");
+      }
+    }
+  }
+}
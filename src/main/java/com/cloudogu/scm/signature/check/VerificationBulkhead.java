@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.github.legman.Subscribe;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Pools are created lazily and removed together with their meters once they are no longer used, either because the
+ * limit or the pooling mode changed or because their namespace no longer exists.
+ */
+@Extension
+@Singleton
+@EagerSingleton
+public class VerificationBulkhead {
+
+  private static final String GLOBAL_POOL = "";
+  private static final Permit UNLIMITED = () -> {};
+
+  private final MeterRegistry meterRegistry;
+  private final NamespaceManager namespaceManager;
+  private final Map<String, Pool> pools = new ConcurrentHashMap<>();
+  private final AtomicInteger active;
+  private final AtomicInteger queued;
+
+  private volatile boolean perNamespace;
+
+  @Inject
+  public VerificationBulkhead(MeterRegistry meterRegistry, NamespaceManager namespaceManager) {
+    this.meterRegistry = meterRegistry;
+    this.namespaceManager = namespaceManager;
+    this.active = meterRegistry.gauge("scm.signature.check.verifications.active", new AtomicInteger());
+    this.queued = meterRegistry.gauge("scm.signature.check.verifications.queued", new AtomicInteger());
+  }
+
+  public Permit acquire(Repository repository, GlobalSignatureConfig config) {
+    if (config.getMaxConcurrentVerifications() <= 0) {
+      if (!pools.isEmpty()) {
+        removePools(key -> true);
+      }
+      return UNLIMITED;
+    }
+
+    if (config.isLimitConcurrencyPerNamespace() != perNamespace) {
+      switchMode(config.isLimitConcurrencyPerNamespace());
+    }
+
+    String key = config.isLimitConcurrencyPerNamespace() ? repository.getNamespace() : GLOBAL_POOL;
+    Pool pool = pools.computeIfAbsent(key, k -> new Pool(k, config));
+    pool.update(config);
+    return pool.acquire(repository);
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    HandlerEventType type = event.getEventType();
+    if (type == HandlerEventType.DELETE || type == HandlerEventType.MODIFY) {
+      // deleting the last repository or renaming a namespace leaves the pool of the old namespace behind
+      removePools(key -> !GLOBAL_POOL.equals(key) && namespaceManager.get(key).isEmpty());
+    }
+  }
+
+  private synchronized void switchMode(boolean newPerNamespace) {
+    if (perNamespace != newPerNamespace) {
+      perNamespace = newPerNamespace;
+      removePools(key -> true);
+    }
+  }
+
+  /**
+   * Permits which are still held on a removed pool are released to that pool, so they can no longer be counted
+   * against a pool created afterwards for the same key.
+   */
+  private void removePools(Predicate<String> filter) {
+    pools.forEach((key, pool) -> {
+      if (filter.test(key) && pools.remove(key, pool)) {
+        pool.close();
+      }
+    });
+  }
+
+  public interface Permit extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Pools are resized in place, so that permits which are held while the limit changes still count against the new
+   * limit.
+   */
+  private class Pool {
+
+    private final Gauge activeGauge;
+    private final Gauge queuedGauge;
+    private final AtomicInteger held = new AtomicInteger();
+    private volatile int permits;
+    private volatile int maxQueued;
+    private volatile int maxWaitSeconds;
+    private final ResizableSemaphore semaphore;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private Pool(String key, GlobalSignatureConfig config) {
+      this.permits = config.getMaxConcurrentVerifications();
+      this.maxQueued = config.getMaxQueuedVerifications();
+      this.maxWaitSeconds = config.getMaxQueueWaitSeconds();
+      this.semaphore = new ResizableSemaphore(permits);
+      String name = GLOBAL_POOL.equals(key) ? "global" : key;
+      this.activeGauge = Gauge.builder("scm.signature.check.verifications.pool.active", held, AtomicInteger::get)
+        .tag("pool", name)
+        .register(meterRegistry);
+      this.queuedGauge = Gauge.builder("scm.signature.check.verifications.pool.queued", waiting, AtomicInteger::get)
+        .tag("pool", name)
+        .register(meterRegistry);
+    }
+
+    private void close() {
+      meterRegistry.remove(activeGauge);
+      meterRegistry.remove(queuedGauge);
+    }
+
+    private boolean matches(GlobalSignatureConfig config) {
+      return permits == config.getMaxConcurrentVerifications()
+        && maxQueued == config.getMaxQueuedVerifications()
+        && maxWaitSeconds == config.getMaxQueueWaitSeconds();
+    }
+
+    private void update(GlobalSignatureConfig config) {
+      if (matches(config)) {
+        return;
+      }
+      synchronized (this) {
+        int newPermits = config.getMaxConcurrentVerifications();
+        if (newPermits > permits) {
+          semaphore.release(newPermits - permits);
+        } else if (newPermits < permits) {
+          // may leave the semaphore negative, until enough of the held permits are released
+          semaphore.reducePermits(permits - newPermits);
+        }
+        permits = newPermits;
+        maxQueued = config.getMaxQueuedVerifications();
+        maxWaitSeconds = config.getMaxQueueWaitSeconds();
+      }
+    }
+
+    private Permit acquire(Repository repository) {
+      if (!semaphore.tryAcquire()) {
+        waitForPermit(repository);
+      }
+
+      active.incrementAndGet();
+      held.incrementAndGet();
+      return () -> {
+        held.decrementAndGet();
+        active.decrementAndGet();
+        semaphore.release();
+      };
+    }
+
+    private void waitForPermit(Repository repository) {
+      if (waiting.incrementAndGet() > maxQueued) {
+        waiting.decrementAndGet();
+        throw new VerificationCapacityExceededException(repository);
+      }
+
+      queued.incrementAndGet();
+      try {
+        if (!semaphore.tryAcquire(maxWaitSeconds, TimeUnit.SECONDS)) {
+          throw new VerificationCapacityExceededException(repository);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new VerificationCapacityExceededException(repository);
+      } finally {
+        queued.decrementAndGet();
+        waiting.decrementAndGet();
+      }
+    }
+  }
+
+  private static class ResizableSemaphore extends Semaphore {
+
+    private ResizableSemaphore(int permits) {
+      super(permits, true);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import sonia.scm.ExceptionWithContext;
+import sonia.scm.repository.Repository;
+
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+
+public class VerificationTimeoutException extends ExceptionWithContext {
+
+  private static final String CODE = "8jTfPq0Wx2";
+
+  VerificationTimeoutException(Repository repository, int timeoutInSeconds) {
+    super(
+      entity(repository.getNamespaceAndName()).build(),
+      "Push is too large to verify signatures inline (exceeded time budget of " + timeoutInSeconds + " seconds)"
+    );
+  }
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+}
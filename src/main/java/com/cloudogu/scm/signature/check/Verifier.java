@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import sonia.scm.plugin.ExtensionPoint;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+import java.util.List;
+
+/**
+ * A single check of the pushed changesets. Verifiers are executed ordered by their cost and the first failing
+ * verifier rejects the push by throwing an {@link InvalidSignatureException}.
+ */
+@ExtensionPoint
+public interface Verifier {
+
+  /**
+   * Verifiers with a cost below this value are executed for all changesets, before any other verifier runs.
+   */
+  int CHEAP_COST = 10;
+
+  enum Scope {
+    PUSH, CHANGESET
+  }
+
+  int getCost();
+
+  Scope getScope();
+
+  /**
+   * Returns {@code false}, if the verifier does not apply to the given configuration at all.
+   */
+  default boolean isApplicable(BaseSignatureConfig config) {
+    return true;
+  }
+
+  /**
+   * Called once for every changeset, if the scope is {@link Scope#CHANGESET}.
+   */
+  default void verify(Repository repository, Changeset changeset, BaseSignatureConfig config) {
+  }
+
+  /**
+   * Called once with all changesets, which have to be verified, if the scope is {@link Scope#PUSH}.
+   */
+  default void verify(Repository repository, List<Changeset> changesets, BaseSignatureConfig config) {
+  }
+}
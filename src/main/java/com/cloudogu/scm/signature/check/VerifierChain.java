@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+import java.util.List;
+
+/**
+ * Fixed sequence of the verifiers which apply to a single configuration.
+ */
+public final class VerifierChain {
+
+  private final BaseSignatureConfig config;
+  private final Verifier[] cheapVerifiers;
+  private final Verifier[] pushVerifiers;
+  private final Verifier[] expensiveVerifiers;
+
+  VerifierChain(BaseSignatureConfig config, List<Verifier> orderedVerifiers) {
+    this.config = config;
+    this.cheapVerifiers = orderedVerifiers.stream()
+      .filter(verifier -> verifier.getScope() == Verifier.Scope.CHANGESET && verifier.getCost() < Verifier.CHEAP_COST)
+      .toArray(Verifier[]::new);
+    this.pushVerifiers = orderedVerifiers.stream()
+      .filter(verifier -> verifier.getScope() == Verifier.Scope.PUSH)
+      .toArray(Verifier[]::new);
+    this.expensiveVerifiers = orderedVerifiers.stream()
+      .filter(verifier -> verifier.getScope() == Verifier.Scope.CHANGESET && verifier.getCost() >= Verifier.CHEAP_COST)
+      .toArray(Verifier[]::new);
+  }
+
+  /**
+   * Runs the cheap changeset verifiers in a single pass over all changesets, followed by the push verifiers.
+   */
+  public void verifyCheap(Repository r, List<Changeset> changesets) {
+    for (Changeset c : changesets) {
+      for (Verifier verifier : cheapVerifiers) {
+        verifier.verify(r, c, config);
+      }
+    }
+    verifyPush(r, changesets);
+  }
+
+  public void verifyPush(Repository r, List<Changeset> changesets) {
+    for (Verifier verifier : pushVerifiers) {
+      verifier.verify(r, changesets, config);
+    }
+  }
+
+  /**
+   * Runs only the cheap changeset verifiers for a single changeset.
+   */
+  public void verifyCheap(Repository r, Changeset c) {
+    for (Verifier verifier : cheapVerifiers) {
+      verifier.verify(r, c, config);
+    }
+  }
+
+  public boolean hasExpensiveVerifiers() {
+    return expensiveVerifiers.length > 0;
+  }
+
+  public void verifyExpensive(Repository r, Changeset c) {
+    for (Verifier verifier : expensiveVerifiers) {
+      verifier.verify(r, c, config);
+    }
+  }
+
+  /**
+   * Runs all changeset verifiers for a single changeset.
+   */
+  public void verify(Repository r, Changeset c) {
+    verifyCheap(r, c);
+    verifyExpensive(r, c);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.plugin.Extension;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Audit trail of the decisions of the signature check. Publishing a record only enqueues it into a ring buffer; a
+ * background writer flushes the records in batches as json lines into append-only segments of the plugin's data
+ * directory. Segments are rotated by size and removed by count and age, on rotation and once a day, so that expired
+ * segments are also removed while only few records are written.
+ */
+@Extension
+@Singleton
+public class AuditLog implements ServletContextListener {
+
+  static final int BUFFER_SIZE = 16_384;
+  static final int BATCH_SIZE = 1_000;
+  static final long MAX_SEGMENT_SIZE = 16L * 1024 * 1024;
+  static final int MAX_SEGMENTS = 64;
+  static final Duration RETENTION = Duration.ofDays(90);
+  static final Duration RETENTION_INTERVAL = Duration.ofDays(1);
+
+  private static final Logger LOG = LoggerFactory.getLogger(AuditLog.class);
+  private static final String SEGMENT_PREFIX = "audit-";
+  private static final String SEGMENT_SUFFIX = ".log";
+
+  private final Path directory;
+  private final Clock clock;
+  private final ScheduledExecutorService executor;
+  private final AuditRingBuffer<AuditRecord> buffer = new AuditRingBuffer<>(BUFFER_SIZE);
+  private final ObjectWriter writer = new ObjectMapper().writerFor(AuditRecord.class);
+  private final Counter droppedCounter;
+
+  private Path segment;
+
+  @Inject
+  public AuditLog(SCMContextProvider contextProvider, MeterRegistry meterRegistry) {
+    this(
+      contextProvider.resolve(Paths.get("signature-check", "audit")),
+      meterRegistry,
+      Clock.systemUTC(),
+      Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckAudit-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  @VisibleForTesting
+  AuditLog(Path directory, MeterRegistry meterRegistry, Clock clock, ScheduledExecutorService executor) {
+    this.directory = directory;
+    this.clock = clock;
+    this.executor = executor;
+    this.droppedCounter = meterRegistry.counter("scm.signature.check.audit.dropped");
+  }
+
+  /**
+   * Stamps and enqueues the record without blocking. If the writer cannot keep up and the buffer is full, the record
+   * is dropped and counted.
+   */
+  public void publish(AuditRecord record) {
+    record.setTimestamp(clock.millis());
+    if (!buffer.offer(record)) {
+      droppedCounter.increment();
+    }
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    executor.scheduleWithFixedDelay(this::flushSafely, 1, 1, TimeUnit.SECONDS);
+    executor.scheduleAtFixedRate(this::removeExpiredSegmentsSafely, 1, RETENTION_INTERVAL.toMinutes(), TimeUnit.MINUTES);
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+    try {
+      if (executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        flushSafely();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("failed to write signature check audit log", e);
+    }
+  }
+
+  private void removeExpiredSegmentsSafely() {
+    try {
+      removeExpiredSegments();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("failed to remove expired segments of signature check audit log", e);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized void removeExpiredSegments() throws IOException {
+    applyRetention(MAX_SEGMENTS);
+    if (segment != null && !Files.exists(segment)) {
+      // the current segment has expired, the next batch starts a new one
+      segment = null;
+    }
+  }
+
+  @VisibleForTesting
+  synchronized void flush() throws IOException {
+    List<AuditRecord> batch = new ArrayList<>(BATCH_SIZE);
+    while (buffer.drainTo(batch, BATCH_SIZE) > 0) {
+      write(batch);
+      batch.clear();
+    }
+  }
+
+  private void write(List<AuditRecord> batch) throws IOException {
+    Path target = currentSegment();
+    try (BufferedWriter out = Files.newBufferedWriter(target, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      for (AuditRecord record : batch) {
+        out.write(writer.writeValueAsString(record));
+        out.newLine();
+      }
+    }
+  }
+
+  private Path currentSegment() throws IOException {
+    if (segment == null || Files.size(segment) >= MAX_SEGMENT_SIZE) {
+      Files.createDirectories(directory);
+      segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, clock.millis(), SEGMENT_SUFFIX));
+      // leave room for the new segment
+      applyRetention(MAX_SEGMENTS - 1);
+    }
+    return segment;
+  }
+
+  private void applyRetention(int maxSegments) throws IOException {
+    List<Path> segments = getSegments();
+    long oldest = clock.millis() - RETENTION.toMillis();
+    for (int i = 0; i < segments.size(); i++) {
+      Path candidate = segments.get(i);
+      if (segments.size() - i > maxSegments || Files.getLastModifiedTime(candidate).toMillis() < oldest) {
+        Files.delete(candidate);
+      }
+    }
+  }
+
+  /**
+   * Returns the existing segments, oldest first.
+   */
+  public List<Path> getSegments() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+        .filter(file -> {
+          String name = file.getFileName().toString();
+          return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+        })
+        .sorted()
+        .toList();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.audit;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Compact record of a single decision of the signature check. A record describes a whole push, not its changesets.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditRecord {
+
+  private long timestamp;
+  private String repositoryId;
+  private String pusher;
+  private AuditDecision decision;
+  private String rule;
+  private String reason;
+  private List<String> commitIds;
+  private long durationNanos;
+}
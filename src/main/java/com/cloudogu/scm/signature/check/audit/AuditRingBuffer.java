@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.audit;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer. Every slot carries a sequence number which
+ * tells producers whether the slot is free and the consumer whether it is published. If the buffer is full, offers
+ * fail instead of blocking the producer.
+ */
+final class AuditRingBuffer<T> {
+
+  private final int mask;
+  private final AtomicReferenceArray<T> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private long head;
+
+  AuditRingBuffer(int capacity) {
+    int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+    this.mask = size - 1;
+    this.elements = new AtomicReferenceArray<>(size);
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  boolean offer(T element) {
+    long position = tail.get();
+    while (true) {
+      int index = (int) (position & mask);
+      long difference = sequences.get(index) - position;
+      if (difference == 0) {
+        if (tail.compareAndSet(position, position + 1)) {
+          elements.set(index, element);
+          sequences.set(index, position + 1);
+          return true;
+        }
+        position = tail.get();
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Moves up to {@code max} published elements into the target. Must only be called by the single consumer.
+   */
+  int drainTo(Collection<? super T> target, int max) {
+    int drained = 0;
+    while (drained < max) {
+      int index = (int) (head & mask);
+      if (sequences.get(index) != head + 1) {
+        break;
+      }
+      target.add(elements.get(index));
+      elements.set(index, null);
+      sequences.set(index, head + mask + 1);
+      head++;
+      drained++;
+    }
+    return drained;
+  }
+
+  int capacity() {
+    return mask + 1;
+  }
+}
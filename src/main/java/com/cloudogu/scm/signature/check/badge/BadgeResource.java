@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.badge;
+
+import com.cloudogu.scm.signature.check.PolicyCompiler;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCount;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCounters;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import org.apache.shiro.authz.AuthorizationException;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.otto.edison.hal.Links.linkingTo;
+
+/**
+ * Returns the signature check badges of many repositories at once, so that repository lists need a single request
+ * instead of one per repository. Badges are built from the cached policies and the precomputed signed commit
+ * counters, no repository is opened.
+ */
+@Path("v2/signature-check/badges")
+public class BadgeResource {
+
+  static final int MAX_REPOSITORIES = 100;
+
+  private final PolicyCompiler policyCompiler;
+  private final SignedCommitCounters signedCommitCounters;
+  private final RepositoryManager repositoryManager;
+  private final ScmPathInfoStore scmPathInfoStore;
+
+  @Inject
+  public BadgeResource(PolicyCompiler policyCompiler,
+                       SignedCommitCounters signedCommitCounters,
+                       RepositoryManager repositoryManager,
+                       ScmPathInfoStore scmPathInfoStore) {
+    this.policyCompiler = policyCompiler;
+    this.signedCommitCounters = signedCommitCounters;
+    this.repositoryManager = repositoryManager;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Gets signature check badges of repositories",
+    description = "Gets for each given repository whether signatures are enforced and how many of its pushed changesets were signed. Unknown repositories, repositories without read permission and repositories of other types than git are left out.",
+    tags = "Signature Check Plugin",
+    operationId = "get_signature_check_badges"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid request")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public BadgesDto getBadges(@Valid BadgeRequestDto request) {
+    List<BadgesDto.BadgeDto> badges = new ArrayList<>(request.getRepositories().size());
+    for (BadgeRequestDto.RepositoryDto requested : request.getRepositories()) {
+      Repository repository = find(requested);
+      if (repository != null && "git".equals(repository.getType())) {
+        badges.add(createBadge(repository));
+      }
+    }
+
+    BadgesDto dto = new BadgesDto(badges);
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), BadgeResource.class);
+    dto.add(linkingTo().self(linkBuilder.method("getBadges").parameters().href()).build());
+    return dto;
+  }
+
+  private Repository find(BadgeRequestDto.RepositoryDto requested) {
+    try {
+      Repository repository = repositoryManager.get(new NamespaceAndName(requested.getNamespace(), requested.getName()));
+      if (repository != null && RepositoryPermissions.read(repository).isPermitted()) {
+        return repository;
+      }
+    } catch (AuthorizationException e) {
+      // repositories without permission are left out like unknown ones
+    }
+    return null;
+  }
+
+  private BadgesDto.BadgeDto createBadge(Repository repository) {
+    SignedCommitCount count = signedCommitCounters.get(repository.getId()).orElseGet(SignedCommitCount::new);
+    Double signedRatio = count.getChangesets() == 0 ? null : (double) count.getSignedChangesets() / count.getChangesets();
+    return new BadgesDto.BadgeDto(
+      repository.getNamespace(),
+      repository.getName(),
+      policyCompiler.getPolicy(repository).isEnabled(),
+      count.getChangesets(),
+      count.getSignedChangesets(),
+      signedRatio
+    );
+  }
+}
@@ -30,4 +30,10 @@ public class BaseSignatureConfig {
   private boolean isEnabled = false;
   private List<String> protectedBranches = new ArrayList<>();
   private GpgVerificationType verificationType = GpgVerificationType.ANY_SIGNATURE;
+  private int verificationTimeout = 0;
+  private TimeoutFallback timeoutFallback = TimeoutFallback.REJECT;
+  private boolean verifyOnlyNewCommits = false;
+  private List<BranchRule> branchRules = new ArrayList<>();
+  private List<String> exemptUsers = new ArrayList<>();
+  private List<String> exemptGroups = new ArrayList<>();
 }
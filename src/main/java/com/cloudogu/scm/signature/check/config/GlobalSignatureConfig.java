@@ -21,6 +21,8 @@ import lombok.Data;
 import jakarta.xml.bind.annotation.XmlAccessType;
 import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @XmlAccessorType(XmlAccessType.FIELD)
@@ -28,4 +30,13 @@ import jakarta.xml.bind.annotation.XmlRootElement;
 public class GlobalSignatureConfig extends BaseSignatureConfig implements WithDisableOption {
 
   private boolean childrenConfigDisabled = false;
+  private int maxConcurrentVerifications = 0;
+  private boolean limitConcurrencyPerNamespace = false;
+  private int maxQueuedVerifications = 0;
+  private int maxQueueWaitSeconds = 10;
+  private boolean flagCommitsOfRemovedKeys = false;
+  private boolean deferHistoryImports = false;
+  private int historyVerificationThreads = 2;
+  private List<String> historyImportUsers = new ArrayList<>();
+  private boolean recordPushes = false;
 }
@@ -23,8 +23,11 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.List;
 
 @EqualsAndHashCode(callSuper = true)
@@ -41,6 +44,46 @@ public class GlobalSignatureConfigDto extends HalRepresentation {
   @NotNull
   private GpgVerificationType verificationType;
 
+  @Min(0)
+  private int verificationTimeout;
+
+  @NotNull
+  private TimeoutFallback timeoutFallback = TimeoutFallback.REJECT;
+
+  private boolean verifyOnlyNewCommits;
+
+  @NotNull
+  private List<@NotNull @Valid BranchRuleDto> branchRules = new ArrayList<>();
+
+  @Min(0)
+  private int maxConcurrentVerifications;
+
+  private boolean limitConcurrencyPerNamespace;
+
+  @Min(0)
+  private int maxQueuedVerifications;
+
+  @Min(0)
+  private int maxQueueWaitSeconds = 10;
+
+  private boolean flagCommitsOfRemovedKeys;
+
+  @NotNull
+  private List<@NotNull @NotEmpty String> exemptUsers = new ArrayList<>();
+
+  @NotNull
+  private List<@NotNull @NotEmpty String> exemptGroups = new ArrayList<>();
+
+  private boolean deferHistoryImports;
+
+  @Min(1)
+  private int historyVerificationThreads = 2;
+
+  @NotNull
+  private List<@NotNull @NotEmpty String> historyImportUsers = new ArrayList<>();
+
+  private boolean recordPushes;
+
   @Override
   public HalRepresentation add(Links links) {
     return super.add(links);
@@ -16,7 +16,14 @@
 
 package com.cloudogu.scm.signature.check.config;
 
+/**
+ * Verification types, ordered from the least to the most strict one.
+ */
 public enum GpgVerificationType {
   ANY_SIGNATURE,
-  SCM_USER_SIGNATURE,
+  SCM_USER_SIGNATURE;
+
+  public GpgVerificationType stricter(GpgVerificationType other) {
+    return other != null && other.compareTo(this) > 0 ? other : this;
+  }
 }
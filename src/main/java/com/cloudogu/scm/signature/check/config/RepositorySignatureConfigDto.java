@@ -23,8 +23,11 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.List;
 
 @EqualsAndHashCode(callSuper = true)
@@ -41,6 +44,23 @@ public class RepositorySignatureConfigDto extends HalRepresentation {
   @NotNull
   private GpgVerificationType verificationType;
 
+  @Min(0)
+  private int verificationTimeout;
+
+  @NotNull
+  private TimeoutFallback timeoutFallback = TimeoutFallback.REJECT;
+
+  private boolean verifyOnlyNewCommits;
+
+  @NotNull
+  private List<@NotNull @Valid BranchRuleDto> branchRules = new ArrayList<>();
+
+  @NotNull
+  private List<@NotNull @NotEmpty String> exemptUsers = new ArrayList<>();
+
+  @NotNull
+  private List<@NotNull @NotEmpty String> exemptGroups = new ArrayList<>();
+
   @Override
   public HalRepresentation add(Links links) {
     return super.add(links);
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package com.cloudogu.scm.signature.check.config;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class SignatureConfigDtoMapper {
+
+  private SignatureConfigDtoMapper() {}
+
+  public static GlobalSignatureConfig toConfig(GlobalSignatureConfigDto dto) {
+    GlobalSignatureConfig config = new GlobalSignatureConfig();
+    config.setChildrenConfigDisabled(dto.isChildrenConfigDisabled());
+    config.setEnabled(dto.isEnabled());
+    config.setProtectedBranches(dto.getProtectedBranches());
+    config.setVerificationType(dto.getVerificationType());
+    config.setVerificationTimeout(dto.getVerificationTimeout());
+    config.setTimeoutFallback(dto.getTimeoutFallback());
+    config.setVerifyOnlyNewCommits(dto.isVerifyOnlyNewCommits());
+    config.setBranchRules(toBranchRules(dto.getBranchRules()));
+    config.setExemptUsers(dto.getExemptUsers());
+    config.setExemptGroups(dto.getExemptGroups());
+    config.setMaxConcurrentVerifications(dto.getMaxConcurrentVerifications());
+    config.setLimitConcurrencyPerNamespace(dto.isLimitConcurrencyPerNamespace());
+    config.setMaxQueuedVerifications(dto.getMaxQueuedVerifications());
+    config.setMaxQueueWaitSeconds(dto.getMaxQueueWaitSeconds());
+    config.setFlagCommitsOfRemovedKeys(dto.isFlagCommitsOfRemovedKeys());
+    config.setDeferHistoryImports(dto.isDeferHistoryImports());
+    config.setHistoryVerificationThreads(dto.getHistoryVerificationThreads());
+    config.setHistoryImportUsers(dto.getHistoryImportUsers());
+    config.setRecordPushes(dto.isRecordPushes());
+
+    return config;
+  }
+
+  public static NamespaceSignatureConfig toConfig(NamespaceSignatureConfigDto dto) {
+    NamespaceSignatureConfig config = new NamespaceSignatureConfig();
+    config.setChildrenConfigDisabled(dto.isChildrenConfigDisabled());
+    config.setOverwriteParentConfig(dto.isOverwriteParentConfig());
+    config.setEnabled(dto.isEnabled());
+    config.setProtectedBranches(dto.getProtectedBranches());
+    config.setVerificationType(dto.getVerificationType());
+    config.setVerificationTimeout(dto.getVerificationTimeout());
+    config.setTimeoutFallback(dto.getTimeoutFallback());
+    config.setVerifyOnlyNewCommits(dto.isVerifyOnlyNewCommits());
+    config.setBranchRules(toBranchRules(dto.getBranchRules()));
+    config.setExemptUsers(dto.getExemptUsers());
+    config.setExemptGroups(dto.getExemptGroups());
+
+    return config;
+  }
+
+  public static RepositorySignatureConfig toConfig(RepositorySignatureConfigDto dto) {
+    RepositorySignatureConfig config = new RepositorySignatureConfig();
+    config.setOverwriteParentConfig(dto.isOverwriteParentConfig());
+    config.setEnabled(dto.isEnabled());
+    config.setProtectedBranches(dto.getProtectedBranches());
+    config.setVerificationType(dto.getVerificationType());
+    config.setVerificationTimeout(dto.getVerificationTimeout());
+    config.setTimeoutFallback(dto.getTimeoutFallback());
+    config.setVerifyOnlyNewCommits(dto.isVerifyOnlyNewCommits());
+    config.setBranchRules(toBranchRules(dto.getBranchRules()));
+    config.setExemptUsers(dto.getExemptUsers());
+    config.setExemptGroups(dto.getExemptGroups());
+
+    return config;
+  }
+
+  private static List<BranchRule> toBranchRules(List<BranchRuleDto> branchRules) {
+    return branchRules.stream()
+      .map(rule -> new BranchRule(rule.getPattern(), rule.getVerificationType()))
+      .collect(Collectors.toList());
+  }
+}
@@ -45,6 +45,9 @@ import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static de.otto.edison.hal.Link.link;
 import static de.otto.edison.hal.Links.linkingTo;
@@ -96,7 +99,22 @@ public class SignatureConfigResource {
       config.isChildrenConfigDisabled(),
       config.isEnabled(),
       config.getProtectedBranches(),
-      config.getVerificationType()
+      config.getVerificationType(),
+      config.getVerificationTimeout(),
+      config.getTimeoutFallback(),
+      config.isVerifyOnlyNewCommits(),
+      mapBranchRulesToDto(config.getBranchRules()),
+      config.getMaxConcurrentVerifications(),
+      config.isLimitConcurrencyPerNamespace(),
+      config.getMaxQueuedVerifications(),
+      config.getMaxQueueWaitSeconds(),
+      config.isFlagCommitsOfRemovedKeys(),
+      config.getExemptUsers(),
+      config.getExemptGroups(),
+      config.isDeferHistoryImports(),
+      config.getHistoryVerificationThreads(),
+      config.getHistoryImportUsers(),
+      config.isRecordPushes()
     );
 
     Links.Builder linksBuilder = linkingTo().self(globalConfigSelfLink());
@@ -140,20 +158,10 @@ public class SignatureConfigResource {
   )
   public Response setGlobalConfig(@Valid GlobalSignatureConfigDto configDto) {
     ConfigurationPermissions.write("signatureCheck").check();
-    signatureConfigService.setGlobalConfig(mapDtoToConfig(configDto));
+    signatureConfigService.setGlobalConfig(SignatureConfigDtoMapper.toConfig(configDto));
     return Response.noContent().build();
   }
 
-  private GlobalSignatureConfig mapDtoToConfig(GlobalSignatureConfigDto dto) {
-    GlobalSignatureConfig config = new GlobalSignatureConfig();
-    config.setChildrenConfigDisabled(dto.isChildrenConfigDisabled());
-    config.setEnabled(dto.isEnabled());
-    config.setProtectedBranches(dto.getProtectedBranches());
-    config.setVerificationType(dto.getVerificationType());
-
-    return config;
-  }
-
   @GET
   @Path("/{namespace}")
   @Produces(MediaType.APPLICATION_JSON)
@@ -193,7 +201,13 @@ public class SignatureConfigResource {
       config.isOverwriteParentConfig(),
       config.isEnabled(),
       config.getProtectedBranches(),
-      config.getVerificationType()
+      config.getVerificationType(),
+      config.getVerificationTimeout(),
+      config.getTimeoutFallback(),
+      config.isVerifyOnlyNewCommits(),
+      mapBranchRulesToDto(config.getBranchRules()),
+      config.getExemptUsers(),
+      config.getExemptGroups()
     );
 
     Links.Builder linksBuilder = linkingTo().self(namespaceConfigSelfLink(namespace));
@@ -244,22 +258,11 @@ public class SignatureConfigResource {
       );
 
     SignatureCheckPermissions.checkNamespace(namespace);
-    signatureConfigService.setNamespaceConfig(foundNamespace, mapDtoToConfig(configDto));
+    signatureConfigService.setNamespaceConfig(foundNamespace, SignatureConfigDtoMapper.toConfig(configDto));
 
     return Response.noContent().build();
   }
 
-  private NamespaceSignatureConfig mapDtoToConfig(NamespaceSignatureConfigDto dto) {
-    NamespaceSignatureConfig config = new NamespaceSignatureConfig();
-    config.setChildrenConfigDisabled(dto.isChildrenConfigDisabled());
-    config.setOverwriteParentConfig(dto.isOverwriteParentConfig());
-    config.setEnabled(dto.isEnabled());
-    config.setProtectedBranches(dto.getProtectedBranches());
-    config.setVerificationType(dto.getVerificationType());
-
-    return config;
-  }
-
   @GET
   @Path("/{namespace}/{name}")
   @Produces(MediaType.APPLICATION_JSON)
@@ -298,7 +301,13 @@ public class SignatureConfigResource {
       config.isOverwriteParentConfig(),
       config.isEnabled(),
       config.getProtectedBranches(),
-      config.getVerificationType()
+      config.getVerificationType(),
+      config.getVerificationTimeout(),
+      config.getTimeoutFallback(),
+      config.isVerifyOnlyNewCommits(),
+      mapBranchRulesToDto(config.getBranchRules()),
+      config.getExemptUsers(),
+      config.getExemptGroups()
     );
 
     Links.Builder linksBuilder = linkingTo().self(repoConfigSelfLink(repository));
@@ -350,18 +359,17 @@ public class SignatureConfigResource {
     }
 
     RepositoryPermissions.custom("signatureCheck", foundRepository.getId()).check();
-    signatureConfigService.setRepoConfig(foundRepository, mapDtoToConfig(configDto));
+    signatureConfigService.setRepoConfig(foundRepository, SignatureConfigDtoMapper.toConfig(configDto));
 
     return Response.noContent().build();
   }
 
-  private RepositorySignatureConfig mapDtoToConfig(RepositorySignatureConfigDto dto) {
-    RepositorySignatureConfig config = new RepositorySignatureConfig();
-    config.setOverwriteParentConfig(dto.isOverwriteParentConfig());
-    config.setEnabled(dto.isEnabled());
-    config.setProtectedBranches(dto.getProtectedBranches());
-    config.setVerificationType(dto.getVerificationType());
-
-    return config;
+  private List<BranchRuleDto> mapBranchRulesToDto(List<BranchRule> branchRules) {
+    if (branchRules == null) {
+      return new ArrayList<>();
+    }
+    return branchRules.stream()
+      .map(rule -> new BranchRuleDto(rule.getPattern(), rule.getVerificationType()))
+      .collect(Collectors.toList());
   }
 }
@@ -22,8 +22,10 @@ import sonia.scm.store.ConfigurationStore;
 import sonia.scm.store.ConfigurationStoreFactory;
 
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
 
-
+@Singleton
 public class SignatureConfigService {
 
   public static final String GLOBAL_CONFIG_STORE_NAME = "global-signature-check";
@@ -31,18 +33,27 @@ public class SignatureConfigService {
 
   public static final String NAMESPACE_CONFIG_STORE_NAME = "namespace-signature-check";
   private final ConfigurationStoreFactory storeFactory;
+  private final AtomicLong version = new AtomicLong();
 
   @Inject
   public SignatureConfigService(ConfigurationStoreFactory storeFactory) {
     this.storeFactory = storeFactory;
   }
 
+  /**
+   * Returns a number which changes whenever any signature check configuration is changed.
+   */
+  public long getVersion() {
+    return version.get();
+  }
+
   public GlobalSignatureConfig getGlobalConfig() {
     return createGlobalConfigStore().getOptional().orElse(new GlobalSignatureConfig());
   }
 
   public void setGlobalConfig(GlobalSignatureConfig config) {
     createGlobalConfigStore().set(config);
+    version.incrementAndGet();
   }
 
   public RepositorySignatureConfig getRepoConfig(Repository repository) {
@@ -51,6 +62,7 @@ public class SignatureConfigService {
 
   public void setRepoConfig(Repository repository, RepositorySignatureConfig config) {
     createRepoConfigStore(repository).set(config);
+    version.incrementAndGet();
   }
 
   public NamespaceSignatureConfig getNamespaceConfig(Namespace namespace) {
@@ -59,6 +71,7 @@ public class SignatureConfigService {
 
   public void setNamespaceConfig(Namespace namespace, NamespaceSignatureConfig config) {
     createNamespaceConfigStore(namespace).set(config);
+    version.incrementAndGet();
   }
 
   private ConfigurationStore<GlobalSignatureConfig> createGlobalConfigStore() {
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.git;
+
+import com.cloudogu.scm.signature.check.CommitInspector;
+import com.google.common.base.Strings;
+import jakarta.inject.Inject;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+import sonia.scm.plugin.Requires;
+import sonia.scm.repository.GitRepositoryHandler;
+import sonia.scm.repository.GitUtil;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.security.GPG;
+import sonia.scm.security.PublicKey;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+
+@Extension
+@Requires("scm-git-plugin")
+public class GitCommitInspector implements CommitInspector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(GitCommitInspector.class);
+
+  private final GitRepositoryHandler repositoryHandler;
+  private final GPG gpg;
+  private final SignatureVerificationCache verificationCache;
+
+  @Inject
+  public GitCommitInspector(GitRepositoryHandler repositoryHandler, GPG gpg, SignatureVerificationCache verificationCache) {
+    this.repositoryHandler = repositoryHandler;
+    this.gpg = gpg;
+    this.verificationCache = verificationCache;
+  }
+
+  @Override
+  public boolean isSupported(Repository repository) {
+    return GitRepositoryHandler.TYPE_NAME.equals(repository.getType());
+  }
+
+  @Override
+  public Set<String> findKnownCommits(Repository repository, Collection<String> commitIds, Predicate<String> verifiedBranch) {
+    if (commitIds.isEmpty()) {
+      return Collections.emptySet();
+    }
+
+    try (org.eclipse.jgit.lib.Repository gitRepository = open(repository);
+         RevWalk walk = new RevWalk(gitRepository)) {
+      Set<String> candidates = markCandidates(walk, commitIds);
+      markVerifiedBranchesUninteresting(gitRepository, walk, verifiedBranch);
+
+      // the walk only returns commits which are not reachable from any verified branch
+      for (RevCommit commit : walk) {
+        candidates.remove(commit.name());
+      }
+      return candidates;
+    } catch (IOException e) {
+      LOG.warn("could not determine known commits of repository {}, all commits will be verified", repository, e);
+      return Collections.emptySet();
+    }
+  }
+
+  @Override
+  public List<Changeset> readSignatures(Repository repository, Collection<String> commitIds) throws IOException {
+    List<Changeset> changesets = new ArrayList<>(commitIds.size());
+    try (org.eclipse.jgit.lib.Repository gitRepository = open(repository);
+         RevWalk walk = new RevWalk(gitRepository)) {
+      for (String commitId : commitIds) {
+        parseCommit(walk, commitId).ifPresent(commit -> {
+          changesets.add(toChangeset(commit));
+          walk.reset();
+        });
+      }
+    }
+    return changesets;
+  }
+
+  private org.eclipse.jgit.lib.Repository open(Repository repository) throws IOException {
+    return GitUtil.open(repositoryHandler.getDirectory(repository.getId()));
+  }
+
+  private Optional<RevCommit> parseCommit(RevWalk walk, String commitId) throws IOException {
+    try {
+      return Optional.of(walk.parseCommit(ObjectId.fromString(commitId)));
+    } catch (MissingObjectException | IllegalArgumentException e) {
+      LOG.debug("could not find commit {}", commitId);
+      return Optional.empty();
+    }
+  }
+
+  private Changeset toChangeset(RevCommit commit) {
+    Changeset changeset = new Changeset();
+    changeset.setId(commit.name());
+    byte[] signature = commit.getRawGpgSignature();
+    if (signature != null) {
+      changeset.setSignatures(List.of(verify(commit, signature)));
+    }
+    return changeset;
+  }
+
+  private Signature verify(RevCommit commit, byte[] signature) {
+    String keyId = gpg.findPublicKeyId(signature);
+    if (Strings.isNullOrEmpty(keyId)) {
+      return new Signature(keyId, "gpg", SignatureStatus.NOT_FOUND, null, Collections.emptySet());
+    }
+
+    Optional<PublicKey> publicKey = gpg.findPublicKey(keyId);
+    if (publicKey.isEmpty()) {
+      return new Signature(keyId, "gpg", SignatureStatus.NOT_FOUND, null, Collections.emptySet());
+    }
+
+    boolean verified = verificationCache.verify(
+      commit.name(),
+      publicKey.get().getRaw(),
+      signature,
+      () -> publicKey.get().verify(RawCommits.withoutSignature(commit.getRawBuffer()), signature)
+    );
+    return new Signature(
+      keyId,
+      "gpg",
+      verified ? SignatureStatus.VERIFIED : SignatureStatus.INVALID,
+      publicKey.get().getOwner().orElse(null),
+      publicKey.get().getContacts()
+    );
+  }
+
+  private Set<String> markCandidates(RevWalk walk, Collection<String> commitIds) throws IOException {
+    Set<String> candidates = new HashSet<>();
+    for (String commitId : commitIds) {
+      try {
+        walk.markStart(walk.parseCommit(ObjectId.fromString(commitId)));
+        candidates.add(commitId);
+      } catch (MissingObjectException | IllegalArgumentException e) {
+        LOG.debug("could not find commit {}", commitId);
+      }
+    }
+    return candidates;
+  }
+
+  private void markVerifiedBranchesUninteresting(org.eclipse.jgit.lib.Repository gitRepository,
+                                                 RevWalk walk,
+                                                 Predicate<String> verifiedBranch) throws IOException {
+    for (Ref ref : gitRepository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS)) {
+      if (ref.getObjectId() == null || !verifiedBranch.test(ref.getName().substring(Constants.R_HEADS.length()))) {
+        continue;
+      }
+      try {
+        RevObject target = walk.peel(walk.parseAny(ref.getObjectId()));
+        if (target instanceof RevCommit) {
+          walk.markUninteresting((RevCommit) target);
+        }
+      } catch (MissingObjectException e) {
+        LOG.debug("ref {} points to missing object", ref.getName());
+      }
+    }
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.git;
+
+import java.io.ByteArrayOutputStream;
+
+final class RawCommits {
+
+  private static final byte[] GPGSIG_HEADER = "gpgsig ".getBytes();
+
+  private RawCommits() {
+  }
+
+  /**
+   * Removes the gpgsig header including its continuation lines from the raw commit buffer, which results in the
+   * payload the signature was created for.
+   */
+  static byte[] withoutSignature(byte[] raw) {
+    ByteArrayOutputStream payload = new ByteArrayOutputStream(raw.length);
+    int lineStart = 0;
+    boolean inHeaders = true;
+    boolean inSignature = false;
+    while (lineStart < raw.length) {
+      int lineEnd = nextLineEnd(raw, lineStart);
+      if (inHeaders) {
+        if (lineEnd == lineStart) {
+          // empty line separates headers from message
+          inHeaders = false;
+          inSignature = false;
+        } else if (startsWith(raw, lineStart, GPGSIG_HEADER)) {
+          inSignature = true;
+        } else if (!inSignature || raw[lineStart] != ' ') {
+          inSignature = false;
+        }
+      }
+      if (!inSignature) {
+        payload.write(raw, lineStart, Math.min(lineEnd + 1, raw.length) - lineStart);
+      }
+      lineStart = lineEnd + 1;
+    }
+    return payload.toByteArray();
+  }
+
+  private static int nextLineEnd(byte[] raw, int start) {
+    for (int i = start; i < raw.length; i++) {
+      if (raw[i] == '\n') {
+        return i;
+      }
+    }
+    return raw.length;
+  }
+
+  private static boolean startsWith(byte[] raw, int offset, byte[] prefix) {
+    if (offset + prefix.length > raw.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (raw[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
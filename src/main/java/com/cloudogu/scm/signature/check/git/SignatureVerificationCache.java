@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.git;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Caches the outcome of the cryptographic verification of commit signatures read by the {@link GitCommitInspector},
+ * i.e. for the commit id based verification of the preflight check. The push hook does not use this cache, because
+ * core verifies the signatures of pushed changesets before the hook is called.
+ * <p>
+ * Entries are keyed by the digest of the public key they were verified with, so a replaced key never matches an old
+ * entry and no entries have to be invalidated when keys are removed. The owner of the signature is not cached, it is
+ * always resolved from the current public key.
+ */
+@Singleton
+class SignatureVerificationCache {
+
+  static final String HIT_COUNTER = "scm.signature.check.cache.hits";
+  static final String MISS_COUNTER = "scm.signature.check.cache.misses";
+
+  static final long MAX_SIZE = 50_000;
+  static final Duration TTL = Duration.ofHours(12);
+
+  private final Cache<Key, Boolean> cache;
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  @Inject
+  SignatureVerificationCache(MeterRegistry meterRegistry) {
+    this(meterRegistry, Ticker.systemTicker());
+  }
+
+  SignatureVerificationCache(MeterRegistry meterRegistry, Ticker ticker) {
+    this.cache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .expireAfterWrite(TTL)
+      .ticker(ticker)
+      .build();
+    this.hitCounter = meterRegistry.counter(HIT_COUNTER);
+    this.missCounter = meterRegistry.counter(MISS_COUNTER);
+  }
+
+  boolean verify(String commitId, String rawPublicKey, byte[] signature, BooleanSupplier verification) {
+    Key key = new Key(
+      commitId,
+      Hashing.sha256().hashBytes(signature).toString(),
+      Hashing.sha256().hashString(rawPublicKey, StandardCharsets.UTF_8).toString()
+    );
+    Boolean verified = cache.getIfPresent(key);
+    if (verified != null) {
+      hitCounter.increment();
+      return verified;
+    }
+
+    missCounter.increment();
+    boolean result = verification.getAsBoolean();
+    cache.put(key, result);
+    return result;
+  }
+
+  long size() {
+    return cache.size();
+  }
+
+  @Value
+  private static class Key {
+    String commitId;
+    String signatureDigest;
+    String publicKeyDigest;
+  }
+}
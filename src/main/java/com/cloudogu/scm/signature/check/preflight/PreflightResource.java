@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.preflight;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import sonia.scm.NotFoundException;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Path("v2/signature-check/preflight")
+public class PreflightResource {
+
+  private final PreflightVerifier preflightVerifier;
+  private final RepositoryManager repositoryManager;
+  private final ScmPathInfoStore scmPathInfoStore;
+
+  @Inject
+  public PreflightResource(PreflightVerifier preflightVerifier, RepositoryManager repositoryManager, ScmPathInfoStore scmPathInfoStore) {
+    this.preflightVerifier = preflightVerifier;
+    this.repositoryManager = repositoryManager;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @POST
+  @Path("/{namespace}/{name}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Verifies commits before a push",
+    description = "Verifies commits, which are already stored in the repository, against the signature policy of the given branch",
+    tags = "Signature Check Plugin",
+    operationId = "preflight_signature_check"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid request")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(responseCode = "404", description = "Repository not found")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public PreflightResultDto verify(@PathParam("namespace") String namespace,
+                                   @PathParam("name") String name,
+                                   @Valid PreflightRequestDto request) {
+    Repository repository = repositoryManager.get(new NamespaceAndName(namespace, name));
+    if (repository == null) {
+      throw new NotFoundException(Repository.class, namespace + "/" + name);
+    }
+    RepositoryPermissions.push(repository).check();
+
+    PreflightReport report = preflightVerifier.verify(repository, request.getBranch(), request.getCommitIds());
+    PreflightResultDto dto = new PreflightResultDto(
+      request.getBranch(),
+      report.getVerificationType() == null ? null : report.getVerificationType().name(),
+      report.isAccepted(),
+      report.getResults().stream()
+        .map(result -> new PreflightResultDto.CommitResultDto(result.getCommitId(), result.getStatus(), result.getReason(), result.getMessage()))
+        .toList()
+    );
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), PreflightResource.class);
+    dto.add(linkingTo().self(linkBuilder.method("verify").parameters(namespace, name).href()).build());
+    return dto;
+  }
+}
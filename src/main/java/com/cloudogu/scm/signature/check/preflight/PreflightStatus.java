@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.preflight;
+
+public enum PreflightStatus {
+  /**
+   * The commit satisfies the signature policy of the branch.
+   */
+  ACCEPTED,
+  /**
+   * The commit would be rejected by the signature check.
+   */
+  REJECTED,
+  /**
+   * The commit is already part of another branch and would not be verified again.
+   */
+  KNOWN,
+  /**
+   * The branch is not protected by the signature check.
+   */
+  NOT_ENFORCED,
+  /**
+   * The commit does not exist in the repository.
+   */
+  NOT_FOUND
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.preflight;
+
+import com.cloudogu.scm.signature.check.CommitLookup;
+import com.cloudogu.scm.signature.check.InFlightVerifications;
+import com.cloudogu.scm.signature.check.InvalidSignatureException;
+import com.cloudogu.scm.signature.check.PolicyCompiler;
+import com.cloudogu.scm.signature.check.SignaturePolicy;
+import com.cloudogu.scm.signature.check.VerifierChain;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Verifies commits, which are already stored in the repository, as if they would be pushed to a branch. The same
+ * compiled policy, verifier chains and signature caches as for a real push are used, but instead of rejecting at
+ * the first invalid changeset, a result is collected for every commit.
+ */
+@Singleton
+public class PreflightVerifier {
+
+  public static final int MAX_COMMITS = 1000;
+
+  private final PolicyCompiler policyCompiler;
+  private final CommitLookup commitLookup;
+  private final InFlightVerifications inFlightVerifications;
+
+  @Inject
+  public PreflightVerifier(PolicyCompiler policyCompiler, CommitLookup commitLookup, InFlightVerifications inFlightVerifications) {
+    this.policyCompiler = policyCompiler;
+    this.commitLookup = commitLookup;
+    this.inFlightVerifications = inFlightVerifications;
+  }
+
+  public PreflightReport verify(Repository repository, String branch, List<String> commitIds) {
+    SignaturePolicy policy = policyCompiler.getPolicy(repository);
+    GpgVerificationType verificationType = policy.isEnabled() ? policy.resolveVerificationType(List.of(branch)) : null;
+    if (verificationType == null) {
+      List<PreflightResult> results = commitIds.stream()
+        .map(commitId -> PreflightResult.of(commitId, PreflightStatus.NOT_ENFORCED))
+        .toList();
+      return new PreflightReport(null, results);
+    }
+
+    Map<String, PreflightResult> results = new LinkedHashMap<>();
+    for (String commitId : commitIds) {
+      results.put(commitId, PreflightResult.of(commitId, PreflightStatus.NOT_FOUND));
+    }
+
+    Set<String> knownCommits = policy.isVerifyOnlyNewCommits()
+      ? commitLookup.findKnownCommits(repository, results.keySet(), verifiedBranch -> policy.isVerifiedAtLeast(verifiedBranch, verificationType))
+      : Collections.emptySet();
+
+    VerifierChain verifierChain = policy.getVerifierChain(verificationType);
+    List<Changeset> accepted = new ArrayList<>();
+    for (Changeset changeset : readSignatures(repository, results.keySet())) {
+      if (knownCommits.contains(changeset.getId())) {
+        results.put(changeset.getId(), PreflightResult.of(changeset.getId(), PreflightStatus.KNOWN));
+        continue;
+      }
+      try {
+        inFlightVerifications.verify(
+          repository,
+          changeset.getId(),
+          policy.getVersion(),
+          verificationType,
+          () -> verifierChain.verify(repository, changeset)
+        );
+        results.put(changeset.getId(), PreflightResult.of(changeset.getId(), PreflightStatus.ACCEPTED));
+        accepted.add(changeset);
+      } catch (InvalidSignatureException e) {
+        results.put(changeset.getId(), rejected(changeset.getId(), e));
+      }
+    }
+
+    if (!accepted.isEmpty()) {
+      try {
+        verifierChain.verifyPush(repository, accepted);
+      } catch (InvalidSignatureException e) {
+        results.put(e.getChangesetId(), rejected(e.getChangesetId(), e));
+      }
+    }
+    return new PreflightReport(verificationType, new ArrayList<>(results.values()));
+  }
+
+  private List<Changeset> readSignatures(Repository repository, Set<String> commitIds) {
+    try {
+      return commitLookup.readSignatures(repository, commitIds);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read signatures of repository " + repository, e);
+    }
+  }
+
+  private static PreflightResult rejected(String commitId, InvalidSignatureException e) {
+    return new PreflightResult(commitId, PreflightStatus.REJECTED, e.getReason().name(), e.getMessage());
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import lombok.Value;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Anonymised shape of a push. Only the names of protected branches are kept, names of unprotected branches are
+ * replaced by stable keys (see {@link PushRecorder#branchKey(String)}), commit ids, authors and pushers are not
+ * recorded and signatures are reduced to their status and the kind of their owner.
+ */
+@Value
+public class PushRecord {
+
+  /**
+   * A name git does not allow for branches, used to protect nothing but the recorded branches on replay.
+   */
+  static final String UNMATCHED_BRANCH = "..";
+
+  static final int STATUS_MASK = 0b0011;
+  static final int OWNER_PRESENT = 0b0100;
+  static final int OWNER_ACTIVE = 0b1000;
+
+  static final String ACTIVE_OWNER = "active-user";
+  static final String INACTIVE_OWNER = "inactive-user";
+
+  /**
+   * Prefix of the keys of unprotected branches. Git does not allow it in branch names.
+   */
+  static final String BRANCH_KEY_PREFIX = "~";
+
+  long timestamp;
+  String repositoryId;
+  /**
+   * {@code true}, if the signature check was enabled for the repository at the time of the push.
+   */
+  boolean enabled;
+  GpgVerificationType verificationType;
+  boolean verifyOnlyNewCommits;
+  int verificationTimeout;
+  TimeoutFallback timeoutFallback;
+  List<RecordedBranch> branches;
+  List<RecordedChangeset> changesets;
+  AuditDecision outcome;
+  long durationNanos;
+
+  /**
+   * Creates a configuration which resolves every recorded branch to the verification type in effect at the time of
+   * the push.
+   */
+  public BaseSignatureConfig toConfig() {
+    BaseSignatureConfig config = new BaseSignatureConfig();
+    config.setEnabled(enabled);
+    config.setVerificationType(verificationType);
+    config.setVerifyOnlyNewCommits(verifyOnlyNewCommits);
+    config.setVerificationTimeout(verificationTimeout);
+    config.setTimeoutFallback(timeoutFallback);
+    config.setProtectedBranches(new ArrayList<>(List.of(UNMATCHED_BRANCH)));
+    List<BranchRule> rules = new ArrayList<>();
+    for (RecordedBranch branch : branches) {
+      if (branch.getVerificationType() != null) {
+        rules.add(new BranchRule(branch.getName(), branch.getVerificationType()));
+      }
+    }
+    config.setBranchRules(rules);
+    return config;
+  }
+
+  /**
+   * Creates changesets of the recorded shape with ids made of the given prefix and their index.
+   */
+  public List<Changeset> toChangesets(String idPrefix) {
+    List<Changeset> result = new ArrayList<>(changesets.size());
+    for (int i = 0; i < changesets.size(); i++) {
+      RecordedChangeset recorded = changesets.get(i);
+      Changeset changeset = new Changeset();
+      changeset.setId(idPrefix + i);
+      changeset.setBranches(branchNames(recorded.getBranchMask()));
+      List<Signature> signatures = new ArrayList<>(recorded.getSignatures().length);
+      for (byte signature : recorded.getSignatures()) {
+        signatures.add(toSignature(signature));
+      }
+      changeset.setSignatures(signatures);
+      result.add(changeset);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the number of changesets, which had to be verified at the time of the push.
+   */
+  public int countVerifiedChangesets() {
+    if (!enabled) {
+      return 0;
+    }
+    long protectedMask = 0;
+    for (int i = 0; i < branches.size(); i++) {
+      if (branches.get(i).getVerificationType() != null) {
+        protectedMask |= 1L << i;
+      }
+    }
+    int count = 0;
+    for (RecordedChangeset changeset : changesets) {
+      if ((changeset.getBranchMask() & protectedMask) != 0 && !(verifyOnlyNewCommits && changeset.isKnown())) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns {@code true}, if the given recorded branch name is the key of an unprotected branch.
+   */
+  public static boolean isBranchKey(String branch) {
+    return branch.startsWith(BRANCH_KEY_PREFIX);
+  }
+
+  /**
+   * Returns {@code true}, if the given owner of a replayed signature was an active scm user at the time of the push.
+   */
+  public static boolean isActiveOwner(String owner) {
+    return ACTIVE_OWNER.equals(owner);
+  }
+
+  private List<String> branchNames(long branchMask) {
+    List<String> names = new ArrayList<>(Long.bitCount(branchMask));
+    for (int i = 0; i < branches.size(); i++) {
+      if ((branchMask & (1L << i)) != 0) {
+        names.add(branches.get(i).getName());
+      }
+    }
+    return names;
+  }
+
+  private static Signature toSignature(byte flags) {
+    SignatureStatus status = SignatureStatus.values()[(flags & STATUS_MASK) - 1];
+    String owner = null;
+    if ((flags & OWNER_PRESENT) != 0) {
+      owner = (flags & OWNER_ACTIVE) != 0 ? ACTIVE_OWNER : INACTIVE_OWNER;
+    }
+    return new Signature("recorded", "gpg", status, owner, Collections.emptySet());
+  }
+
+  public static byte toFlags(Signature signature, boolean activeOwner) {
+    int flags = signature.getStatus().ordinal() + 1;
+    if (signature.getOwner().isPresent()) {
+      flags |= OWNER_PRESENT;
+      if (activeOwner) {
+        flags |= OWNER_ACTIVE;
+      }
+    }
+    return (byte) flags;
+  }
+
+  @Value
+  public static class RecordedBranch {
+    String name;
+    /**
+     * Verification type in effect for the branch or {@code null}, if the branch was not protected.
+     */
+    GpgVerificationType verificationType;
+  }
+
+  @Value
+  public static class RecordedChangeset {
+    /**
+     * Bit {@code i} is set, if the changeset was pushed to the branch with index {@code i}.
+     */
+    long branchMask;
+    boolean known;
+    byte[] signatures;
+  }
+}
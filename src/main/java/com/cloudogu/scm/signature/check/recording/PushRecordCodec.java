@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of {@link PushRecord}s. Numbers are written as variable length integers, so that a typical
+ * push with a handful of changesets takes only a few dozen bytes.
+ */
+public final class PushRecordCodec {
+
+  static final int MAGIC = 0x53435052;
+  static final int VERSION = 2;
+
+  private static final int NONE = 0xFF;
+
+  private PushRecordCodec() {
+  }
+
+  public static void writeHeader(DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  public static void readHeader(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("not a push recording");
+    }
+    int version = in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new UnsupportedPushRecordingException(version);
+    }
+  }
+
+  public static void write(DataOutput out, PushRecord record) throws IOException {
+    writeVarLong(out, record.getTimestamp());
+    out.writeUTF(record.getRepositoryId());
+    out.writeBoolean(record.isEnabled());
+    out.writeByte(record.getVerificationType().ordinal());
+    out.writeBoolean(record.isVerifyOnlyNewCommits());
+    writeVarLong(out, record.getVerificationTimeout());
+    out.writeByte(record.getTimeoutFallback().ordinal());
+
+    writeVarLong(out, record.getBranches().size());
+    for (PushRecord.RecordedBranch branch : record.getBranches()) {
+      out.writeUTF(branch.getName());
+      out.writeByte(branch.getVerificationType() == null ? NONE : branch.getVerificationType().ordinal());
+    }
+
+    writeVarLong(out, record.getChangesets().size());
+    for (PushRecord.RecordedChangeset changeset : record.getChangesets()) {
+      writeVarLong(out, changeset.getBranchMask());
+      out.writeBoolean(changeset.isKnown());
+      writeVarLong(out, changeset.getSignatures().length);
+      out.write(changeset.getSignatures());
+    }
+
+    out.writeByte(record.getOutcome().ordinal());
+    writeVarLong(out, record.getDurationNanos());
+  }
+
+  public static PushRecord read(DataInput in) throws IOException {
+    long timestamp = readVarLong(in);
+    String repositoryId = in.readUTF();
+    boolean enabled = in.readBoolean();
+    GpgVerificationType verificationType = GpgVerificationType.values()[in.readUnsignedByte()];
+    boolean verifyOnlyNewCommits = in.readBoolean();
+    int verificationTimeout = (int) readVarLong(in);
+    TimeoutFallback timeoutFallback = TimeoutFallback.values()[in.readUnsignedByte()];
+
+    int branchCount = (int) readVarLong(in);
+    List<PushRecord.RecordedBranch> branches = new ArrayList<>(branchCount);
+    for (int i = 0; i < branchCount; i++) {
+      String name = in.readUTF();
+      int type = in.readUnsignedByte();
+      branches.add(new PushRecord.RecordedBranch(name, type == NONE ? null : GpgVerificationType.values()[type]));
+    }
+
+    int changesetCount = (int) readVarLong(in);
+    List<PushRecord.RecordedChangeset> changesets = new ArrayList<>(changesetCount);
+    for (int i = 0; i < changesetCount; i++) {
+      long branchMask = readVarLong(in);
+      boolean known = in.readBoolean();
+      byte[] signatures = new byte[(int) readVarLong(in)];
+      in.readFully(signatures);
+      changesets.add(new PushRecord.RecordedChangeset(branchMask, known, signatures));
+    }
+
+    AuditDecision outcome = AuditDecision.values()[in.readUnsignedByte()];
+    long durationNanos = readVarLong(in);
+    return new PushRecord(
+      timestamp, repositoryId, enabled, verificationType, verifyOnlyNewCommits, verificationTimeout, timeoutFallback,
+      branches, changesets, outcome, durationNanos
+    );
+  }
+
+  static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed variable length integer");
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads the records of a push recording one by one. A truncated last record, e.g. of a recording which is still
+ * written, is treated as the end of the recording.
+ */
+public class PushRecordReader implements Closeable {
+
+  private final DataInputStream in;
+
+  public PushRecordReader(Path recording) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(recording)));
+    try {
+      PushRecordCodec.readHeader(in);
+    } catch (IOException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the next record or {@code null}, if the end of the recording is reached.
+   */
+  public PushRecord next() throws IOException {
+    try {
+      return PushRecordCodec.read(in);
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.PushedChangeset;
+import com.cloudogu.scm.signature.check.ScmUserIndex;
+import com.cloudogu.scm.signature.check.SignaturePolicy;
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.SCMContextProvider;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.Signature;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Records the anonymised shapes of all pushes to git repositories into compact binary files, if enabled in the global
+ * configuration, including pushes to repositories without an active signature check. The recordings can be fed back
+ * through the signature check to reproduce a production load profile or to simulate a new configuration. Names of
+ * unprotected branches are replaced by keyed hashes. The key is stored next to the recordings, so that a branch keeps
+ * its hash across restarts and a simulation can find the hashes of the branch names of a configuration.
+ */
+@Extension
+@Singleton
+public class PushRecorder implements ServletContextListener {
+
+  static final int QUEUE_SIZE = 1_000;
+  static final long MAX_SEGMENT_SIZE = 64L * 1024 * 1024;
+  static final int MAX_SEGMENTS = 16;
+  static final int MAX_BRANCHES = Long.SIZE;
+
+  private static final Logger LOG = LoggerFactory.getLogger(PushRecorder.class);
+  private static final String SEGMENT_PREFIX = "pushes-";
+  private static final String SEGMENT_SUFFIX = ".bin";
+  private static final String BRANCH_KEY_FILE = "branch-key";
+  private static final int BRANCH_KEY_LENGTH = 32;
+
+  private final Path directory;
+  private final ScmUserIndex userIndex;
+  private final Clock clock;
+  private final ExecutorService executor;
+  private final Counter droppedCounter;
+  private final Object branchHashLock = new Object();
+
+  private volatile HashFunction branchHash;
+
+  private Path segment;
+  private DataOutputStream out;
+
+  @Inject
+  public PushRecorder(SCMContextProvider contextProvider, ScmUserIndex userIndex, MeterRegistry meterRegistry) {
+    this(
+      contextProvider.resolve(Paths.get("signature-check", "recordings")),
+      userIndex,
+      meterRegistry,
+      Clock.systemUTC(),
+      new ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(QUEUE_SIZE),
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckRecorder-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  @VisibleForTesting
+  PushRecorder(Path directory, ScmUserIndex userIndex, MeterRegistry meterRegistry, Clock clock, ExecutorService executor) {
+    this.directory = directory;
+    this.userIndex = userIndex;
+    this.clock = clock;
+    this.executor = executor;
+    this.droppedCounter = meterRegistry.counter("scm.signature.check.recording.dropped");
+  }
+
+  /**
+   * Returns {@code true}, if pushes are recorded.
+   */
+  public boolean isRecording(SignaturePolicy policy) {
+    return policy.getGlobalConfig().isRecordPushes();
+  }
+
+  public void record(Repository repository,
+                     SignaturePolicy policy,
+                     Collection<PushedChangeset> pushedChangesets,
+                     Set<String> knownCommits,
+                     AuditDecision outcome,
+                     long durationNanos) {
+    if (!isRecording(policy)) {
+      return;
+    }
+
+    PushRecord record = createRecord(repository, policy, pushedChangesets, knownCommits, outcome, durationNanos);
+    try {
+      executor.execute(() -> append(record));
+    } catch (RejectedExecutionException e) {
+      droppedCounter.increment();
+    }
+  }
+
+  private PushRecord createRecord(Repository repository,
+                                  SignaturePolicy policy,
+                                  Collection<PushedChangeset> pushedChangesets,
+                                  Set<String> knownCommits,
+                                  AuditDecision outcome,
+                                  long durationNanos) {
+    Map<String, Integer> branchIndexes = new HashMap<>();
+    List<PushRecord.RecordedBranch> branches = new ArrayList<>();
+    List<PushRecord.RecordedChangeset> changesets = new ArrayList<>(pushedChangesets.size());
+    for (PushedChangeset pushed : pushedChangesets) {
+      long branchMask = 0;
+      for (String branch : pushed.getBranches()) {
+        Integer index = branchIndexes.get(branch);
+        if (index == null && branches.size() < MAX_BRANCHES) {
+          index = branches.size();
+          branchIndexes.put(branch, index);
+          branches.add(recordBranch(policy, branch));
+        }
+        if (index != null) {
+          branchMask |= 1L << index;
+        }
+      }
+
+      Collection<Signature> signatures = pushed.getChangeset().getSignatures() == null ? List.of() : pushed.getChangeset().getSignatures();
+      byte[] flags = new byte[signatures.size()];
+      int i = 0;
+      for (Signature signature : signatures) {
+        flags[i++] = PushRecord.toFlags(signature, signature.getOwner().map(userIndex::isActiveUser).orElse(false));
+      }
+      changesets.add(new PushRecord.RecordedChangeset(branchMask, knownCommits.contains(pushed.getChangeset().getId()), flags));
+    }
+
+    BaseSignatureConfig config = policy.getConfig();
+    return new PushRecord(
+      clock.millis(),
+      repository.getId(),
+      policy.isEnabled(),
+      config.getVerificationType(),
+      config.isVerifyOnlyNewCommits(),
+      config.getVerificationTimeout(),
+      config.getTimeoutFallback(),
+      branches,
+      changesets,
+      outcome,
+      durationNanos
+    );
+  }
+
+  private PushRecord.RecordedBranch recordBranch(SignaturePolicy policy, String branch) {
+    GpgVerificationType verificationType = policy.resolveVerificationType(List.of(branch));
+    if (verificationType != null) {
+      return new PushRecord.RecordedBranch(branch, verificationType);
+    }
+    return new PushRecord.RecordedBranch(branchKey(branch), null);
+  }
+
+  /**
+   * Returns the key which replaces the name of the given branch in the recordings, if the branch is not protected.
+   */
+  public String branchKey(String branch) {
+    return PushRecord.BRANCH_KEY_PREFIX + getBranchHash().hashString(branch, StandardCharsets.UTF_8).toString().substring(0, 16);
+  }
+
+  private HashFunction getBranchHash() {
+    HashFunction current = branchHash;
+    if (current == null) {
+      synchronized (branchHashLock) {
+        current = branchHash;
+        if (current == null) {
+          current = Hashing.hmacSha256(readOrCreateBranchKey());
+          branchHash = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private byte[] readOrCreateBranchKey() {
+    Path file = directory.resolve(BRANCH_KEY_FILE);
+    try {
+      if (Files.exists(file)) {
+        byte[] key = Files.readAllBytes(file);
+        if (key.length == BRANCH_KEY_LENGTH) {
+          return key;
+        }
+        LOG.warn("ignoring branch key {} of unexpected length, recorded branch keys change", file);
+      }
+      byte[] key = new byte[BRANCH_KEY_LENGTH];
+      new SecureRandom().nextBytes(key);
+      Files.createDirectories(directory);
+      Files.write(file, key);
+      return key;
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read branch key " + file, e);
+    }
+  }
+
+  private synchronized void append(PushRecord record) {
+    try {
+      PushRecordCodec.write(currentSegment(), record);
+      if (executor instanceof ThreadPoolExecutor pool && !pool.getQueue().isEmpty()) {
+        return;
+      }
+      out.flush();
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("failed to record push to repository {}", record.getRepositoryId(), e);
+      closeSegment();
+    }
+  }
+
+  private DataOutputStream currentSegment() throws IOException {
+    // the stream counts every byte of the segment, including those which are still buffered
+    if (out != null && out.size() < MAX_SEGMENT_SIZE) {
+      return out;
+    }
+    closeSegment();
+    Files.createDirectories(directory);
+    segment = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, clock.millis(), SEGMENT_SUFFIX));
+    out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(segment)));
+    PushRecordCodec.writeHeader(out);
+    applyRetention();
+    return out;
+  }
+
+  private void closeSegment() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        LOG.warn("failed to close push recording {}", segment, e);
+      }
+      out = null;
+    }
+  }
+
+  private void applyRetention() throws IOException {
+    List<Path> segments = getSegments();
+    for (int i = 0; i < segments.size() - MAX_SEGMENTS; i++) {
+      Files.delete(segments.get(i));
+    }
+  }
+
+  /**
+   * Returns the existing recordings, oldest first.
+   */
+  public List<Path> getSegments() throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+        .filter(file -> {
+          String name = file.getFileName().toString();
+          return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+        })
+        .sorted()
+        .toList();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Returns the time at which the given recording was started.
+   */
+  public static long getStart(Path segment) {
+    String name = segment.getFileName().toString();
+    return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Flushes buffered records, so that the current recording can be read.
+   */
+  public synchronized void flush() throws IOException {
+    if (out != null) {
+      out.flush();
+    }
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    // segments are opened with the first record
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+    try {
+      if (executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        synchronized (this) {
+          closeSegment();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.rejection;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlTransient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rejection events of one time bucket in the order of their occurrence. The position of an event inside the bucket
+ * never changes, the secondary indexes by repository and user map to these positions and are rebuilt after loading.
+ */
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "rejections")
+public class RejectionBucket {
+
+  @XmlElement(name = "rejection")
+  private List<RejectionEvent> events = new ArrayList<>();
+
+  @XmlTransient
+  private Map<String, List<Integer>> byRepository;
+  @XmlTransient
+  private Map<String, List<Integer>> byUser;
+
+  List<RejectionEvent> getEvents() {
+    return events;
+  }
+
+  void add(RejectionEvent event) {
+    events.add(event);
+    if (byRepository != null) {
+      index(event, events.size() - 1);
+    }
+  }
+
+  /**
+   * Returns the positions of the events matching the given filters in ascending order. Filters with a {@code null}
+   * value are ignored.
+   */
+  List<Integer> positions(String repositoryId, String user) {
+    if (byRepository == null) {
+      byRepository = new HashMap<>();
+      byUser = new HashMap<>();
+      for (int i = 0; i < events.size(); i++) {
+        index(events.get(i), i);
+      }
+    }
+
+    if (repositoryId == null && user == null) {
+      List<Integer> all = new ArrayList<>(events.size());
+      for (int i = 0; i < events.size(); i++) {
+        all.add(i);
+      }
+      return all;
+    }
+    if (user == null) {
+      return byRepository.getOrDefault(repositoryId, List.of());
+    }
+    if (repositoryId == null) {
+      return byUser.getOrDefault(user, List.of());
+    }
+
+    List<Integer> positions = new ArrayList<>();
+    for (Integer position : byRepository.getOrDefault(repositoryId, List.of())) {
+      if (user.equals(events.get(position).getUser())) {
+        positions.add(position);
+      }
+    }
+    return positions;
+  }
+
+  private void index(RejectionEvent event, int position) {
+    byRepository.computeIfAbsent(event.getRepositoryId(), key -> new ArrayList<>()).add(position);
+    if (event.getUser() != null) {
+      byUser.computeIfAbsent(event.getUser(), key -> new ArrayList<>()).add(position);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.rejection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Summaries of all stored time buckets, oldest first. Queries use the summaries to skip buckets without matching
+ * repositories or users, without loading them.
+ */
+@Data
+@NoArgsConstructor
+@XmlAccessorType(XmlAccessType.FIELD)
+@XmlRootElement(name = "rejection-index")
+public class RejectionBucketIndex {
+
+  @XmlElement(name = "bucket")
+  private List<Summary> buckets = new ArrayList<>();
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @XmlAccessorType(XmlAccessType.FIELD)
+  public static class Summary {
+
+    private long start;
+    private int count;
+
+    @XmlElement(name = "repository")
+    private Set<String> repositoryIds = new HashSet<>();
+
+    @XmlElement(name = "user")
+    private Set<String> users = new HashSet<>();
+
+    boolean matches(String repositoryId, String user) {
+      return (repositoryId == null || repositoryIds.contains(repositoryId))
+        && (user == null || users.contains(user));
+    }
+  }
+}
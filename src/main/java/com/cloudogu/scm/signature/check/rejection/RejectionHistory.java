@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.rejection;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent history of rejected pushes. Events are stored in hourly buckets; a small index of bucket summaries
+ * together with per bucket indexes by repository and user allows paging through millions of events without a
+ * linear scan. Events are written in batches in the background, so that recording a rejection does not delay the hook.
+ */
+@Extension
+@Singleton
+public class RejectionHistory implements ServletContextListener {
+
+  public static final String STORE_NAME = "signature-check-rejections";
+  public static final String INDEX_STORE_NAME = "signature-check-rejection-index";
+
+  static final long BUCKET_SIZE = Duration.ofHours(1).toMillis();
+  static final Duration RETENTION = Duration.ofDays(90);
+  static final int MAX_LIMIT = 500;
+
+  private static final Logger LOG = LoggerFactory.getLogger(RejectionHistory.class);
+
+  private final DataStore<RejectionBucket> bucketStore;
+  private final ConfigurationStore<RejectionBucketIndex> indexStore;
+  private final Clock clock;
+  private final ExecutorService executor;
+  private final Cache<Long, RejectionBucket> buckets = CacheBuilder.newBuilder().maximumSize(48).build();
+  private final Queue<RejectionEvent> pending = new ConcurrentLinkedQueue<>();
+
+  private RejectionBucketIndex index;
+
+  @Inject
+  public RejectionHistory(DataStoreFactory dataStoreFactory, ConfigurationStoreFactory configurationStoreFactory) {
+    this(
+      dataStoreFactory,
+      configurationStoreFactory,
+      Clock.systemUTC(),
+      Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckRejections-%d").setDaemon(true).build()
+      )
+    );
+  }
+
+  @VisibleForTesting
+  RejectionHistory(DataStoreFactory dataStoreFactory, ConfigurationStoreFactory configurationStoreFactory, Clock clock, ExecutorService executor) {
+    this.bucketStore = dataStoreFactory.withType(RejectionBucket.class).withName(STORE_NAME).build();
+    this.indexStore = configurationStoreFactory.withType(RejectionBucketIndex.class).withName(INDEX_STORE_NAME).build();
+    this.clock = clock;
+    this.executor = executor;
+  }
+
+  public void record(Repository repository, String user, String changesetId, String code, String message) {
+    RejectionEvent event = new RejectionEvent(
+      clock.millis(),
+      repository.getId(),
+      repository.getNamespace(),
+      repository.getName(),
+      user,
+      changesetId,
+      code,
+      message
+    );
+    pending.add(event);
+    executor.execute(this::writePending);
+  }
+
+  /**
+   * Writes all queued events, so that each touched bucket and the index are stored only once per drain.
+   */
+  private synchronized void writePending() {
+    Map<Long, RejectionBucket> touched = new LinkedHashMap<>();
+    RejectionBucketIndex currentIndex = getIndex();
+    for (RejectionEvent event = pending.poll(); event != null; event = pending.poll()) {
+      long start = event.getTimestamp() - event.getTimestamp() % BUCKET_SIZE;
+      RejectionBucketIndex.Summary summary = findSummary(currentIndex, start);
+      if (summary == null) {
+        summary = new RejectionBucketIndex.Summary();
+        summary.setStart(start);
+        currentIndex.getBuckets().add(summary);
+        currentIndex.getBuckets().sort((a, b) -> Long.compare(a.getStart(), b.getStart()));
+        removeExpiredBuckets(currentIndex, touched);
+      }
+
+      touched.computeIfAbsent(start, this::loadBucket).add(event);
+      summary.setCount(summary.getCount() + 1);
+      summary.getRepositoryIds().add(event.getRepositoryId());
+      if (event.getUser() != null) {
+        summary.getUsers().add(event.getUser());
+      }
+    }
+    if (touched.isEmpty()) {
+      return;
+    }
+
+    try {
+      touched.forEach((start, bucket) -> bucketStore.put(key(start), bucket));
+      indexStore.set(currentIndex);
+    } catch (RuntimeException e) {
+      LOG.warn("failed to store {} buckets of rejected pushes", touched.size(), e);
+      // drop the cached state, so that the next drain continues with what has actually been stored
+      index = null;
+      buckets.invalidateAll();
+    }
+  }
+
+  /**
+   * Returns the newest events matching the query. The cursor of the result continues with the next older events.
+   */
+  public synchronized RejectionPage query(RejectionQuery query) {
+    int limit = Math.max(1, Math.min(query.getLimit(), MAX_LIMIT));
+    Cursor cursor = Cursor.parse(query.getCursor());
+    List<RejectionEvent> events = new ArrayList<>(limit);
+    Cursor last = null;
+
+    List<RejectionBucketIndex.Summary> summaries = getIndex().getBuckets();
+    for (int s = summaries.size() - 1; s >= 0; s--) {
+      RejectionBucketIndex.Summary summary = summaries.get(s);
+      long start = summary.getStart();
+      if (query.getFrom() != null && start + BUCKET_SIZE <= query.getFrom()) {
+        break;
+      }
+      if (cursor != null && start > cursor.bucket
+        || query.getTo() != null && start > query.getTo()
+        || !summary.matches(query.getRepositoryId(), query.getUser())) {
+        continue;
+      }
+
+      RejectionBucket bucket = loadBucket(start);
+      List<Integer> positions = bucket.positions(query.getRepositoryId(), query.getUser());
+      for (int i = positions.size() - 1; i >= 0; i--) {
+        int position = positions.get(i);
+        if (cursor != null && start == cursor.bucket && position >= cursor.position) {
+          continue;
+        }
+        RejectionEvent event = bucket.getEvents().get(position);
+        if (!isInRange(event, query)) {
+          continue;
+        }
+        if (events.size() == limit) {
+          return new RejectionPage(events, last.toString());
+        }
+        events.add(event);
+        last = new Cursor(start, position);
+      }
+    }
+    return new RejectionPage(events, null);
+  }
+
+  private boolean isInRange(RejectionEvent event, RejectionQuery query) {
+    return (query.getFrom() == null || event.getTimestamp() >= query.getFrom())
+      && (query.getTo() == null || event.getTimestamp() <= query.getTo());
+  }
+
+  private RejectionBucketIndex getIndex() {
+    if (index == null) {
+      index = indexStore.getOptional().orElseGet(RejectionBucketIndex::new);
+    }
+    return index;
+  }
+
+  private RejectionBucketIndex.Summary findSummary(RejectionBucketIndex currentIndex, long start) {
+    List<RejectionBucketIndex.Summary> summaries = currentIndex.getBuckets();
+    for (int i = summaries.size() - 1; i >= 0; i--) {
+      if (summaries.get(i).getStart() == start) {
+        return summaries.get(i);
+      }
+    }
+    return null;
+  }
+
+  private void removeExpiredBuckets(RejectionBucketIndex currentIndex, Map<Long, RejectionBucket> touched) {
+    long oldest = clock.millis() - RETENTION.toMillis();
+    Iterator<RejectionBucketIndex.Summary> iterator = currentIndex.getBuckets().iterator();
+    while (iterator.hasNext()) {
+      RejectionBucketIndex.Summary summary = iterator.next();
+      if (summary.getStart() + BUCKET_SIZE > oldest) {
+        break;
+      }
+      bucketStore.remove(key(summary.getStart()));
+      buckets.invalidate(summary.getStart());
+      touched.remove(summary.getStart());
+      iterator.remove();
+    }
+  }
+
+  private RejectionBucket loadBucket(long start) {
+    RejectionBucket bucket = buckets.getIfPresent(start);
+    if (bucket == null) {
+      bucket = bucketStore.get(key(start));
+      if (bucket == null) {
+        bucket = new RejectionBucket();
+      }
+      buckets.put(start, bucket);
+    }
+    return bucket;
+  }
+
+  private static String key(long start) {
+    return Long.toString(start);
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    // nothing to initialize
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+
+  private static final class Cursor {
+
+    private final long bucket;
+    private final int position;
+
+    private Cursor(long bucket, int position) {
+      this.bucket = bucket;
+      this.position = position;
+    }
+
+    static Cursor parse(String value) {
+      if (value == null || value.isEmpty()) {
+        return null;
+      }
+      int separator = value.indexOf('-');
+      if (separator < 0) {
+        throw new IllegalArgumentException("invalid cursor " + value);
+      }
+      return new Cursor(Long.parseLong(value.substring(0, separator)), Integer.parseInt(value.substring(separator + 1)));
+    }
+
+    @Override
+    public String toString() {
+      return bucket + "-" + position;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.rejection;
+
+import com.cloudogu.scm.signature.check.SignatureCheckPermissions;
+import de.otto.edison.hal.Links;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import sonia.scm.NotFoundException;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static de.otto.edison.hal.Link.link;
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Path("v2/signature-check/rejections")
+public class RejectionHistoryResource {
+
+  private static final String CURSOR_PATTERN = "\\d+-\\d+";
+
+  private final RejectionHistory rejectionHistory;
+  private final RepositoryManager repositoryManager;
+  private final ScmPathInfoStore scmPathInfoStore;
+
+  @Inject
+  public RejectionHistoryResource(RejectionHistory rejectionHistory, RepositoryManager repositoryManager, ScmPathInfoStore scmPathInfoStore) {
+    this.rejectionHistory = rejectionHistory;
+    this.repositoryManager = repositoryManager;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Gets rejected pushes",
+    description = "Gets the rejected pushes of all repositories, newest first",
+    tags = "Signature Check Plugin",
+    operationId = "get_rejections"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid query")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response getRejections(@QueryParam("user") String user,
+                                @QueryParam("from") Long from,
+                                @QueryParam("to") Long to,
+                                @QueryParam("cursor") @Pattern(regexp = CURSOR_PATTERN) String cursor,
+                                @QueryParam("limit") @DefaultValue("50") @Min(1) @Max(RejectionHistory.MAX_LIMIT) int limit) {
+    SignatureCheckPermissions.checkGlobal();
+    RejectionPage page = rejectionHistory.query(new RejectionQuery(null, user, from, to, cursor, limit));
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), RejectionHistoryResource.class);
+    return createResponse(page, linkBuilder.method("getRejections").parameters().href(), user, from, to, limit);
+  }
+
+  @GET
+  @Path("/{namespace}/{name}")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Gets rejected pushes of a repository",
+    description = "Gets the rejected pushes of the given repository, newest first",
+    tags = "Signature Check Plugin",
+    operationId = "get_repository_rejections"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid query")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(responseCode = "404", description = "Repository not found")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response getRepositoryRejections(@PathParam("namespace") String namespace,
+                                          @PathParam("name") String name,
+                                          @QueryParam("user") String user,
+                                          @QueryParam("from") Long from,
+                                          @QueryParam("to") Long to,
+                                          @QueryParam("cursor") @Pattern(regexp = CURSOR_PATTERN) String cursor,
+                                          @QueryParam("limit") @DefaultValue("50") @Min(1) @Max(RejectionHistory.MAX_LIMIT) int limit) {
+    Repository repository = repositoryManager.get(new NamespaceAndName(namespace, name));
+    if (repository == null) {
+      throw new NotFoundException(Repository.class, namespace + "/" + name);
+    }
+    SignatureCheckPermissions.checkRepository(repository);
+
+    RejectionPage page = rejectionHistory.query(new RejectionQuery(repository.getId(), user, from, to, cursor, limit));
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), RejectionHistoryResource.class);
+    return createResponse(page, linkBuilder.method("getRepositoryRejections").parameters(namespace, name).href(), user, from, to, limit);
+  }
+
+  private Response createResponse(RejectionPage page, String self, String user, Long from, Long to, int limit) {
+    List<RejectionsDto.RejectionDto> rejections = page.getEvents().stream()
+      .map(event -> new RejectionsDto.RejectionDto(
+        Instant.ofEpochMilli(event.getTimestamp()),
+        event.getNamespace(),
+        event.getName(),
+        event.getUser(),
+        event.getChangesetId(),
+        event.getCode(),
+        event.getMessage()
+      ))
+      .toList();
+
+    RejectionsDto dto = new RejectionsDto(rejections, page.getNextCursor());
+    Links.Builder linksBuilder = linkingTo().self(self);
+    if (page.getNextCursor() != null) {
+      linksBuilder.single(link("next", self + query(user, from, to, limit, page.getNextCursor())));
+    }
+    dto.add(linksBuilder.build());
+    return Response.ok().entity(dto).build();
+  }
+
+  private String query(String user, Long from, Long to, int limit, String cursor) {
+    StringBuilder query = new StringBuilder("?limit=").append(limit).append("&cursor=").append(cursor);
+    if (user != null) {
+      query.append("&user=").append(URLEncoder.encode(user, StandardCharsets.UTF_8));
+    }
+    if (from != null) {
+      query.append("&from=").append(from);
+    }
+    if (to != null) {
+      query.append("&to=").append(to);
+    }
+    return query.toString();
+  }
+}
@@ -0,0 +1,521 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.simulation;
+
+import com.cloudogu.scm.signature.check.ChangesetVerifier;
+import com.cloudogu.scm.signature.check.InvalidSignatureException;
+import com.cloudogu.scm.signature.check.ScmUserSignatureVerifier;
+import com.cloudogu.scm.signature.check.SignaturePolicy;
+import com.cloudogu.scm.signature.check.Verifier;
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import com.cloudogu.scm.signature.check.recording.PushRecord;
+import com.cloudogu.scm.signature.check.recording.PushRecordReader;
+import com.cloudogu.scm.signature.check.recording.PushRecorder;
+import com.cloudogu.scm.signature.check.recording.UnsupportedPushRecordingException;
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Replays recorded pushes against a configuration, which is not yet stored, to estimate its outcome and latency.
+ * Unprotected branches are only recorded by their keys, so that they are matched by the branch names of the
+ * configuration through their keys. Pushes to such branches cannot be simulated against branch rules with wildcards
+ * and are counted separately.
+ */
+@Singleton
+public class ConfigSimulator {
+
+  public static final int MAX_DAYS = 28;
+  static final int MAX_RECORDS = 100_000;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ConfigSimulator.class);
+  private static final SimulatedPush NOT_SIMULATABLE = new SimulatedPush(false, null, 0, 0, 0);
+
+  private final PushRecorder pushRecorder;
+  private final SignatureConfigService signatureConfigService;
+  private final NamespaceManager namespaceManager;
+  private final RepositoryManager repositoryManager;
+  private final ConfigEvaluator configEvaluator;
+  private final ChangesetVerifier changesetVerifier;
+  private final Clock clock;
+  private final ForkJoinPool pool;
+
+  @Inject
+  public ConfigSimulator(PushRecorder pushRecorder,
+                         SignatureConfigService signatureConfigService,
+                         NamespaceManager namespaceManager,
+                         RepositoryManager repositoryManager,
+                         ConfigEvaluator configEvaluator,
+                         Set<Verifier> verifiers) {
+    this(
+      pushRecorder,
+      signatureConfigService,
+      namespaceManager,
+      repositoryManager,
+      configEvaluator,
+      replayVerifier(verifiers),
+      Clock.systemUTC(),
+      ForkJoinPool.commonPool()
+    );
+  }
+
+  @VisibleForTesting
+  ConfigSimulator(PushRecorder pushRecorder,
+                  SignatureConfigService signatureConfigService,
+                  NamespaceManager namespaceManager,
+                  RepositoryManager repositoryManager,
+                  ConfigEvaluator configEvaluator,
+                  ChangesetVerifier changesetVerifier,
+                  Clock clock,
+                  ForkJoinPool pool) {
+    this.pushRecorder = pushRecorder;
+    this.signatureConfigService = signatureConfigService;
+    this.namespaceManager = namespaceManager;
+    this.repositoryManager = repositoryManager;
+    this.configEvaluator = configEvaluator;
+    this.changesetVerifier = changesetVerifier;
+    this.clock = clock;
+    this.pool = pool;
+  }
+
+  private static ChangesetVerifier replayVerifier(Set<Verifier> verifiers) {
+    // recorded signatures only keep whether their owner was an active user at the time of the push
+    Set<Verifier> replayVerifiers = new HashSet<>();
+    for (Verifier verifier : verifiers) {
+      replayVerifiers.add(verifier instanceof ScmUserSignatureVerifier ? new ScmUserSignatureVerifier(PushRecord::isActiveOwner) : verifier);
+    }
+    return new ChangesetVerifier(replayVerifiers);
+  }
+
+  public SimulationResult simulateGlobal(GlobalSignatureConfig candidate, int days) {
+    Map<String, NamespaceSignatureConfig> namespaceConfigs = new HashMap<>();
+    return simulate(candidate, repositoryManager.getAll(), days, repository -> configEvaluator.evaluate(
+      candidate,
+      namespaceConfigs.computeIfAbsent(repository.getNamespace(), this::getNamespaceConfig),
+      signatureConfigService.getRepoConfig(repository)
+    ));
+  }
+
+  public SimulationResult simulateNamespace(Namespace namespace, NamespaceSignatureConfig candidate, int days) {
+    GlobalSignatureConfig globalConfig = signatureConfigService.getGlobalConfig();
+    List<Repository> repositories = repositoryManager.getAll().stream()
+      .filter(repository -> repository.getNamespace().equals(namespace.getNamespace()))
+      .toList();
+    return simulate(globalConfig, repositories, days, repository -> configEvaluator.evaluate(
+      globalConfig,
+      candidate,
+      signatureConfigService.getRepoConfig(repository)
+    ));
+  }
+
+  public SimulationResult simulateRepository(Repository repository, RepositorySignatureConfig candidate, int days) {
+    GlobalSignatureConfig globalConfig = signatureConfigService.getGlobalConfig();
+    NamespaceSignatureConfig namespaceConfig = getNamespaceConfig(repository.getNamespace());
+    return simulate(globalConfig, List.of(repository), days, r -> configEvaluator.evaluate(globalConfig, namespaceConfig, candidate));
+  }
+
+  private NamespaceSignatureConfig getNamespaceConfig(String namespace) {
+    return namespaceManager.get(namespace)
+      .map(signatureConfigService::getNamespaceConfig)
+      .orElseGet(NamespaceSignatureConfig::new);
+  }
+
+  private SimulationResult simulate(GlobalSignatureConfig globalConfig,
+                                    Collection<Repository> repositories,
+                                    int days,
+                                    Function<Repository, BaseSignatureConfig> configs) {
+    Map<String, Repository> inScope = new HashMap<>();
+    for (Repository repository : repositories) {
+      inScope.put(repository.getId(), repository);
+    }
+
+    RecordedPushes recorded = readRecords(inScope.keySet(), days);
+    // configs are read on the calling thread, the replay does not touch any store
+    List<RepositoryReplay> replays = new ArrayList<>(recorded.getRecords().size());
+    recorded.getRecords().forEach((repositoryId, records) -> {
+      Repository repository = inScope.get(repositoryId);
+      BaseSignatureConfig config = configs.apply(repository);
+      replays.add(new RepositoryReplay(repository, config, branchNames(config), hasWildcardRules(config), records));
+    });
+
+    if (replays.isEmpty()) {
+      return new SimulationTotals(0).toResult(0);
+    }
+    SimulationTotals totals = pool.invoke(new SimulationTask(globalConfig, replays, recorded.getNanosPerChangeset(), 0, replays.size()));
+    return totals.toResult(replays.size());
+  }
+
+  private RecordedPushes readRecords(Set<String> repositoryIds, int days) {
+    long cutoff = clock.millis() - TimeUnit.DAYS.toMillis(days);
+    Deque<PushRecord> records = new ArrayDeque<>();
+    try {
+      pushRecorder.flush();
+      List<Path> segments = pushRecorder.getSegments();
+      for (int i = 0; i < segments.size(); i++) {
+        if (i + 1 < segments.size() && PushRecorder.getStart(segments.get(i + 1)) < cutoff) {
+          continue;
+        }
+        try (PushRecordReader reader = new PushRecordReader(segments.get(i))) {
+          for (PushRecord record = reader.next(); record != null; record = reader.next()) {
+            if (record.getTimestamp() >= cutoff && repositoryIds.contains(record.getRepositoryId())) {
+              records.addLast(record);
+              if (records.size() > MAX_RECORDS) {
+                records.removeFirst();
+              }
+            }
+          }
+        } catch (UnsupportedPushRecordingException e) {
+          // recordings of older versions did not keep the keys of unprotected branches across restarts
+          LOG.info("skipping push recording {} of another version", segments.get(i));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read push recordings", e);
+    }
+
+    Map<String, List<PushRecord>> byRepository = new LinkedHashMap<>();
+    long verifiedChangesets = 0;
+    long verificationNanos = 0;
+    for (PushRecord record : records) {
+      byRepository.computeIfAbsent(record.getRepositoryId(), id -> new ArrayList<>()).add(record);
+      int verified = record.countVerifiedChangesets();
+      if (verified > 0) {
+        verifiedChangesets += verified;
+        verificationNanos += record.getDurationNanos();
+      }
+    }
+    return new RecordedPushes(byRepository, verifiedChangesets == 0 ? 0 : verificationNanos / verifiedChangesets);
+  }
+
+  /**
+   * Maps the keys of all branch names of the configuration to the names, so that recorded unprotected branches can be
+   * matched by their names.
+   */
+  private Map<String, String> branchNames(BaseSignatureConfig config) {
+    Map<String, String> branchNames = new HashMap<>();
+    if (config.getProtectedBranches() != null) {
+      for (String branch : config.getProtectedBranches()) {
+        branchNames.put(pushRecorder.branchKey(branch), branch);
+      }
+    }
+    if (config.getBranchRules() != null) {
+      for (BranchRule rule : config.getBranchRules()) {
+        if (!isWildcard(rule.getPattern())) {
+          branchNames.put(pushRecorder.branchKey(rule.getPattern()), rule.getPattern());
+        }
+      }
+    }
+    return branchNames;
+  }
+
+  private static boolean hasWildcardRules(BaseSignatureConfig config) {
+    if (config.getBranchRules() == null) {
+      return false;
+    }
+    for (BranchRule rule : config.getBranchRules()) {
+      if (isWildcard(rule.getPattern())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isWildcard(String pattern) {
+    return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+  }
+
+  private SimulationTotals replay(GlobalSignatureConfig globalConfig, RepositoryReplay replay, long fallbackNanosPerChangeset) {
+    SignaturePolicy policy = new SignaturePolicy(globalConfig, replay.getConfig(), changesetVerifier);
+    SimulationTotals totals = new SimulationTotals(replay.getRecords().size());
+    for (PushRecord record : replay.getRecords()) {
+      totals.add(record, replay(replay, policy, record, fallbackNanosPerChangeset));
+    }
+    return totals;
+  }
+
+  private SimulatedPush replay(RepositoryReplay replay, SignaturePolicy policy, PushRecord record, long fallbackNanosPerChangeset) {
+    if (!policy.isEnabled()) {
+      return new SimulatedPush(true, null, 0, 0, 0);
+    }
+
+    Repository repository = replay.getRepository();
+    List<Changeset> changesets = record.toChangesets("simulated-");
+    for (Changeset changeset : changesets) {
+      List<String> branches = new ArrayList<>(changeset.getBranches().size());
+      for (String branch : changeset.getBranches()) {
+        String name = PushRecord.isBranchKey(branch) ? replay.getBranchNames().get(branch) : branch;
+        if (name == null && replay.isWildcardRules()) {
+          // the unknown name of the branch could match a wildcard
+          return NOT_SIMULATABLE;
+        }
+        branches.add(name == null ? branch : name);
+      }
+      changeset.setBranches(branches);
+    }
+    List<Changeset> candidates = new ArrayList<>(changesets.size());
+    List<GpgVerificationType> verificationTypes = new ArrayList<>(changesets.size());
+    Map<GpgVerificationType, List<Changeset>> changesetsByType = new EnumMap<>(GpgVerificationType.class);
+    for (int i = 0; i < changesets.size(); i++) {
+      if (policy.isVerifyOnlyNewCommits() && record.getChangesets().get(i).isKnown()) {
+        continue;
+      }
+      Changeset changeset = changesets.get(i);
+      GpgVerificationType verificationType = policy.resolveVerificationType(changeset.getBranches());
+      if (verificationType != null) {
+        candidates.add(changeset);
+        verificationTypes.add(verificationType);
+        changesetsByType.computeIfAbsent(verificationType, type -> new ArrayList<>()).add(changeset);
+      }
+    }
+
+    // the recorded duration is the best estimate of the verification cost of a single changeset in this repository
+    int recordedChangesets = record.countVerifiedChangesets();
+    long nanosPerChangeset = recordedChangesets > 0 ? record.getDurationNanos() / recordedChangesets : fallbackNanosPerChangeset;
+    int withinBudget = candidates.size();
+    if (policy.getBudgetNanos() > 0 && nanosPerChangeset > 0) {
+      withinBudget = (int) Math.min(withinBudget, policy.getBudgetNanos() / nanosPerChangeset + 1);
+    }
+
+    int started = 0;
+    try {
+      changesetsByType.forEach((verificationType, typed) ->
+        policy.getVerifierChain(verificationType).verifyCheap(repository, typed)
+      );
+      while (started < withinBudget) {
+        int index = started++;
+        policy.getVerifierChain(verificationTypes.get(index)).verifyExpensive(repository, candidates.get(index));
+      }
+    } catch (InvalidSignatureException e) {
+      return new SimulatedPush(true, RejectionReason.of(e.getReason()), 0, 0, started * nanosPerChangeset);
+    }
+
+    int deferred = candidates.size() - withinBudget;
+    if (deferred > 0 && policy.getConfig().getTimeoutFallback() == TimeoutFallback.REJECT) {
+      return new SimulatedPush(true, RejectionReason.TIMEOUT, 0, 0, withinBudget * nanosPerChangeset);
+    }
+    return new SimulatedPush(true, null, withinBudget, deferred, withinBudget * nanosPerChangeset);
+  }
+
+  private final class SimulationTask extends RecursiveTask<SimulationTotals> {
+
+    private final GlobalSignatureConfig globalConfig;
+    private final List<RepositoryReplay> replays;
+    private final long fallbackNanosPerChangeset;
+    private final int from;
+    private final int to;
+
+    private SimulationTask(GlobalSignatureConfig globalConfig, List<RepositoryReplay> replays, long fallbackNanosPerChangeset, int from, int to) {
+      this.globalConfig = globalConfig;
+      this.replays = replays;
+      this.fallbackNanosPerChangeset = fallbackNanosPerChangeset;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected SimulationTotals compute() {
+      if (to - from == 1) {
+        return replay(globalConfig, replays.get(from), fallbackNanosPerChangeset);
+      }
+      int middle = (from + to) >>> 1;
+      SimulationTask left = new SimulationTask(globalConfig, replays, fallbackNanosPerChangeset, from, middle);
+      left.fork();
+      SimulationTotals right = new SimulationTask(globalConfig, replays, fallbackNanosPerChangeset, middle, to).compute();
+      return left.join().merge(right);
+    }
+  }
+
+  private static final class SimulationTotals {
+
+    private long[] recordedLatencies;
+    private long[] estimatedLatencies;
+    private int pushes;
+    private int notSimulatable;
+    private long from = Long.MAX_VALUE;
+    private long to;
+    private int accepted;
+    private int rejected;
+    private int newlyRejected;
+    private int newlyAccepted;
+    private long verifiedChangesets;
+    private long deferredChangesets;
+    private final Map<RejectionReason, Integer> rejections = new EnumMap<>(RejectionReason.class);
+
+    private SimulationTotals(int capacity) {
+      this.recordedLatencies = new long[capacity];
+      this.estimatedLatencies = new long[capacity];
+    }
+
+    private void add(PushRecord record, SimulatedPush push) {
+      if (!push.isSimulatable()) {
+        notSimulatable++;
+        return;
+      }
+      recordedLatencies[pushes] = record.getDurationNanos();
+      estimatedLatencies[pushes] = push.getLatencyNanos();
+      pushes++;
+      from = Math.min(from, record.getTimestamp());
+      to = Math.max(to, record.getTimestamp());
+      boolean recordedAccepted = record.getOutcome() != AuditDecision.REJECTED;
+      if (push.getRejectionReason() == null) {
+        accepted++;
+        verifiedChangesets += push.getVerified();
+        deferredChangesets += push.getDeferred();
+        if (!recordedAccepted) {
+          newlyAccepted++;
+        }
+      } else {
+        rejected++;
+        rejections.merge(push.getRejectionReason(), 1, Integer::sum);
+        if (recordedAccepted) {
+          newlyRejected++;
+        }
+      }
+    }
+
+    private SimulationTotals merge(SimulationTotals other) {
+      recordedLatencies = concat(recordedLatencies, pushes, other.recordedLatencies, other.pushes);
+      estimatedLatencies = concat(estimatedLatencies, pushes, other.estimatedLatencies, other.pushes);
+      pushes += other.pushes;
+      notSimulatable += other.notSimulatable;
+      from = Math.min(from, other.from);
+      to = Math.max(to, other.to);
+      accepted += other.accepted;
+      rejected += other.rejected;
+      newlyRejected += other.newlyRejected;
+      newlyAccepted += other.newlyAccepted;
+      verifiedChangesets += other.verifiedChangesets;
+      deferredChangesets += other.deferredChangesets;
+      other.rejections.forEach((reason, count) -> rejections.merge(reason, count, Integer::sum));
+      return this;
+    }
+
+    private static long[] concat(long[] first, int firstLength, long[] second, int secondLength) {
+      long[] result = Arrays.copyOf(first, firstLength + secondLength);
+      System.arraycopy(second, 0, result, firstLength, secondLength);
+      return result;
+    }
+
+    private SimulationResult toResult(int repositories) {
+      return new SimulationResult(
+        repositories,
+        pushes,
+        notSimulatable,
+        pushes == 0 ? 0 : from,
+        to,
+        accepted,
+        rejected,
+        newlyRejected,
+        newlyAccepted,
+        rejections,
+        verifiedChangesets,
+        deferredChangesets,
+        latency(recordedLatencies, pushes),
+        latency(estimatedLatencies, pushes)
+      );
+    }
+
+    private static SimulationResult.Latency latency(long[] latencies, int count) {
+      if (count == 0) {
+        return new SimulationResult.Latency(0, 0, 0);
+      }
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      long sum = 0;
+      for (long latency : sorted) {
+        sum += latency;
+      }
+      int p95 = (int) Math.ceil(count * 0.95) - 1;
+      return new SimulationResult.Latency(
+        sum / 1_000_000d / count,
+        sorted[p95] / 1_000_000d,
+        sorted[count - 1] / 1_000_000d
+      );
+    }
+  }
+
+  @Value
+  private static class RecordedPushes {
+    Map<String, List<PushRecord>> records;
+    long nanosPerChangeset;
+  }
+
+  @Value
+  private static class RepositoryReplay {
+    Repository repository;
+    BaseSignatureConfig config;
+    Map<String, String> branchNames;
+    boolean wildcardRules;
+    List<PushRecord> records;
+  }
+
+  @Value
+  private static class SimulatedPush {
+    /**
+     * {@code false}, if the outcome of the push cannot be simulated, because the name of one of its unprotected
+     * branches is not known.
+     */
+    boolean simulatable;
+    /**
+     * Reason of the rejection or {@code null}, if the push would have been accepted.
+     */
+    RejectionReason rejectionReason;
+    int verified;
+    int deferred;
+    long latencyNanos;
+  }
+}
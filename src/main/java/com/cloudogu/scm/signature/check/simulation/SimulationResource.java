@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.simulation;
+
+import com.cloudogu.scm.signature.check.SignatureCheckPermissions;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfigDto;
+import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfigDto;
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfigDto;
+import com.cloudogu.scm.signature.check.config.SignatureConfigDtoMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import sonia.scm.NotFoundException;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.config.ConfigurationPermissions;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import java.time.Instant;
+
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Path("v2/signature-check/simulation")
+public class SimulationResource {
+
+  private final ConfigSimulator configSimulator;
+  private final NamespaceManager namespaceManager;
+  private final RepositoryManager repositoryManager;
+  private final ScmPathInfoStore scmPathInfoStore;
+
+  @Inject
+  public SimulationResource(ConfigSimulator configSimulator,
+                            NamespaceManager namespaceManager,
+                            RepositoryManager repositoryManager,
+                            ScmPathInfoStore scmPathInfoStore) {
+    this.configSimulator = configSimulator;
+    this.namespaceManager = namespaceManager;
+    this.repositoryManager = repositoryManager;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @POST
+  @Path("/global-config")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Simulates a global signature check config",
+    description = "Replays the recorded pushes of all repositories against the given global config",
+    tags = "Signature Check Plugin",
+    operationId = "simulate_global_config"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid request")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public SimulationResultDto simulateGlobalConfig(@QueryParam("days") @DefaultValue("7") @Min(1) @Max(ConfigSimulator.MAX_DAYS) int days,
+                                                  @Valid GlobalSignatureConfigDto configDto) {
+    ConfigurationPermissions.write("signatureCheck").check();
+    SimulationResult result = configSimulator.simulateGlobal(SignatureConfigDtoMapper.toConfig(configDto), days);
+    return map(result, linkBuilder().method("simulateGlobalConfig").parameters().href());
+  }
+
+  @POST
+  @Path("/{namespace}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Simulates a signature check config for a namespace",
+    description = "Replays the recorded pushes of all repositories of the namespace against the given namespace config",
+    tags = "Signature Check Plugin",
+    operationId = "simulate_namespace_config"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid request")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(responseCode = "404", description = "Namespace not found")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public SimulationResultDto simulateNamespaceConfig(@PathParam("namespace") String namespace,
+                                                     @QueryParam("days") @DefaultValue("7") @Min(1) @Max(ConfigSimulator.MAX_DAYS) int days,
+                                                     @Valid NamespaceSignatureConfigDto configDto) {
+    Namespace foundNamespace = namespaceManager
+      .get(namespace)
+      .orElseThrow(
+        () -> new NotFoundException(Namespace.class, namespace)
+      );
+    SignatureCheckPermissions.checkNamespace(namespace);
+
+    SimulationResult result = configSimulator.simulateNamespace(foundNamespace, SignatureConfigDtoMapper.toConfig(configDto), days);
+    return map(result, linkBuilder().method("simulateNamespaceConfig").parameters(namespace).href());
+  }
+
+  @POST
+  @Path("/{namespace}/{name}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Simulates a signature check config for a repository",
+    description = "Replays the recorded pushes of the repository against the given repository config",
+    tags = "Signature Check Plugin",
+    operationId = "simulate_repo_config"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "400", description = "Invalid request")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(responseCode = "404", description = "Repository not found")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public SimulationResultDto simulateRepoConfig(@PathParam("namespace") String namespace,
+                                                @PathParam("name") String name,
+                                                @QueryParam("days") @DefaultValue("7") @Min(1) @Max(ConfigSimulator.MAX_DAYS) int days,
+                                                @Valid RepositorySignatureConfigDto configDto) {
+    Repository repository = repositoryManager.get(new NamespaceAndName(namespace, name));
+    if (repository == null) {
+      throw new NotFoundException(Repository.class, namespace + "/" + name);
+    }
+    SignatureCheckPermissions.checkRepository(repository);
+
+    SimulationResult result = configSimulator.simulateRepository(repository, SignatureConfigDtoMapper.toConfig(configDto), days);
+    return map(result, linkBuilder().method("simulateRepoConfig").parameters(namespace, name).href());
+  }
+
+  private LinkBuilder linkBuilder() {
+    return new LinkBuilder(scmPathInfoStore.get(), SimulationResource.class);
+  }
+
+  private static SimulationResultDto map(SimulationResult result, String selfLink) {
+    SimulationResultDto dto = new SimulationResultDto(
+      result.getRepositories(),
+      result.getPushes(),
+      result.getNotSimulatablePushes(),
+      result.getPushes() == 0 ? null : Instant.ofEpochMilli(result.getFrom()),
+      result.getPushes() == 0 ? null : Instant.ofEpochMilli(result.getTo()),
+      result.getAcceptedPushes(),
+      result.getRejectedPushes(),
+      result.getNewlyRejectedPushes(),
+      result.getNewlyAcceptedPushes(),
+      result.getRejections(),
+      result.getVerifiedChangesets(),
+      result.getDeferredChangesets(),
+      map(result.getRecordedLatency()),
+      map(result.getEstimatedLatency())
+    );
+    dto.add(linkingTo().self(selfLink).build());
+    return dto;
+  }
+
+  private static SimulationResultDto.LatencyDto map(SimulationResult.Latency latency) {
+    return new SimulationResultDto.LatencyDto(latency.getMeanMillis(), latency.getP95Millis(), latency.getMaxMillis());
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.simulation;
+
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import lombok.Value;
+
+import java.util.Map;
+
+@Value
+public class SimulationResult {
+
+  int repositories;
+  int pushes;
+  /**
+   * Pushes, whose outcome cannot be simulated, because one of their unprotected branches could match a branch rule
+   * with wildcards. These are not part of any other number.
+   */
+  int notSimulatablePushes;
+  /**
+   * Timestamp of the oldest simulated push or {@code 0}, if there was none.
+   */
+  long from;
+  /**
+   * Timestamp of the latest simulated push or {@code 0}, if there was none.
+   */
+  long to;
+  int acceptedPushes;
+  int rejectedPushes;
+  /**
+   * Pushes, which were accepted at the time, but would be rejected with the simulated configuration.
+   */
+  int newlyRejectedPushes;
+  /**
+   * Pushes, which were rejected at the time, but would be accepted with the simulated configuration.
+   */
+  int newlyAcceptedPushes;
+  Map<RejectionReason, Integer> rejections;
+  long verifiedChangesets;
+  long deferredChangesets;
+  Latency recordedLatency;
+  Latency estimatedLatency;
+
+  @Value
+  public static class Latency {
+    double meanMillis;
+    double p95Millis;
+    double maxMillis;
+  }
+}
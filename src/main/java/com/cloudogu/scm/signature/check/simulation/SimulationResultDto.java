@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.simulation;
+
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.Map;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationResultDto extends HalRepresentation {
+
+  private int repositories;
+  private int pushes;
+  private int notSimulatablePushes;
+  private Instant from;
+  private Instant to;
+  private int acceptedPushes;
+  private int rejectedPushes;
+  private int newlyRejectedPushes;
+  private int newlyAcceptedPushes;
+  private Map<RejectionReason, Integer> rejections;
+  private long verifiedChangesets;
+  private long deferredChangesets;
+  private LatencyDto recordedLatency;
+  private LatencyDto estimatedLatency;
+
+  @Override
+  public HalRepresentation add(Links links) {
+    return super.add(links);
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class LatencyDto {
+    private double meanMillis;
+    private double p95Millis;
+    private double maxMillis;
+  }
+}
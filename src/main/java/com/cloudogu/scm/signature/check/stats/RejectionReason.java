@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import com.cloudogu.scm.signature.check.InvalidSignatureException;
+
+public enum RejectionReason {
+  MISSING_SIGNATURE,
+  INVALID_SIGNATURE,
+  UNTRUSTED_SIGNATURE,
+  TIMEOUT,
+  CAPACITY,
+  POLICY_VIOLATION;
+
+  public static RejectionReason of(InvalidSignatureException.Reason reason) {
+    return switch (reason) {
+      case MISSING_SIGNATURE -> MISSING_SIGNATURE;
+      case INVALID_SIGNATURE -> INVALID_SIGNATURE;
+      case UNTRUSTED_SIGNATURE -> UNTRUSTED_SIGNATURE;
+      case POLICY_VIOLATION -> POLICY_VIOLATION;
+    };
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Rolling statistics of the signature check per repository for the last hour, day and week. The statistics are only
+ * kept in memory and start empty after a restart.
+ */
+@Extension
+@Singleton
+@EagerSingleton
+public class SignatureCheckStatistics {
+
+  private final ConcurrentMap<String, TimeWindowCounters> repositories = new ConcurrentHashMap<>();
+  private final Clock clock;
+
+  @Inject
+  public SignatureCheckStatistics() {
+    this(Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  SignatureCheckStatistics(Clock clock) {
+    this.clock = clock;
+  }
+
+  public void recordPassed(Repository repository, int changesets, long verificationNanos) {
+    counters(repository).record(clock.millis(), changesets, null, verificationNanos);
+  }
+
+  public void recordRejected(Repository repository, int changesets, RejectionReason reason, long verificationNanos) {
+    counters(repository).record(clock.millis(), changesets, reason, verificationNanos);
+  }
+
+  private TimeWindowCounters counters(Repository repository) {
+    TimeWindowCounters counters = repositories.computeIfAbsent(
+      repository.getId(), id -> new TimeWindowCounters(repository.getNamespace())
+    );
+    if (!repository.getNamespace().equals(counters.getNamespace())) {
+      counters.setNamespace(repository.getNamespace());
+    }
+    return counters;
+  }
+
+  public Map<StatisticsWindow, WindowStatistics> getRepositoryStatistics(String repositoryId) {
+    Map<StatisticsWindow, WindowStatistics> statistics = empty();
+    TimeWindowCounters counters = repositories.get(repositoryId);
+    if (counters != null) {
+      long now = clock.millis();
+      statistics.forEach((window, windowStatistics) -> counters.addTo(window, now, windowStatistics));
+    }
+    return statistics;
+  }
+
+  public Map<StatisticsWindow, WindowStatistics> getNamespaceStatistics(String namespace) {
+    Map<StatisticsWindow, WindowStatistics> statistics = empty();
+    long now = clock.millis();
+    for (TimeWindowCounters counters : repositories.values()) {
+      if (namespace.equals(counters.getNamespace())) {
+        statistics.forEach((window, windowStatistics) -> counters.addTo(window, now, windowStatistics));
+      }
+    }
+    return statistics;
+  }
+
+  private static Map<StatisticsWindow, WindowStatistics> empty() {
+    Map<StatisticsWindow, WindowStatistics> statistics = new EnumMap<>(StatisticsWindow.class);
+    for (StatisticsWindow window : StatisticsWindow.values()) {
+      statistics.put(window, new WindowStatistics());
+    }
+    return statistics;
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      repositories.remove(event.getItem().getId());
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persistent per repository counters of pushed changesets and changesets with a verified signature. The counts of a
+ * push are prepared by the signature check before the push is received, from the changesets it has already read, and
+ * are only added to the counters after the push has been received, so that rejected pushes are not counted and the
+ * changesets are not read a second time. All counters are loaded with a single store read and kept in memory, so that
+ * reading them for a page of repositories does not touch the store. Changes are written in the background.
+ */
+@Extension
+@Singleton
+@EagerSingleton
+public class SignedCommitCounters implements ServletContextListener {
+
+  public static final String STORE_NAME = "signature-check-signed-commits";
+
+  // pushes whose post receive hook is never fired, because the refs could not be updated
+  static final Duration PREPARED_TTL = Duration.ofHours(1);
+
+  private static final Logger LOG = LoggerFactory.getLogger(SignedCommitCounters.class);
+
+  private final DataStore<SignedCommitCount> store;
+  private final ExecutorService executor;
+  private final Cache<PushKey, SignedCommitCount> prepared;
+
+  private volatile ConcurrentMap<String, SignedCommitCount> counts;
+
+  @Inject
+  public SignedCommitCounters(DataStoreFactory dataStoreFactory) {
+    this(
+      dataStoreFactory,
+      Executors.newSingleThreadExecutor(
+        new ThreadFactoryBuilder().setNameFormat("SignatureCheckSignedCommits-%d").setDaemon(true).build()
+      ),
+      Ticker.systemTicker()
+    );
+  }
+
+  @VisibleForTesting
+  SignedCommitCounters(DataStoreFactory dataStoreFactory, ExecutorService executor, Ticker ticker) {
+    this.store = dataStoreFactory.withType(SignedCommitCount.class).withName(STORE_NAME).build();
+    this.executor = executor;
+    this.prepared = CacheBuilder.newBuilder()
+      .expireAfterWrite(PREPARED_TTL)
+      .ticker(ticker)
+      .build();
+  }
+
+  /**
+   * Prepares the counts of the push to the repository, which is currently received. The counts are added, once the
+   * push has been received.
+   */
+  public void prepare(Repository repository, Iterable<Changeset> changesets) {
+    Set<String> counted = new HashSet<>();
+    long total = 0;
+    long signed = 0;
+    for (Changeset changeset : changesets) {
+      // changesets pushed to multiple branches are only counted once
+      if (!counted.add(changeset.getId())) {
+        continue;
+      }
+      total++;
+      if (hasVerifiedSignature(changeset)) {
+        signed++;
+      }
+    }
+    if (total == 0) {
+      discard(repository);
+    } else {
+      prepared.put(PushKey.current(repository), new SignedCommitCount(total, signed));
+    }
+  }
+
+  /**
+   * Discards prepared counts of the push to the repository, which is currently received, because the push is not
+   * counted.
+   */
+  public void discard(Repository repository) {
+    prepared.invalidate(PushKey.current(repository));
+  }
+
+  @Subscribe(async = false)
+  public void onPush(PostReceiveRepositoryHookEvent event) {
+    Repository repository = event.getRepository();
+    SignedCommitCount count = prepared.asMap().remove(PushKey.current(repository));
+    if (count != null) {
+      add(repository, count);
+    }
+  }
+
+  private void add(Repository repository, SignedCommitCount pushed) {
+    String repositoryId = repository.getId();
+    getCounts().compute(repositoryId, (id, count) -> count == null
+      ? pushed
+      : count.plus(pushed.getChangesets(), pushed.getSignedChangesets())
+    );
+    // always store the latest value, so that the order of the background writes does not matter
+    executor.execute(() -> {
+      try {
+        SignedCommitCount latest = getCounts().get(repositoryId);
+        if (latest != null) {
+          store.put(repositoryId, latest);
+        }
+      } catch (RuntimeException e) {
+        LOG.warn("failed to store signed commit counters of repository {}", repository, e);
+      }
+    });
+  }
+
+  private static boolean hasVerifiedSignature(Changeset changeset) {
+    if (changeset.getSignatures() == null) {
+      return false;
+    }
+    for (Signature signature : changeset.getSignatures()) {
+      if (signature.getStatus() == SignatureStatus.VERIFIED) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public Optional<SignedCommitCount> get(String repositoryId) {
+    return Optional.ofNullable(getCounts().get(repositoryId));
+  }
+
+  private ConcurrentMap<String, SignedCommitCount> getCounts() {
+    ConcurrentMap<String, SignedCommitCount> current = counts;
+    if (current == null) {
+      synchronized (this) {
+        current = counts;
+        if (current == null) {
+          current = new ConcurrentHashMap<>(store.getAll());
+          counts = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      String repositoryId = event.getItem().getId();
+      getCounts().remove(repositoryId);
+      executor.execute(() -> store.remove(repositoryId));
+    }
+  }
+
+  /**
+   * The pre and post receive hooks of a push are fired by the thread which receives the push, so that the thread
+   * identifies the push together with the repository.
+   */
+  @Value
+  private static class PushKey {
+    String repositoryId;
+    long threadId;
+
+    static PushKey current(Repository repository) {
+      return new PushKey(repository.getId(), Thread.currentThread().getId());
+    }
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    // nothing to initialize
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    executor.shutdown();
+  }
+}
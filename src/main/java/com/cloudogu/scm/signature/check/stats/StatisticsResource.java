@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import com.cloudogu.scm.signature.check.SignatureCheckPermissions;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import sonia.scm.NotFoundException;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import java.util.Map;
+
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Path("v2/signature-check/statistics")
+public class StatisticsResource {
+
+  private final SignatureCheckStatistics statistics;
+  private final RepositoryManager repositoryManager;
+  private final ScmPathInfoStore scmPathInfoStore;
+
+  @Inject
+  public StatisticsResource(SignatureCheckStatistics statistics, RepositoryManager repositoryManager, ScmPathInfoStore scmPathInfoStore) {
+    this.statistics = statistics;
+    this.repositoryManager = repositoryManager;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @GET
+  @Path("/{namespace}")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Gets signature check statistics of a namespace",
+    description = "Gets the pushes, changesets and rejections of all repositories of a namespace for the last hour, day and week",
+    tags = "Signature Check Plugin",
+    operationId = "get_namespace_statistics"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public StatisticsDto getNamespaceStatistics(@PathParam("namespace") String namespace) {
+    SignatureCheckPermissions.checkNamespace(namespace);
+    StatisticsDto dto = map(statistics.getNamespaceStatistics(namespace));
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), StatisticsResource.class);
+    dto.add(linkingTo().self(linkBuilder.method("getNamespaceStatistics").parameters(namespace).href()).build());
+    return dto;
+  }
+
+  @GET
+  @Path("/{namespace}/{name}")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(
+    summary = "Gets signature check statistics of a repository",
+    description = "Gets the pushes, changesets and rejections of a repository for the last hour, day and week",
+    tags = "Signature Check Plugin",
+    operationId = "get_repository_statistics"
+  )
+  @ApiResponse(responseCode = "200", description = "Ok")
+  @ApiResponse(responseCode = "401", description = "Not authenticated")
+  @ApiResponse(responseCode = "403", description = "Missing Permissions")
+  @ApiResponse(responseCode = "404", description = "Repository not found")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public StatisticsDto getRepositoryStatistics(@PathParam("namespace") String namespace, @PathParam("name") String name) {
+    Repository repository = repositoryManager.get(new NamespaceAndName(namespace, name));
+    if (repository == null) {
+      throw new NotFoundException(Repository.class, namespace + "/" + name);
+    }
+    SignatureCheckPermissions.checkRepository(repository);
+
+    StatisticsDto dto = map(statistics.getRepositoryStatistics(repository.getId()));
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), StatisticsResource.class);
+    dto.add(linkingTo().self(linkBuilder.method("getRepositoryStatistics").parameters(namespace, name).href()).build());
+    return dto;
+  }
+
+  private static StatisticsDto map(Map<StatisticsWindow, WindowStatistics> windows) {
+    return new StatisticsDto(
+      map(windows.get(StatisticsWindow.HOUR)),
+      map(windows.get(StatisticsWindow.DAY)),
+      map(windows.get(StatisticsWindow.WEEK))
+    );
+  }
+
+  private static StatisticsDto.WindowDto map(WindowStatistics window) {
+    double averageVerificationMillis = window.getPushes() == 0 ? 0 : window.getVerificationNanos() / 1_000_000d / window.getPushes();
+    return new StatisticsDto.WindowDto(
+      window.getPushes(),
+      window.getChangesets(),
+      window.getRejectedPushes(),
+      window.getRejections(),
+      averageVerificationMillis
+    );
+  }
+}
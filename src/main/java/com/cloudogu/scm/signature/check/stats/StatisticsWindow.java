@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import java.time.Duration;
+
+/**
+ * Sliding windows of the statistics. Each window is kept in its own ring of buckets, so the precision of a window is
+ * the size of its buckets.
+ */
+public enum StatisticsWindow {
+  HOUR(12, Duration.ofMinutes(5)),
+  DAY(24, Duration.ofHours(1)),
+  WEEK(28, Duration.ofHours(6));
+
+  private final int buckets;
+  private final long bucketMillis;
+
+  StatisticsWindow(int buckets, Duration bucketSize) {
+    this.buckets = buckets;
+    this.bucketMillis = bucketSize.toMillis();
+  }
+
+  int getBuckets() {
+    return buckets;
+  }
+
+  long getBucketMillis() {
+    return bucketMillis;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of a single repository for every {@link StatisticsWindow}. Each window is a ring of time buckets packed
+ * into one {@link AtomicLongArray}, so the memory per repository is fixed. The first slot of a bucket holds the
+ * number of the time slice the bucket currently belongs to. Outdated buckets are reset by the first writer of a new
+ * slice; increments which race with such a reset may get lost, which is acceptable for statistics.
+ */
+final class TimeWindowCounters {
+
+  private static final int EPOCH = 0;
+  private static final int PUSHES = 1;
+  private static final int CHANGESETS = 2;
+  private static final int VERIFICATION_NANOS = 3;
+  private static final int REJECTIONS = 4;
+  private static final RejectionReason[] REASONS = RejectionReason.values();
+  static final int STRIDE = REJECTIONS + REASONS.length;
+
+  private final AtomicLongArray[] rings = new AtomicLongArray[StatisticsWindow.values().length];
+  private volatile String namespace;
+
+  TimeWindowCounters(String namespace) {
+    this.namespace = namespace;
+    for (StatisticsWindow window : StatisticsWindow.values()) {
+      rings[window.ordinal()] = new AtomicLongArray(window.getBuckets() * STRIDE);
+    }
+  }
+
+  String getNamespace() {
+    return namespace;
+  }
+
+  void setNamespace(String namespace) {
+    this.namespace = namespace;
+  }
+
+  void record(long now, int changesets, RejectionReason reason, long verificationNanos) {
+    for (StatisticsWindow window : StatisticsWindow.values()) {
+      AtomicLongArray ring = rings[window.ordinal()];
+      int base = claim(ring, window, now);
+      if (base >= 0) {
+        ring.incrementAndGet(base + PUSHES);
+        ring.addAndGet(base + CHANGESETS, changesets);
+        ring.addAndGet(base + VERIFICATION_NANOS, verificationNanos);
+        if (reason != null) {
+          ring.incrementAndGet(base + REJECTIONS + reason.ordinal());
+        }
+      }
+    }
+  }
+
+  private static int claim(AtomicLongArray ring, StatisticsWindow window, long now) {
+    long epoch = now / window.getBucketMillis();
+    int base = (int) (epoch % window.getBuckets()) * STRIDE;
+    long bucketEpoch = ring.get(base + EPOCH);
+    while (bucketEpoch < epoch) {
+      if (ring.compareAndSet(base + EPOCH, bucketEpoch, epoch)) {
+        for (int i = EPOCH + 1; i < STRIDE; i++) {
+          ring.set(base + i, 0);
+        }
+        return base;
+      }
+      bucketEpoch = ring.get(base + EPOCH);
+    }
+    // the bucket was already reused for a newer slice, if the timestamp is outdated
+    return bucketEpoch == epoch ? base : -1;
+  }
+
+  void addTo(StatisticsWindow window, long now, WindowStatistics statistics) {
+    AtomicLongArray ring = rings[window.ordinal()];
+    long epoch = now / window.getBucketMillis();
+    for (int base = 0; base < ring.length(); base += STRIDE) {
+      long bucketEpoch = ring.get(base + EPOCH);
+      if (bucketEpoch > epoch - window.getBuckets() && bucketEpoch <= epoch) {
+        statistics.add(ring.get(base + PUSHES), ring.get(base + CHANGESETS), ring.get(base + VERIFICATION_NANOS));
+        for (RejectionReason reason : REASONS) {
+          statistics.addRejections(reason, ring.get(base + REJECTIONS + reason.ordinal()));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+public class WindowStatistics {
+
+  private long pushes;
+  private long changesets;
+  private long verificationNanos;
+  private final Map<RejectionReason, Long> rejections = new EnumMap<>(RejectionReason.class);
+
+  void add(long pushes, long changesets, long verificationNanos) {
+    this.pushes += pushes;
+    this.changesets += changesets;
+    this.verificationNanos += verificationNanos;
+  }
+
+  void addRejections(RejectionReason reason, long count) {
+    if (count > 0) {
+      rejections.merge(reason, count, Long::sum);
+    }
+  }
+
+  public long getRejectedPushes() {
+    long rejected = 0;
+    for (long count : rejections.values()) {
+      rejected += count;
+    }
+    return rejected;
+  }
+}
@@ -17,7 +17,7 @@
 import React, { FC, useRef } from "react";
 import { ChipInputField, Form } from "@scm-manager/ui-forms";
 import { Level } from "@scm-manager/ui-components";
-import { BaseSignatureConfigDto, VERIFICATION_TYPES } from "./types";
+import { BaseSignatureConfigDto, BranchRule, TIMEOUT_FALLBACKS, VERIFICATION_TYPES } from "./types";
 import { useTranslation } from "react-i18next";
 import { UseFormWatch } from "react-hook-form";
 import { HalRepresentation } from "@scm-manager/ui-types";
@@ -29,6 +29,8 @@ type Props = {
 const BaseSignatureConfigFormElements: FC<Props> = ({ watch }: Props) => {
   const [t] = useTranslation("plugins");
   const protectedBranchesRef = useRef<HTMLInputElement>(null);
+  const exemptUsersRef = useRef<HTMLInputElement>(null);
+  const exemptGroupsRef = useRef<HTMLInputElement>(null);
 
   return (
     <>
@@ -55,6 +57,64 @@ const BaseSignatureConfigFormElements: FC<Props> = ({ watch }: Props) => {
               ))}
             </Form.RadioGroup>
           </Form.Row>
+          <Form.Row>
+            <Form.Checkbox name="verifyOnlyNewCommits" />
+          </Form.Row>
+          <hr />
+          <Form.ListContext name="branchRules">
+            <Form.Table withDelete>
+              <Form.Table.Column name="pattern" />
+              <Form.Table.Column name="verificationType">
+                {value => t(`scm-signature-check-plugin.config.verificationType.radio.${value}`)}
+              </Form.Table.Column>
+            </Form.Table>
+            <Form.AddListEntryForm<BranchRule>
+              defaultValues={{ pattern: "", verificationType: "ANY_SIGNATURE" }}
+            >
+              <Form.Row>
+                <Form.Input name="pattern" rules={{ required: true }} />
+              </Form.Row>
+              <Form.Row>
+                <Form.RadioGroup name="verificationType">
+                  {VERIFICATION_TYPES.map(value => (
+                    <Form.RadioGroup.Option key={value} value={value} />
+                  ))}
+                </Form.RadioGroup>
+              </Form.Row>
+            </Form.AddListEntryForm>
+          </Form.ListContext>
+          <hr />
+          <Form.Row>
+            <Form.ChipInput name="exemptUsers" ref={exemptUsersRef} />
+          </Form.Row>
+          <Level
+            right={
+              <ChipInputField.AddButton inputRef={exemptUsersRef}>
+                {t("scm-signature-check-plugin.config.exemptUsers.add")}
+              </ChipInputField.AddButton>
+            }
+          ></Level>
+          <Form.Row>
+            <Form.ChipInput name="exemptGroups" ref={exemptGroupsRef} />
+          </Form.Row>
+          <Level
+            right={
+              <ChipInputField.AddButton inputRef={exemptGroupsRef}>
+                {t("scm-signature-check-plugin.config.exemptGroups.add")}
+              </ChipInputField.AddButton>
+            }
+          ></Level>
+          <hr />
+          <Form.Row>
+            <Form.Input name="verificationTimeout" type="number" />
+          </Form.Row>
+          <Form.Row>
+            <Form.RadioGroup name="timeoutFallback">
+              {TIMEOUT_FALLBACKS.map(value => (
+                <Form.RadioGroup.Option key={value} value={value} />
+              ))}
+            </Form.RadioGroup>
+          </Form.Row>
         </>
       ) : null}
     </>
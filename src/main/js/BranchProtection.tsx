@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+import React, { FC } from "react";
+import { useTranslation } from "react-i18next";
+import { Tag } from "@scm-manager/ui-components";
+import { Branch } from "@scm-manager/ui-types";
+import { SignatureProtectionDto } from "./types";
+
+type Props = {
+  branch: Branch;
+};
+
+const BranchProtection: FC<Props> = ({ branch }) => {
+  const [t] = useTranslation("plugins");
+  const protection = branch._embedded?.signatureProtection as SignatureProtectionDto | undefined;
+  if (!protection) {
+    return null;
+  }
+
+  const verificationType = t(`scm-signature-check-plugin.config.verificationType.radio.${protection.verificationType}`);
+  return (
+    <Tag
+      color="info"
+      label={t("scm-signature-check-plugin.protection.label")}
+      title={t("scm-signature-check-plugin.protection.title", { verificationType })}
+    />
+  );
+};
+
+export default BranchProtection;
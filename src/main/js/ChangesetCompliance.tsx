@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+import React, { FC } from "react";
+import { useTranslation } from "react-i18next";
+import { Tag } from "@scm-manager/ui-components";
+import { Changeset } from "@scm-manager/ui-types";
+import { SignatureComplianceDto } from "./types";
+
+type Props = {
+  changeset: Changeset;
+};
+
+const ChangesetCompliance: FC<Props> = ({ changeset }) => {
+  const [t] = useTranslation("plugins");
+  const compliance = changeset._embedded?.signatureCompliance as SignatureComplianceDto | undefined;
+  if (!compliance) {
+    return null;
+  }
+
+  const verificationType = t(`scm-signature-check-plugin.config.verificationType.radio.${compliance.verificationType}`);
+  if (compliance.compliant) {
+    return (
+      <Tag
+        color="success"
+        label={t("scm-signature-check-plugin.compliance.compliant")}
+        title={t("scm-signature-check-plugin.compliance.compliantTitle", { verificationType })}
+      />
+    );
+  }
+  return (
+    <Tag
+      color="danger"
+      label={t("scm-signature-check-plugin.compliance.violated")}
+      title={t("scm-signature-check-plugin.compliance.title", { verificationType, message: compliance.message })}
+    />
+  );
+};
+
+export default ChangesetCompliance;
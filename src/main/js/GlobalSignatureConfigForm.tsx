@@ -14,12 +14,12 @@
  * along with this program. If not, see https://www.gnu.org/licenses/.
  */
 
-import React, { FC } from "react";
+import React, { FC, useRef } from "react";
 import { useTranslation } from "react-i18next";
 import { GlobalSignatureConfigDto } from "./types";
 import { HalRepresentation } from "@scm-manager/ui-types";
-import { ConfigurationForm, Form } from "@scm-manager/ui-forms";
-import { Title } from "@scm-manager/ui-components";
+import { ChipInputField, ConfigurationForm, Form } from "@scm-manager/ui-forms";
+import { Level, Title } from "@scm-manager/ui-components";
 import BaseSignatureConfigFormElements from "./BaseSignatureConfigFormElements";
 
 type Props = {
@@ -30,6 +30,7 @@ type Configuration = HalRepresentation & GlobalSignatureConfigDto;
 
 const GlobalSignatureConfigForm: FC<Props> = ({ link }) => {
   const [t] = useTranslation("plugins");
+  const historyImportUsersRef = useRef<HTMLInputElement>(null);
 
   return (
     <>
@@ -44,6 +45,50 @@ const GlobalSignatureConfigForm: FC<Props> = ({ link }) => {
               />
             </Form.Row>
             <BaseSignatureConfigFormElements watch={watch} />
+            <hr />
+            <Form.Row>
+              <Form.Input name="maxConcurrentVerifications" type="number" />
+            </Form.Row>
+            {watch("maxConcurrentVerifications") > 0 ? (
+              <>
+                <Form.Row>
+                  <Form.Checkbox name="limitConcurrencyPerNamespace" />
+                </Form.Row>
+                <Form.Row>
+                  <Form.Input name="maxQueuedVerifications" type="number" />
+                  <Form.Input name="maxQueueWaitSeconds" type="number" />
+                </Form.Row>
+              </>
+            ) : null}
+            <hr />
+            <Form.Row>
+              <Form.Checkbox name="flagCommitsOfRemovedKeys" />
+            </Form.Row>
+            <hr />
+            <Form.Row>
+              <Form.Checkbox name="deferHistoryImports" />
+            </Form.Row>
+            {watch("deferHistoryImports") ? (
+              <>
+                <Form.Row>
+                  <Form.Input name="historyVerificationThreads" type="number" />
+                </Form.Row>
+                <Form.Row>
+                  <Form.ChipInput name="historyImportUsers" ref={historyImportUsersRef} />
+                </Form.Row>
+                <Level
+                  right={
+                    <ChipInputField.AddButton inputRef={historyImportUsersRef}>
+                      {t("scm-signature-check-plugin.config.historyImportUsers.add")}
+                    </ChipInputField.AddButton>
+                  }
+                ></Level>
+              </>
+            ) : null}
+            <hr />
+            <Form.Row>
+              <Form.Checkbox name="recordPushes" />
+            </Form.Row>
           </>
         )}
       </ConfigurationForm>
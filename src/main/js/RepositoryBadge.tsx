@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+import React, { FC } from "react";
+import { useTranslation } from "react-i18next";
+import { Tag } from "@scm-manager/ui-components";
+import { Repository } from "@scm-manager/ui-types";
+import { useSignatureBadge } from "./badges";
+
+type Props = {
+  repository: Repository;
+};
+
+const RepositoryBadge: FC<Props> = ({ repository }) => {
+  const [t] = useTranslation("plugins");
+  const badge = useSignatureBadge(repository);
+  if (!badge || (!badge.enforced && badge.signedRatio === undefined)) {
+    return null;
+  }
+
+  const signed = badge.signedRatio === undefined ? undefined : Math.round(badge.signedRatio * 100);
+  const title = t("scm-signature-check-plugin.badge.title", {
+    signedChangesets: badge.signedChangesets,
+    changesets: badge.changesets
+  });
+  if (badge.enforced) {
+    return (
+      <Tag
+        color="success"
+        label={
+          signed === undefined
+            ? t("scm-signature-check-plugin.badge.enforced")
+            : t("scm-signature-check-plugin.badge.enforcedWithRatio", { signed })
+        }
+        title={signed === undefined ? undefined : title}
+      />
+    );
+  }
+  return <Tag color="light" label={t("scm-signature-check-plugin.badge.notEnforced", { signed })} title={title} />;
+};
+
+export default RepositoryBadge;
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+import { useEffect, useState } from "react";
+import { apiClient, useIndexLink } from "@scm-manager/ui-api";
+import { Repository } from "@scm-manager/ui-types";
+import { SignatureBadgeDto } from "./types";
+
+// must match the limit of the badge resource
+const MAX_REPOSITORIES = 100;
+const CACHE_MILLIS = 60000;
+
+type Request = {
+  namespace: string;
+  name: string;
+  resolve: (badge?: SignatureBadgeDto) => void;
+  reject: (error: Error) => void;
+};
+
+type CacheEntry = {
+  loaded: number;
+  badge: Promise<SignatureBadgeDto | undefined>;
+};
+
+const cache = new Map<string, CacheEntry>();
+let queue: Request[] = [];
+
+const key = (namespace: string, name: string) => `${namespace}/${name}`;
+
+const fetchBadges = (link: string, requests: Request[]) =>
+  apiClient
+    .post(link, { repositories: requests.map(({ namespace, name }) => ({ namespace, name })) })
+    .then(response => response.json())
+    .then(({ badges }: { badges: SignatureBadgeDto[] }) => {
+      const byKey = new Map(badges.map(badge => [key(badge.namespace, badge.name), badge]));
+      requests.forEach(request => request.resolve(byKey.get(key(request.namespace, request.name))));
+    })
+    .catch(error => requests.forEach(request => request.reject(error)));
+
+const flush = (link: string) => {
+  const requests = queue;
+  queue = [];
+  for (let i = 0; i < requests.length; i += MAX_REPOSITORIES) {
+    fetchBadges(link, requests.slice(i, i + MAX_REPOSITORIES));
+  }
+};
+
+/**
+ * Queues the badge of the repository and fetches the badges of all repositories, which are rendered together, with a
+ * single request.
+ */
+const loadBadge = (link: string, namespace: string, name: string) => {
+  const cached = cache.get(key(namespace, name));
+  if (cached && Date.now() - cached.loaded < CACHE_MILLIS) {
+    return cached.badge;
+  }
+
+  const badge = new Promise<SignatureBadgeDto | undefined>((resolve, reject) => {
+    if (queue.length === 0) {
+      setTimeout(() => flush(link), 0);
+    }
+    queue.push({ namespace, name, resolve, reject });
+  });
+  badge.catch(() => cache.delete(key(namespace, name)));
+  cache.set(key(namespace, name), { loaded: Date.now(), badge });
+  return badge;
+};
+
+export const useSignatureBadge = (repository: Repository) => {
+  const link = useIndexLink("signatureCheckBadges");
+  const [badge, setBadge] = useState<SignatureBadgeDto | undefined>();
+
+  useEffect(() => {
+    if (!link || repository.type !== "git") {
+      return;
+    }
+    let mounted = true;
+    loadBadge(link, repository.namespace, repository.name)
+      .then(result => mounted && setBadge(result))
+      .catch(() => mounted && setBadge(undefined));
+    return () => {
+      mounted = false;
+    };
+  }, [link, repository.namespace, repository.name, repository.type]);
+
+  return badge;
+};
@@ -15,9 +15,14 @@
  */
 
 import { ConfigurationBinder as cfgBinder } from "@scm-manager/ui-components";
+import { binder } from "@scm-manager/ui-extensions";
 import GlobalSignatureConfigForm from "./GlobalSignatureConfigForm";
 import RepoSignatureConfigForm from "./RepoSignatureConfigForm";
 import NamespaceSignatureConfigForm from "./NamespaceSignatureConfigForm";
+import ChangesetCompliance from "./ChangesetCompliance";
+import BranchProtection from "./BranchProtection";
+import RepositoryBadge from "./RepositoryBadge";
+import HistoryVerificationFlag from "./HistoryVerificationFlag";
 
 cfgBinder.bindGlobal(
   "/signature-config",
@@ -42,3 +47,8 @@ cfgBinder.bindNamespaceSetting(
   NamespaceSignatureConfigForm,
   "SignatureCheck"
 );
+
+binder.bind("changeset.right", ChangesetCompliance);
+binder.bind("repos.branch-details.information", BranchProtection);
+binder.bind("repository.flags", RepositoryBadge);
+binder.bind("repository.flags", HistoryVerificationFlag);
@@ -17,14 +17,37 @@
 export type VerificationType = "ANY_SIGNATURE" | "SCM_USER_SIGNATURE";
 export const VERIFICATION_TYPES: VerificationType[] = ["ANY_SIGNATURE", "SCM_USER_SIGNATURE"];
 
+export type TimeoutFallback = "REJECT" | "ACCEPT_AND_VERIFY_LATER";
+export const TIMEOUT_FALLBACKS: TimeoutFallback[] = ["REJECT", "ACCEPT_AND_VERIFY_LATER"];
+
+export type BranchRule = {
+  pattern: string;
+  verificationType: VerificationType;
+};
+
 export type BaseSignatureConfigDto = {
   enabled: boolean;
   protectedBranches: string[];
   verificationType: VerificationType;
+  verificationTimeout: number;
+  timeoutFallback: TimeoutFallback;
+  verifyOnlyNewCommits: boolean;
+  branchRules: BranchRule[];
+  exemptUsers: string[];
+  exemptGroups: string[];
 };
 
 export type GlobalSignatureConfigDto = BaseSignatureConfigDto & {
   childrenConfigDisabled: boolean;
+  maxConcurrentVerifications: number;
+  limitConcurrencyPerNamespace: boolean;
+  maxQueuedVerifications: number;
+  maxQueueWaitSeconds: number;
+  flagCommitsOfRemovedKeys: boolean;
+  deferHistoryImports: boolean;
+  historyVerificationThreads: number;
+  historyImportUsers: string[];
+  recordPushes: boolean;
 };
 
 export type NamespaceSignatureConfigDto = BaseSignatureConfigDto & {
@@ -35,3 +58,27 @@ export type NamespaceSignatureConfigDto = BaseSignatureConfigDto & {
 export type RepositorySignatureConfigDto = BaseSignatureConfigDto & {
   overwriteParentConfig: boolean;
 };
+
+export type SignatureComplianceDto = {
+  verificationType: VerificationType;
+  compliant: boolean;
+  reason?: "MISSING_SIGNATURE" | "INVALID_SIGNATURE" | "UNTRUSTED_SIGNATURE" | "POLICY_VIOLATION";
+  message?: string;
+};
+
+export type SignatureProtectionDto = {
+  verificationType: VerificationType;
+};
+
+export type SignatureBadgeDto = {
+  namespace: string;
+  name: string;
+  enforced: boolean;
+  changesets: number;
+  signedChangesets: number;
+  signedRatio?: number;
+};
+
+export type HistoryVerificationDto = {
+  pending: boolean;
+};
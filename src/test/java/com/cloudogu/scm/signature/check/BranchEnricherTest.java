@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BranchEnricherTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle();
+  private final GlobalSignatureConfig config = new GlobalSignatureConfig();
+
+  @Mock
+  private PolicyCompiler policyCompiler;
+
+  @Mock
+  private HalAppender halAppender;
+
+  private BranchEnricher branchEnricher;
+
+  @BeforeEach
+  void setUp() {
+    branchEnricher = new BranchEnricher(policyCompiler);
+    config.setEnabled(true);
+    config.setProtectedBranches(List.of("main"));
+    config.setBranchRules(List.of(new BranchRule("release/*", GpgVerificationType.SCM_USER_SIGNATURE)));
+  }
+
+  @Test
+  void shouldNotEnrichIfSignatureCheckIsDisabled() {
+    config.setEnabled(false);
+    mockPolicy();
+
+    branchEnricher.enrich(HalEnricherContext.of(repository, Branch.normalBranch("main", "42")), halAppender);
+
+    verifyNoInteractions(halAppender);
+  }
+
+  @Test
+  void shouldNotEnrichUnprotectedBranch() {
+    mockPolicy();
+
+    branchEnricher.enrich(HalEnricherContext.of(repository, Branch.normalBranch("feature/spaceship", "42")), halAppender);
+
+    verifyNoInteractions(halAppender);
+  }
+
+  @Test
+  void shouldMarkProtectedBranch() {
+    mockPolicy();
+
+    branchEnricher.enrich(HalEnricherContext.of(repository, Branch.normalBranch("main", "42")), halAppender);
+
+    assertThat(captureProtection().getVerificationType()).isEqualTo(GpgVerificationType.ANY_SIGNATURE);
+  }
+
+  @Test
+  void shouldMarkBranchMatchingRule() {
+    mockPolicy();
+
+    branchEnricher.enrich(HalEnricherContext.of(repository, Branch.normalBranch("release/1.0", "42")), halAppender);
+
+    assertThat(captureProtection().getVerificationType()).isEqualTo(GpgVerificationType.SCM_USER_SIGNATURE);
+  }
+
+  private void mockPolicy() {
+    when(policyCompiler.getPolicy(repository)).thenReturn(new SignaturePolicy(config, config, new ChangesetVerifier(Set.of())));
+  }
+
+  private SignatureProtectionDto captureProtection() {
+    ArgumentCaptor<SignatureProtectionDto> captor = ArgumentCaptor.forClass(SignatureProtectionDto.class);
+    verify(halAppender).appendEmbedded(eq("signatureProtection"), captor.capture());
+    return captor.getValue();
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.cloudogu.scm.signature.check.config.GpgVerificationType.ANY_SIGNATURE;
+import static com.cloudogu.scm.signature.check.config.GpgVerificationType.SCM_USER_SIGNATURE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BranchRuleTableTest {
+
+  @Test
+  void shouldReturnNullWithoutMatchingRule() {
+    BranchRuleTable table = new BranchRuleTable(List.of(new BranchRule("main", SCM_USER_SIGNATURE)));
+
+    assertThat(table.resolve("develop")).isNull();
+  }
+
+  @Test
+  void shouldMatchExactRule() {
+    BranchRuleTable table = new BranchRuleTable(List.of(
+      new BranchRule("main", SCM_USER_SIGNATURE),
+      new BranchRule("develop", ANY_SIGNATURE)
+    ));
+
+    assertThat(table.resolve("main")).isEqualTo(SCM_USER_SIGNATURE);
+    assertThat(table.resolve("develop")).isEqualTo(ANY_SIGNATURE);
+  }
+
+  @Test
+  void shouldMatchWildcards() {
+    BranchRuleTable table = new BranchRuleTable(List.of(
+      new BranchRule("release/*", SCM_USER_SIGNATURE),
+      new BranchRule("feature/**", ANY_SIGNATURE),
+      new BranchRule("hotfix-?", ANY_SIGNATURE)
+    ));
+
+    assertThat(table.resolve("release/1.0")).isEqualTo(SCM_USER_SIGNATURE);
+    assertThat(table.resolve("release/1.0/rc")).isNull();
+    assertThat(table.resolve("feature/a/b")).isEqualTo(ANY_SIGNATURE);
+    assertThat(table.resolve("hotfix-1")).isEqualTo(ANY_SIGNATURE);
+    assertThat(table.resolve("hotfix-12")).isNull();
+  }
+
+  @Test
+  void shouldQuoteRegexCharacters() {
+    BranchRuleTable table = new BranchRuleTable(List.of(new BranchRule("v1.*", ANY_SIGNATURE)));
+
+    assertThat(table.resolve("v1.2")).isEqualTo(ANY_SIGNATURE);
+    assertThat(table.resolve("v122")).isNull();
+  }
+
+  @Test
+  void shouldPreferFirstMatchingRule() {
+    BranchRuleTable table = new BranchRuleTable(List.of(
+      new BranchRule("release/*", ANY_SIGNATURE),
+      new BranchRule("release/1.0", SCM_USER_SIGNATURE),
+      new BranchRule("main", SCM_USER_SIGNATURE),
+      new BranchRule("ma*", ANY_SIGNATURE)
+    ));
+
+    assertThat(table.resolve("release/1.0")).isEqualTo(ANY_SIGNATURE);
+    assertThat(table.resolve("main")).isEqualTo(SCM_USER_SIGNATURE);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChangesetEnricherTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle();
+  private final ComplianceCache complianceCache = new ComplianceCache(new SimpleMeterRegistry());
+  private final GlobalSignatureConfig config = new GlobalSignatureConfig();
+  private final Changeset changeset = new Changeset();
+
+  @Mock
+  private PolicyCompiler policyCompiler;
+
+  @Mock
+  private HalAppender halAppender;
+
+  @Mock
+  private HttpServletRequest request;
+
+  private ChangesetEnricher changesetEnricher;
+
+  @BeforeEach
+  void setUp() {
+    changesetEnricher = new ChangesetEnricher(policyCompiler, complianceCache, () -> request);
+    changeset.setId("abc");
+    config.setEnabled(true);
+  }
+
+  @Test
+  void shouldNotEnrichIfSignatureCheckIsDisabled() {
+    config.setEnabled(false);
+    mockPolicy();
+
+    changesetEnricher.enrich(HalEnricherContext.of(repository, changeset), halAppender);
+
+    verifyNoInteractions(halAppender);
+  }
+
+  @Test
+  void shouldNotEnrichChangesetsOfUnprotectedBranches() {
+    config.setProtectedBranches(List.of("main"));
+    changeset.setBranches(List.of("feature/spaceship"));
+    mockPolicy();
+
+    changesetEnricher.enrich(HalEnricherContext.of(repository, changeset), halAppender);
+
+    verifyNoInteractions(halAppender);
+  }
+
+  @Test
+  void shouldAppendCachedCompliance() {
+    mockPolicy();
+    complianceCache.put(repository, "abc", 0L, new SignatureCompliance(
+      GpgVerificationType.ANY_SIGNATURE, false, InvalidSignatureException.Reason.INVALID_SIGNATURE, "Changeset has an invalid signature"
+    ));
+
+    changesetEnricher.enrich(HalEnricherContext.of(repository, changeset), halAppender);
+
+    SignatureComplianceDto dto = captureCompliance();
+    assertThat(dto.isCompliant()).isFalse();
+    assertThat(dto.getReason()).isEqualTo(InvalidSignatureException.Reason.INVALID_SIGNATURE);
+  }
+
+  @Test
+  void shouldComputeComplianceOfUncachedChangesetWithCheapVerifiers() {
+    mockPolicy(new SignatureExistsVerifier());
+    mockRequestAttributes();
+    changeset.setSignatures(new ArrayList<>(List.of(
+      new Signature("key", "gpg", SignatureStatus.VERIFIED, "trillian", Collections.emptySet())
+    )));
+
+    changesetEnricher.enrich(HalEnricherContext.of(repository, changeset), halAppender);
+
+    SignatureComplianceDto dto = captureCompliance();
+    assertThat(dto.isCompliant()).isTrue();
+    assertThat(dto.getVerificationType()).isEqualTo(GpgVerificationType.ANY_SIGNATURE);
+  }
+
+  @Test
+  void shouldAppendViolationOfCheapVerifiers() {
+    mockPolicy();
+    mockRequestAttributes();
+    changeset.setSignatures(new ArrayList<>());
+
+    changesetEnricher.enrich(HalEnricherContext.of(repository, changeset), halAppender);
+
+    SignatureComplianceDto dto = captureCompliance();
+    assertThat(dto.isCompliant()).isFalse();
+    assertThat(dto.getReason()).isEqualTo(InvalidSignatureException.Reason.MISSING_SIGNATURE);
+  }
+
+  @Test
+  void shouldNotRunExpensiveVerifiersLazily() {
+    mockPolicy();
+    mockRequestAttributes();
+    changeset.setSignatures(new ArrayList<>(List.of(
+      new Signature("key", "gpg", SignatureStatus.INVALID, "trillian", Collections.emptySet())
+    )));
+
+    changesetEnricher.enrich(HalEnricherContext.of(repository, changeset), halAppender);
+
+    verifyNoInteractions(halAppender);
+  }
+
+  @Test
+  void shouldLimitLazyComputationsPerRequest() {
+    mockPolicy();
+    mockRequestAttributes();
+
+    for (int i = 0; i <= ChangesetEnricher.MAX_LAZY_COMPUTATIONS_PER_REQUEST; i++) {
+      Changeset unsigned = new Changeset();
+      unsigned.setId("unsigned-" + i);
+      unsigned.setSignatures(new ArrayList<>());
+      changesetEnricher.enrich(HalEnricherContext.of(repository, unsigned), halAppender);
+    }
+
+    ArgumentCaptor<SignatureComplianceDto> captor = ArgumentCaptor.forClass(SignatureComplianceDto.class);
+    verify(halAppender, times(ChangesetEnricher.MAX_LAZY_COMPUTATIONS_PER_REQUEST)).appendEmbedded(eq("signatureCompliance"), captor.capture());
+  }
+
+  private void mockPolicy() {
+    mockPolicy(new SignatureExistsVerifier(), new ValidSignatureVerifier());
+  }
+
+  private void mockPolicy(Verifier... verifiers) {
+    ChangesetVerifier changesetVerifier = new ChangesetVerifier(Set.of(verifiers));
+    when(policyCompiler.getPolicy(repository)).thenReturn(new SignaturePolicy(config, config, changesetVerifier));
+  }
+
+  private void mockRequestAttributes() {
+    Map<String, Object> attributes = new HashMap<>();
+    when(request.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+    doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+      .when(request).setAttribute(anyString(), any());
+  }
+
+  private SignatureComplianceDto captureCompliance() {
+    ArgumentCaptor<SignatureComplianceDto> captor = ArgumentCaptor.forClass(SignatureComplianceDto.class);
+    verify(halAppender).appendEmbedded(eq("signatureCompliance"), captor.capture());
+    return captor.getValue();
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import org.junit.jupiter.api.Test;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangesetVerifierTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle("git");
+  private final BaseSignatureConfig config = new BaseSignatureConfig();
+  private final List<String> calls = new ArrayList<>();
+
+  @Test
+  void shouldRunCheapVerifiersForAllChangesetsBeforePushVerifiers() {
+    ChangesetVerifier verifier = new ChangesetVerifier(Set.of(
+      new RecordingVerifier("push", 5, Verifier.Scope.PUSH),
+      new RecordingVerifier("cheap", 2, Verifier.Scope.CHANGESET),
+      new RecordingVerifier("cheaper", 1, Verifier.Scope.CHANGESET),
+      new RecordingVerifier("expensive", 50, Verifier.Scope.CHANGESET)
+    ));
+
+    verifier.compile(config).verifyCheap(repository, List.of(changeset("1"), changeset("2")));
+
+    assertThat(calls).containsExactly("cheaper:1", "cheap:1", "cheaper:2", "cheap:2", "push:1,2");
+  }
+
+  @Test
+  void shouldRunExpensiveVerifiersOrderedByCost() {
+    ChangesetVerifier verifier = new ChangesetVerifier(Set.of(
+      new RecordingVerifier("cheap", 1, Verifier.Scope.CHANGESET),
+      new RecordingVerifier("costly", 100, Verifier.Scope.CHANGESET),
+      new RecordingVerifier("expensive", 50, Verifier.Scope.CHANGESET)
+    ));
+
+    verifier.compile(config).verifyExpensive(repository, changeset("1"));
+
+    assertThat(calls).containsExactly("expensive:1", "costly:1");
+  }
+
+  @Test
+  void shouldShortCircuitOnFirstFailure() {
+    ChangesetVerifier verifier = new ChangesetVerifier(Set.of(
+      new SignatureExistsVerifier(),
+      new RecordingVerifier("expensive", 50, Verifier.Scope.CHANGESET)
+    ));
+
+    assertThatThrownBy(() -> verifier.verify(changeset("1"), repository, config))
+      .isInstanceOf(InvalidSignatureException.class)
+      .hasMessage("Changeset is missing a signature");
+    assertThat(calls).isEmpty();
+  }
+
+  @Test
+  void shouldSkipVerifiersWhichDoNotApplyToConfig() {
+    config.setVerificationType(GpgVerificationType.ANY_SIGNATURE);
+    ChangesetVerifier verifier = new ChangesetVerifier(Set.of(
+      new ScmUserSignatureVerifier(user -> false),
+      new RecordingVerifier("expensive", 50, Verifier.Scope.CHANGESET)
+    ));
+
+    verifier.verify(changeset("1"), repository, config);
+
+    assertThat(calls).containsExactly("expensive:1");
+  }
+
+  @Test
+  void shouldTreatViolationsWithoutReasonAsPolicyViolation() {
+    ChangesetVerifier verifier = new ChangesetVerifier(Set.of(new Verifier() {
+      @Override
+      public int getCost() {
+        return 1;
+      }
+
+      @Override
+      public Scope getScope() {
+        return Scope.CHANGESET;
+      }
+
+      @Override
+      public void verify(Repository repository, Changeset changeset, BaseSignatureConfig config) {
+        throw new InvalidSignatureException(repository, changeset, null, "Changeset violates a custom rule");
+      }
+    }));
+
+    assertThatThrownBy(() -> verifier.verify(changeset("1"), repository, config))
+      .isInstanceOfSatisfying(InvalidSignatureException.class, e -> {
+        assertThat(e.getReason()).isEqualTo(InvalidSignatureException.Reason.POLICY_VIOLATION);
+        assertThat(RejectionReason.of(e.getReason())).isEqualTo(RejectionReason.POLICY_VIOLATION);
+      });
+  }
+
+  private Changeset changeset(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    return changeset;
+  }
+
+  private class RecordingVerifier implements Verifier {
+
+    private final String name;
+    private final int cost;
+    private final Scope scope;
+
+    private RecordingVerifier(String name, int cost, Scope scope) {
+      this.name = name;
+      this.cost = cost;
+      this.scope = scope;
+    }
+
+    @Override
+    public int getCost() {
+      return cost;
+    }
+
+    @Override
+    public Scope getScope() {
+      return scope;
+    }
+
+    @Override
+    public void verify(Repository repository, Changeset changeset, BaseSignatureConfig config) {
+      calls.add(name + ":" + changeset.getId());
+    }
+
+    @Override
+    public void verify(Repository repository, List<Changeset> changesets, BaseSignatureConfig config) {
+      calls.add(name + ":" + String.join(",", changesets.stream().map(Changeset::getId).toList()));
+    }
+  }
+}
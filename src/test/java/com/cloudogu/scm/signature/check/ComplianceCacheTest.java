@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ComplianceCacheTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle("git");
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicLong nanos = new AtomicLong();
+  private final ComplianceCache cache = new ComplianceCache(meterRegistry, new Ticker() {
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+  });
+
+  @Test
+  void shouldComputeMissesOnlyOnce() {
+    AtomicInteger computations = new AtomicInteger();
+
+    for (int i = 0; i < 3; i++) {
+      cache.get(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, () -> {
+        computations.incrementAndGet();
+        return SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE);
+      });
+    }
+
+    assertThat(computations.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldKeepResultsPerVerificationType() {
+    cache.put(repository, "abc", 1L, SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE));
+
+    SignatureCompliance compliance = cache.get(repository, "abc", 1L, GpgVerificationType.SCM_USER_SIGNATURE, () ->
+      new SignatureCompliance(GpgVerificationType.SCM_USER_SIGNATURE, false, InvalidSignatureException.Reason.UNTRUSTED_SIGNATURE, "untrusted")
+    );
+
+    assertThat(compliance.isCompliant()).isFalse();
+    assertThat(cache.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldIgnoreResultsOfOlderConfigVersions() {
+    cache.put(repository, "abc", 1L, SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE));
+
+    SignatureCompliance compliance = cache.get(repository, "abc", 2L, GpgVerificationType.ANY_SIGNATURE, () ->
+      new SignatureCompliance(GpgVerificationType.ANY_SIGNATURE, false, InvalidSignatureException.Reason.MISSING_SIGNATURE, "missing")
+    );
+
+    assertThat(compliance.isCompliant()).isFalse();
+    assertThat(cache.get(repository, "abc", 2L, GpgVerificationType.ANY_SIGNATURE, () -> null).isCompliant()).isFalse();
+  }
+
+  @Test
+  void shouldNotCacheUndecidedResults() {
+    assertThat(cache.get(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, () -> null)).isNull();
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void shouldInvalidateAllVerificationTypes() {
+    cache.put(repository, "abc", 1L, SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE));
+    cache.put(repository, "abc", 1L, SignatureCompliance.compliant(GpgVerificationType.SCM_USER_SIGNATURE));
+
+    cache.invalidate(repository, "abc");
+
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  void shouldExpireResults() {
+    cache.put(repository, "abc", 1L, SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE));
+    nanos.addAndGet(ComplianceCache.TTL.toNanos() + 1);
+
+    SignatureCompliance compliance = cache.get(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, () ->
+      new SignatureCompliance(GpgVerificationType.ANY_SIGNATURE, false, InvalidSignatureException.Reason.MISSING_SIGNATURE, "missing")
+    );
+
+    assertThat(compliance.isCompliant()).isFalse();
+  }
+
+  @Test
+  void shouldSkipComputationsAboveLimit() throws Exception {
+    CountDownLatch running = new CountDownLatch(ComplianceCache.MAX_LAZY_COMPUTATIONS);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(ComplianceCache.MAX_LAZY_COMPUTATIONS);
+    try {
+      List<Future<SignatureCompliance>> blocked = new ArrayList<>();
+      for (int i = 0; i < ComplianceCache.MAX_LAZY_COMPUTATIONS; i++) {
+        String changesetId = "blocked-" + i;
+        blocked.add(executor.submit(() -> cache.get(repository, changesetId, 1L, GpgVerificationType.ANY_SIGNATURE, () -> {
+          running.countDown();
+          await(release);
+          return SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE);
+        })));
+      }
+      assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+      SignatureCompliance skipped = cache.get(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, () ->
+        SignatureCompliance.compliant(GpgVerificationType.ANY_SIGNATURE)
+      );
+      release.countDown();
+
+      assertThat(skipped).isNull();
+      assertThat(meterRegistry.get(ComplianceCache.SKIPPED_COUNTER).counter().count()).isEqualTo(1);
+      for (Future<SignatureCompliance> future : blocked) {
+        assertThat(future.get(5, TimeUnit.SECONDS).isCompliant()).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.store.InMemoryByteDataStoreFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeferredSignatureVerifierTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle("git");
+  private final PendingVerificationStore pendingStore = new PendingVerificationStore(new InMemoryByteDataStoreFactory());
+
+  @Mock
+  private KeyCommitIndex keyCommitIndex;
+
+  @Mock
+  private ScmUserIndex userIndex;
+
+  @Mock
+  private SignatureViolationStore violationStore;
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private CommitLookup commitLookup;
+
+  @Mock
+  private PolicyCompiler policyCompiler;
+
+  @Mock
+  private SignaturePolicy policy;
+
+  private DeferredSignatureVerifier deferredSignatureVerifier;
+
+  @BeforeEach
+  void setUp() {
+    deferredSignatureVerifier = new DeferredSignatureVerifier(
+      new ChangesetVerifier(Set.of(
+        new SignatureExistsVerifier(),
+        new ValidSignatureVerifier(),
+        new ScmUserSignatureVerifier(userIndex)
+      )),
+      violationStore,
+      keyCommitIndex,
+      repositoryManager,
+      commitLookup,
+      policyCompiler,
+      pendingStore,
+      new SimpleMeterRegistry(),
+      MoreExecutors.newDirectExecutorService()
+    );
+  }
+
+  @Test
+  void shouldFlagChangesetWithoutSignature() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+
+    deferredSignatureVerifier.enqueue(repository, enabledConfig(), List.of(unsigned));
+
+    verify(violationStore).flag(repository, "unsigned", "Changeset is missing a signature");
+  }
+
+  @Test
+  void shouldNotFlagSignedChangeset() {
+    Changeset signed = new Changeset();
+    signed.setId("signed");
+    signed.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.VERIFIED, null, Collections.emptySet()))
+    );
+
+    deferredSignatureVerifier.enqueue(repository, enabledConfig(), List.of(signed));
+
+    verify(violationStore, never()).flag(eq(repository), anyString(), anyString());
+    verify(keyCommitIndex).record(repository, List.of(signed));
+  }
+
+  @Test
+  void shouldRemovePersistedChangesetsAfterVerification() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    List<PendingVerification> persisted = new ArrayList<>();
+    doAnswer(invocation -> {
+      persisted.addAll(pendingStore.getAll().values());
+      return null;
+    }).when(violationStore).flag(repository, "unsigned", "Changeset is missing a signature");
+
+    deferredSignatureVerifier.enqueue(repository, enabledConfig(), List.of(unsigned));
+
+    assertThat(persisted)
+      .containsExactly(new PendingVerification(repository.getId(), PendingVerification.Origin.TIMEOUT, GpgVerificationType.ANY_SIGNATURE, List.of("unsigned")));
+    assertThat(pendingStore.getAll()).isEmpty();
+  }
+
+  @Test
+  void shouldResumePersistedChangesetsAfterRestart() throws IOException {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    pendingStore.add(repository, PendingVerification.Origin.TIMEOUT, GpgVerificationType.ANY_SIGNATURE, List.of(unsigned));
+    pendingStore.add(repository, PendingVerification.Origin.HISTORY_IMPORT, GpgVerificationType.ANY_SIGNATURE, List.of(unsigned));
+    when(repositoryManager.get(repository.getId())).thenReturn(repository);
+    when(commitLookup.readSignatures(repository, List.of("unsigned"))).thenReturn(List.of(unsigned));
+    when(policyCompiler.getPolicy(repository)).thenReturn(policy);
+    when(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).thenReturn(enabledConfig());
+
+    deferredSignatureVerifier.resume();
+
+    verify(violationStore).flag(repository, "unsigned", "Changeset is missing a signature");
+    assertThat(pendingStore.getAll().values())
+      .extracting(PendingVerification::getOrigin)
+      .containsExactly(PendingVerification.Origin.HISTORY_IMPORT);
+  }
+
+  @Test
+  void shouldVerifyPendingChangesetsAgainstCurrentConfig() throws IOException {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    BaseSignatureConfig config = enabledConfig();
+    when(repositoryManager.get(repository.getId())).thenReturn(repository);
+    when(commitLookup.readSignatures(repository, List.of("unsigned"))).thenReturn(List.of(unsigned));
+    when(policyCompiler.getPolicy(repository)).thenReturn(policy);
+    when(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).thenReturn(config);
+
+    deferredSignatureVerifier.verifyPending(pending("unsigned"));
+
+    verify(violationStore).flag(repository, "unsigned", "Changeset is missing a signature");
+  }
+
+  @Test
+  void shouldSkipPendingChangesetsOfDeletedRepository() throws IOException {
+    deferredSignatureVerifier.verifyPending(pending("unsigned"));
+
+    verifyNoInteractions(commitLookup, violationStore, keyCommitIndex);
+  }
+
+  private PendingVerification pending(String... commitIds) {
+    return new PendingVerification(repository.getId(), PendingVerification.Origin.HISTORY_IMPORT, GpgVerificationType.ANY_SIGNATURE, List.of(commitIds));
+  }
+
+  private BaseSignatureConfig enabledConfig() {
+    BaseSignatureConfig config = new BaseSignatureConfig();
+    config.setEnabled(true);
+    return config;
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.InMemoryByteDataStoreFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryImportVerifierTest {
+
+  private final Repository repository = new Repository("hog", "git", "hitchhiker", "HeartOfGold");
+  private final GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+  private final BaseSignatureConfig config = new BaseSignatureConfig();
+  private final PendingVerificationStore pendingStore = new PendingVerificationStore(new InMemoryByteDataStoreFactory());
+
+  private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+    1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>()
+  );
+
+  @Mock
+  private DeferredSignatureVerifier deferredSignatureVerifier;
+
+  @Mock
+  private SignaturePolicy policy;
+
+  private HistoryImportVerifier verifier;
+
+  @BeforeEach
+  void setUpVerifier() {
+    verifier = new HistoryImportVerifier(deferredSignatureVerifier, pendingStore, new SimpleMeterRegistry(), executor);
+  }
+
+  @Test
+  void shouldVerifyHistoryInChunks() throws InterruptedException {
+    when(policy.getGlobalConfig()).thenReturn(globalConfig);
+    when(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).thenReturn(config);
+
+    verifier.enqueue(repository, policy, Map.of(GpgVerificationType.ANY_SIGNATURE, changesets(HistoryImportVerifier.CHUNK_SIZE + 1)));
+    awaitExecutor();
+
+    verify(deferredSignatureVerifier, times(2)).verify(eq(repository), eq(config), anyList());
+    assertThat(verifier.isPending(repository)).isFalse();
+    assertThat(pendingStore.getAll()).isEmpty();
+  }
+
+  @Test
+  void shouldPersistChunksUntilTheyAreVerified() throws InterruptedException {
+    when(policy.getGlobalConfig()).thenReturn(globalConfig);
+    when(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).thenReturn(config);
+    CountDownLatch latch = new CountDownLatch(1);
+    doAnswer(ic -> {
+      latch.await();
+      return null;
+    }).when(deferredSignatureVerifier).verify(any(), any(), anyList());
+
+    verifier.enqueue(repository, policy, Map.of(GpgVerificationType.ANY_SIGNATURE, changesets(2)));
+
+    assertThat(pendingStore.getAll().values())
+      .containsExactly(new PendingVerification(repository.getId(), PendingVerification.Origin.HISTORY_IMPORT, GpgVerificationType.ANY_SIGNATURE, List.of("c0", "c1")));
+    latch.countDown();
+    awaitExecutor();
+    assertThat(pendingStore.getAll()).isEmpty();
+  }
+
+  @Test
+  void shouldResumePersistedChunksAfterRestart() throws Exception {
+    pendingStore.add(repository, PendingVerification.Origin.HISTORY_IMPORT, GpgVerificationType.ANY_SIGNATURE, changesets(2));
+    pendingStore.add(repository, PendingVerification.Origin.TIMEOUT, GpgVerificationType.ANY_SIGNATURE, changesets(1));
+    CountDownLatch latch = new CountDownLatch(1);
+    doAnswer(ic -> {
+      latch.await();
+      return null;
+    }).when(deferredSignatureVerifier).verifyPending(any());
+
+    verifier.resume();
+
+    assertThat(verifier.isPending(repository)).isTrue();
+    latch.countDown();
+    awaitExecutor();
+    verify(deferredSignatureVerifier).verifyPending(argThat(pending -> pending.getOrigin() == PendingVerification.Origin.HISTORY_IMPORT));
+    assertThat(verifier.isPending(repository)).isFalse();
+    assertThat(pendingStore.getAll().values())
+      .extracting(PendingVerification::getOrigin)
+      .containsExactly(PendingVerification.Origin.TIMEOUT);
+  }
+
+  @Test
+  void shouldFlagRepositoryUntilVerificationIsFinished() throws InterruptedException {
+    when(policy.getGlobalConfig()).thenReturn(globalConfig);
+    when(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).thenReturn(config);
+    CountDownLatch latch = new CountDownLatch(1);
+    doAnswer(ic -> {
+      latch.await();
+      return null;
+    }).when(deferredSignatureVerifier).verify(any(), any(), anyList());
+
+    verifier.enqueue(repository, policy, Map.of(GpgVerificationType.ANY_SIGNATURE, changesets(1)));
+
+    assertThat(verifier.isPending(repository)).isTrue();
+    latch.countDown();
+    awaitExecutor();
+    assertThat(verifier.isPending(repository)).isFalse();
+  }
+
+  @Test
+  void shouldUseConfiguredNumberOfThreads() throws InterruptedException {
+    globalConfig.setHistoryVerificationThreads(4);
+    when(policy.getGlobalConfig()).thenReturn(globalConfig);
+    when(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).thenReturn(config);
+
+    verifier.enqueue(repository, policy, Map.of(GpgVerificationType.ANY_SIGNATURE, changesets(1)));
+    awaitExecutor();
+
+    assertThat(executor.getMaximumPoolSize()).isEqualTo(4);
+    assertThat(executor.getCorePoolSize()).isEqualTo(4);
+  }
+
+  @Test
+  void shouldIgnoreEmptyHistory() {
+    verifier.enqueue(repository, policy, Map.of());
+
+    assertThat(verifier.isPending(repository)).isFalse();
+  }
+
+  private List<Changeset> changesets(int count) {
+    List<Changeset> changesets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Changeset changeset = new Changeset();
+      changeset.setId("c" + i);
+      changesets.add(changeset);
+    }
+    return changesets;
+  }
+
+  private void awaitExecutor() throws InterruptedException {
+    executor.shutdown();
+    assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightVerificationsTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle("git");
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final ComplianceCache complianceCache = new ComplianceCache(meterRegistry);
+  private final InFlightVerifications inFlightVerifications = new InFlightVerifications(meterRegistry, complianceCache);
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  private final CountDownLatch started = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @AfterEach
+  void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldReuseResultOfRunningVerification() throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+
+    Future<?> first = executor.submit(() -> verify(() -> {
+      executions.incrementAndGet();
+      blockUntilReleased();
+    }));
+    started.await(5, TimeUnit.SECONDS);
+    Future<?> second = executor.submit(() -> verify(executions::incrementAndGet));
+    awaitDeduplication();
+    release.countDown();
+
+    first.get(5, TimeUnit.SECONDS);
+    second.get(5, TimeUnit.SECONDS);
+    assertThat(executions.get()).isEqualTo(1);
+    assertThat(inFlightVerifications.size()).isZero();
+  }
+
+  @Test
+  void shouldPropagateFailureToWaitingVerification() throws Exception {
+    Changeset changeset = new Changeset();
+    changeset.setId("abc");
+
+    Future<?> first = executor.submit(() -> verify(() -> {
+      blockUntilReleased();
+      throw new InvalidSignatureException(repository, changeset, InvalidSignatureException.Reason.MISSING_SIGNATURE, "Changeset is missing a signature");
+    }));
+    started.await(5, TimeUnit.SECONDS);
+    Future<?> second = executor.submit(() -> verify(() -> {}));
+    awaitDeduplication();
+    release.countDown();
+
+    assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(InvalidSignatureException.class);
+    assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(InvalidSignatureException.class);
+    assertThat(inFlightVerifications.size()).isZero();
+  }
+
+  @Test
+  void shouldNotShareResultsBetweenVerificationTypes() {
+    AtomicInteger executions = new AtomicInteger();
+
+    inFlightVerifications.verify(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, executions::incrementAndGet);
+    inFlightVerifications.verify(repository, "abc", 1L, GpgVerificationType.SCM_USER_SIGNATURE, executions::incrementAndGet);
+
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(inFlightVerifications.size()).isZero();
+  }
+
+  @Test
+  void shouldCacheComplianceOfVerifiedChangesets() {
+    Changeset changeset = new Changeset();
+    changeset.setId("def");
+
+    inFlightVerifications.verify(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, () -> {});
+    assertThatThrownBy(() -> inFlightVerifications.verify(repository, "def", 1L, GpgVerificationType.ANY_SIGNATURE, () -> {
+      throw new InvalidSignatureException(repository, changeset, InvalidSignatureException.Reason.INVALID_SIGNATURE, "Changeset has an invalid signature");
+    })).isInstanceOf(InvalidSignatureException.class);
+
+    assertThat(complianceCache.get(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, () -> null).isCompliant()).isTrue();
+    SignatureCompliance violation = complianceCache.get(repository, "def", 1L, GpgVerificationType.ANY_SIGNATURE, () -> null);
+    assertThat(violation.isCompliant()).isFalse();
+    assertThat(violation.getReason()).isEqualTo(InvalidSignatureException.Reason.INVALID_SIGNATURE);
+  }
+
+  private void verify(Runnable verification) {
+    inFlightVerifications.verify(repository, "abc", 1L, GpgVerificationType.ANY_SIGNATURE, verification);
+  }
+
+  private void blockUntilReleased() {
+    started.countDown();
+    try {
+      release.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void awaitDeduplication() throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (deduplicated() < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+  }
+
+  private double deduplicated() {
+    return meterRegistry.get("scm.signature.check.verifications.deduplicated").counter().count();
+  }
+}
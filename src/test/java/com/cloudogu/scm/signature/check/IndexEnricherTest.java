@@ -33,8 +33,10 @@ import sonia.scm.api.v2.resources.ScmPathInfoStore;
 import jakarta.inject.Provider;
 import java.net.URI;
 
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith({MockitoExtension.class, ShiroExtension.class})
 @SubjectAware("TrainerRed")
@@ -62,7 +64,7 @@ class IndexEnricherTest {
   @Test
   void shouldNotAddGlobalConfigLinkBecauseOfMissingPermission() {
     indexEnricher.enrich(halEnricherContext, halAppender);
-    verifyNoInteractions(halAppender);
+    verify(halAppender, never()).appendLink(eq("globalSignatureConfig"), anyString());
   }
 
   @Test
@@ -75,4 +77,12 @@ class IndexEnricherTest {
     );
   }
 
+  @Test
+  void shouldAddBadgesLink() {
+    indexEnricher.enrich(halEnricherContext, halAppender);
+
+    verify(halAppender).appendLink(
+      "signatureCheckBadges", "https://scm-manager.org/scm/api/v2/signature-check/badges"
+    );
+  }
 }
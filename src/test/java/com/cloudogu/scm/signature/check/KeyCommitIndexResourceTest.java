@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("TrainerRed")
+class KeyCommitIndexResourceTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private KeyCommitIndex keyCommitIndex;
+
+  @Mock
+  private RemovedKeyFlagger removedKeyFlagger;
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  private RestDispatcher dispatcher;
+
+  @BeforeEach
+  void init() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new KeyCommitIndexResource(keyCommitIndex, removedKeyFlagger, repositoryManager, scmPathInfoStore));
+  }
+
+  @Test
+  void shouldRejectQueryWithoutPermission() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/keys/0x42/commits"));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verifyNoInteractions(keyCommitIndex);
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:read:signatureCheck")
+  void shouldReturnCommitsOfKey() throws URISyntaxException {
+    SignedCommits signedCommits = new SignedCommits();
+    signedCommits.add(repository.getId(), List.of("1", "2"));
+    signedCommits.add("deleted", List.of("3"));
+    when(keyCommitIndex.find("0x42")).thenReturn(Optional.of(signedCommits));
+    when(repositoryManager.get(repository.getId())).thenReturn(repository);
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/keys/0x42/commits"));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode root = response.getContentAsJson();
+    assertThat(root.get("keyId").asText()).isEqualTo("0x42");
+    assertThat(root.get("repositories")).hasSize(1);
+    assertThat(root.get("repositories").get(0).get("name").asText()).isEqualTo(repository.getName());
+    assertThat(root.get("repositories").get(0).get("commitIds")).hasSize(2);
+    assertThat(root.get("_links").has("flag")).isFalse();
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:read,write:signatureCheck")
+  void shouldAppendFlagLinkWithWritePermission() throws URISyntaxException {
+    when(keyCommitIndex.find("0x42")).thenReturn(Optional.empty());
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/keys/0x42/commits"));
+
+    assertThat(response.getContentAsJson().get("_links").get("flag").get("href").asText())
+      .isEqualTo("https://scm-manager.org/scm/api/v2/signature-check/keys/0x42/flag");
+  }
+
+  @Test
+  void shouldRejectFlaggingWithoutPermission() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.post("/v2/signature-check/keys/0x42/flag"));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verifyNoInteractions(removedKeyFlagger);
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:write:signatureCheck")
+  void shouldFlagCommitsOfKey() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.post("/v2/signature-check/keys/0x42/flag"));
+
+    assertThat(response.getStatus()).isEqualTo(204);
+    verify(removedKeyFlagger).flag("0x42");
+  }
+
+  private JsonMockHttpResponse invoke(MockHttpRequest request) {
+    JsonMockHttpResponse response = new JsonMockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}
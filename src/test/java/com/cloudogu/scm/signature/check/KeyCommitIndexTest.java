@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.InMemoryByteDataStoreFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class KeyCommitIndexTest {
+
+  private final Repository heartOfGold = new Repository("hog", "git", "hitchhiker", "HeartOfGold");
+  private final Repository puzzle = new Repository("42", "git", "hitchhiker", "42Puzzle");
+
+  private final InMemoryByteDataStoreFactory dataStoreFactory = new InMemoryByteDataStoreFactory();
+  private final KeyCommitIndex index = new KeyCommitIndex(dataStoreFactory, MoreExecutors.newDirectExecutorService());
+
+  @Test
+  void shouldIndexCommitsWithVerifiedSignatures() {
+    index.record(heartOfGold, List.of(
+      changeset("1", SignatureStatus.VERIFIED, "0x42"),
+      changeset("2", SignatureStatus.NOT_FOUND, "0x42"),
+      changeset("3", SignatureStatus.VERIFIED, "0x21")
+    ));
+
+    assertThat(index.getKeyIds()).containsOnly("0x42", "0x21");
+    SignedCommits signedCommits = index.find("0x42").orElseThrow();
+    assertThat(signedCommits.getRepositories()).hasSize(1);
+    assertThat(signedCommits.getRepositories().get(0).getRepositoryId()).isEqualTo(heartOfGold.getId());
+    assertThat(signedCommits.getRepositories().get(0).getCommitIds()).containsExactly("1");
+  }
+
+  @Test
+  void shouldMergeCommitsOfSeveralPushes() {
+    index.record(heartOfGold, List.of(changeset("1", SignatureStatus.VERIFIED, "0x42")));
+    index.record(heartOfGold, List.of(
+      changeset("1", SignatureStatus.VERIFIED, "0x42"),
+      changeset("2", SignatureStatus.VERIFIED, "0x42")
+    ));
+    index.record(puzzle, List.of(changeset("1", SignatureStatus.VERIFIED, "0x42")));
+
+    SignedCommits signedCommits = index.find("0x42").orElseThrow();
+    assertThat(signedCommits.getRepositories()).hasSize(2);
+    assertThat(signedCommits.getRepositories().get(0).getCommitIds()).containsExactly("1", "2");
+    assertThat(signedCommits.getRepositories().get(1).getCommitIds()).containsExactly("1");
+  }
+
+  @Test
+  void shouldIgnoreUnsignedChangesets() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("1");
+
+    index.record(heartOfGold, List.of(unsigned));
+
+    assertThat(index.getKeyIds()).isEmpty();
+  }
+
+  @Test
+  void shouldRemoveKey() {
+    index.record(heartOfGold, List.of(changeset("1", SignatureStatus.VERIFIED, "0x42")));
+
+    index.remove("0x42");
+
+    assertThat(index.find("0x42")).isEmpty();
+  }
+
+  @Test
+  void shouldAppendCommitsToNewChunkIfLastChunkIsFull() {
+    index.record(heartOfGold, changesets("a", KeyCommitIndex.CHUNK_SIZE));
+    index.record(heartOfGold, changesets("b", 1));
+    index.record(puzzle, changesets("c", 1));
+
+    DataStore<SignedCommits> store = store();
+    assertThat(store.getAll()).containsOnlyKeys("0x42", "0x42~1");
+    assertThat(store.get("0x42").countCommits()).isEqualTo(KeyCommitIndex.CHUNK_SIZE);
+    assertThat(store.get("0x42~1").countCommits()).isEqualTo(2);
+    assertThat(index.getKeyIds()).containsOnly("0x42");
+  }
+
+  @Test
+  void shouldFindCommitsOfAllChunks() {
+    index.record(heartOfGold, changesets("a", KeyCommitIndex.CHUNK_SIZE));
+    index.record(heartOfGold, changesets("b", 1));
+    index.record(puzzle, changesets("c", 1));
+
+    SignedCommits signedCommits = index.find("0x42").orElseThrow();
+    assertThat(signedCommits.getRepositories()).hasSize(2);
+    assertThat(signedCommits.getRepositories().get(0).getCommitIds()).hasSize(KeyCommitIndex.CHUNK_SIZE + 1).contains("b0");
+    assertThat(signedCommits.getRepositories().get(1).getCommitIds()).containsExactly("c0");
+  }
+
+  @Test
+  void shouldContinueLastChunkWrittenBeforeRestart() {
+    index.record(heartOfGold, changesets("a", KeyCommitIndex.CHUNK_SIZE));
+    index.record(heartOfGold, changesets("b", 1));
+
+    new KeyCommitIndex(dataStoreFactory, MoreExecutors.newDirectExecutorService())
+      .record(heartOfGold, changesets("c", 1));
+
+    assertThat(store().getAll()).containsOnlyKeys("0x42", "0x42~1");
+    assertThat(store().get("0x42~1").countCommits()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRemoveAllChunksOfKey() {
+    index.record(heartOfGold, changesets("a", KeyCommitIndex.CHUNK_SIZE));
+    index.record(heartOfGold, changesets("b", 1));
+
+    index.remove("0x42");
+    index.record(heartOfGold, changesets("c", 1));
+
+    assertThat(store().getAll()).containsOnlyKeys("0x42");
+    assertThat(index.find("0x42").orElseThrow().getRepositories().get(0).getCommitIds()).containsExactly("c0");
+  }
+
+  @Test
+  void shouldWriteQueuedUpdatesInTheBackground() {
+    ExecutorService executor = mock(ExecutorService.class);
+    KeyCommitIndex backgroundIndex = new KeyCommitIndex(new InMemoryByteDataStoreFactory(), executor);
+
+    backgroundIndex.record(heartOfGold, List.of(changeset("1", SignatureStatus.VERIFIED, "0x42")));
+    backgroundIndex.record(puzzle, List.of(changeset("2", SignatureStatus.VERIFIED, "0x42")));
+
+    assertThat(backgroundIndex.getKeyIds()).isEmpty();
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(2)).execute(task.capture());
+    task.getAllValues().get(0).run();
+
+    SignedCommits signedCommits = backgroundIndex.find("0x42").orElseThrow();
+    assertThat(signedCommits.getRepositories()).hasSize(2);
+    // the second task finds nothing left to write
+    task.getAllValues().get(1).run();
+    assertThat(backgroundIndex.find("0x42").orElseThrow().getRepositories()).hasSize(2);
+  }
+
+  private DataStore<SignedCommits> store() {
+    return dataStoreFactory.withType(SignedCommits.class).withName(KeyCommitIndex.STORE_NAME).build();
+  }
+
+  private List<Changeset> changesets(String prefix, int count) {
+    List<Changeset> changesets = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      changesets.add(changeset(prefix + i, SignatureStatus.VERIFIED, "0x42"));
+    }
+    return changesets;
+  }
+
+  private Changeset changeset(String id, SignatureStatus status, String keyId) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    changeset.setSignatures(List.of(new Signature(keyId, "gpg", status, null, Collections.emptySet())));
+    return changeset;
+  }
+}
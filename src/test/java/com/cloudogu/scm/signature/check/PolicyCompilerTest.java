@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.InMemoryByteConfigurationStoreFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PolicyCompilerTest {
+
+  private final Repository repository = new Repository("hog", "git", "hitchhiker", "HeartOfGold");
+
+  @Mock
+  private NamespaceManager namespaceManager;
+
+  private SignatureConfigService signatureConfigService;
+  private PolicyCompiler policyCompiler;
+
+  @BeforeEach
+  void setUp() {
+    signatureConfigService = new SignatureConfigService(new InMemoryByteConfigurationStoreFactory());
+    when(namespaceManager.get(anyString())).thenAnswer(ic -> Optional.of(new Namespace(ic.getArgument(0))));
+    policyCompiler = new PolicyCompiler(
+      signatureConfigService,
+      namespaceManager,
+      new ConfigEvaluator(),
+      new ChangesetVerifier(Set.of(new SignatureExistsVerifier()))
+    );
+  }
+
+  @Test
+  void shouldReuseCompiledPolicyWhileConfigIsUnchanged() {
+    SignaturePolicy first = policyCompiler.getPolicy(repository);
+
+    assertThat(policyCompiler.getPolicy(repository)).isSameAs(first);
+  }
+
+  @Test
+  void shouldRecompilePolicyAfterConfigChange() {
+    SignaturePolicy first = policyCompiler.getPolicy(repository);
+    assertThat(first.isEnabled()).isFalse();
+
+    GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+    globalConfig.setEnabled(true);
+    signatureConfigService.setGlobalConfig(globalConfig);
+
+    SignaturePolicy second = policyCompiler.getPolicy(repository);
+    assertThat(second).isNotSameAs(first);
+    assertThat(second.isEnabled()).isTrue();
+  }
+
+  @Test
+  void shouldRecompilePolicyAfterNamespaceChange() {
+    NamespaceSignatureConfig namespaceConfig = new NamespaceSignatureConfig();
+    namespaceConfig.setOverwriteParentConfig(true);
+    namespaceConfig.setEnabled(true);
+    signatureConfigService.setNamespaceConfig(new Namespace("vogons"), namespaceConfig);
+    assertThat(policyCompiler.getPolicy(repository).isEnabled()).isFalse();
+
+    repository.setNamespace("vogons");
+
+    assertThat(policyCompiler.getPolicy(repository).isEnabled()).isTrue();
+  }
+
+  @Test
+  void shouldUseRepositoryConfig() {
+    RepositorySignatureConfig repoConfig = new RepositorySignatureConfig();
+    repoConfig.setOverwriteParentConfig(true);
+    repoConfig.setEnabled(true);
+    repoConfig.setVerificationTimeout(2);
+    signatureConfigService.setRepoConfig(repository, repoConfig);
+
+    SignaturePolicy policy = policyCompiler.getPolicy(repository);
+
+    assertThat(policy.getConfig()).isEqualTo(repoConfig);
+    assertThat(policy.getBudgetNanos()).isEqualTo(2_000_000_000L);
+  }
+
+  @Test
+  void shouldProtectAllBranchesWithoutProtectedBranches() {
+    SignaturePolicy policy = policyWithProtectedBranches(new ArrayList<>());
+
+    assertThat(policy.isProtected(Set.of("feature"))).isTrue();
+  }
+
+  @Test
+  void shouldMatchSingleProtectedBranch() {
+    SignaturePolicy policy = policyWithProtectedBranches(List.of("main"));
+
+    assertThat(policy.isProtected(Set.of("feature", "main"))).isTrue();
+    assertThat(policy.isProtected(Set.of("feature"))).isFalse();
+  }
+
+  @Test
+  void shouldMatchAnyOfSeveralProtectedBranches() {
+    SignaturePolicy policy = policyWithProtectedBranches(List.of("main", "develop"));
+
+    assertThat(policy.isProtected(List.of("feature", "develop"))).isTrue();
+    assertThat(policy.isProtected(List.of("feature"))).isFalse();
+  }
+
+  @Test
+  void shouldProtectBranchesMatchingBranchRule() {
+    GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+    globalConfig.setEnabled(true);
+    globalConfig.setProtectedBranches(List.of("main"));
+    globalConfig.setBranchRules(List.of(new BranchRule("release/*", GpgVerificationType.SCM_USER_SIGNATURE)));
+    signatureConfigService.setGlobalConfig(globalConfig);
+
+    SignaturePolicy policy = policyCompiler.getPolicy(repository);
+
+    assertThat(policy.resolveVerificationType(Set.of("release/1.0"))).isEqualTo(GpgVerificationType.SCM_USER_SIGNATURE);
+    assertThat(policy.resolveVerificationType(Set.of("main"))).isEqualTo(GpgVerificationType.ANY_SIGNATURE);
+    assertThat(policy.isProtected(Set.of("feature"))).isFalse();
+  }
+
+  @Test
+  void shouldResolveBranchesRepeatedly() {
+    SignaturePolicy policy = policyWithProtectedBranches(List.of("main"));
+
+    for (int i = 0; i < 2; i++) {
+      assertThat(policy.resolveBranch("main")).isEqualTo(GpgVerificationType.ANY_SIGNATURE);
+      assertThat(policy.resolveBranch("feature")).isNull();
+    }
+  }
+
+  @Test
+  void shouldResolveBranchesBeyondMemoLimit() {
+    SignaturePolicy policy = policyWithProtectedBranches(List.of("main"));
+    for (int i = 0; i < SignaturePolicy.MAX_RESOLVED_BRANCHES; i++) {
+      policy.resolveBranch("feature/" + i);
+    }
+
+    assertThat(policy.resolveBranch("main")).isEqualTo(GpgVerificationType.ANY_SIGNATURE);
+    assertThat(policy.resolveBranch("feature/x")).isNull();
+  }
+
+  @Test
+  void shouldCompileConfigPerVerificationType() {
+    SignaturePolicy policy = policyWithProtectedBranches(List.of());
+
+    assertThat(policy.getConfig(GpgVerificationType.SCM_USER_SIGNATURE).getVerificationType())
+      .isEqualTo(GpgVerificationType.SCM_USER_SIGNATURE);
+    assertThat(policy.getConfig(GpgVerificationType.ANY_SIGNATURE)).isSameAs(policy.getConfig());
+  }
+
+  private SignaturePolicy policyWithProtectedBranches(List<String> protectedBranches) {
+    GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+    globalConfig.setEnabled(true);
+    globalConfig.setProtectedBranches(protectedBranches);
+    signatureConfigService.setGlobalConfig(globalConfig);
+    return policyCompiler.getPolicy(repository);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.security.GPG;
+import sonia.scm.security.PublicKey;
+import sonia.scm.store.InMemoryByteDataStoreFactory;
+import sonia.scm.web.security.AdministrationContext;
+import sonia.scm.web.security.PrivilegedAction;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RemovedKeyFlaggerTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private SignatureViolationStore violationStore;
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private SignatureConfigService signatureConfigService;
+
+  @Mock
+  private GPG gpg;
+
+  @Mock
+  private AdministrationContext administrationContext;
+
+  private final GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+
+  private KeyCommitIndex keyCommitIndex;
+  private RemovedKeyFlagger flagger;
+
+  @BeforeEach
+  void setUp() {
+    lenient().doAnswer(ic -> {
+      ic.getArgument(0, PrivilegedAction.class).run();
+      return null;
+    }).when(administrationContext).runAsAdmin(any(PrivilegedAction.class));
+    lenient().when(signatureConfigService.getGlobalConfig()).thenReturn(globalConfig);
+    lenient().when(repositoryManager.get(repository.getId())).thenReturn(repository);
+
+    keyCommitIndex = new KeyCommitIndex(new InMemoryByteDataStoreFactory(), MoreExecutors.newDirectExecutorService());
+    flagger = new RemovedKeyFlagger(
+      keyCommitIndex,
+      violationStore,
+      repositoryManager,
+      signatureConfigService,
+      gpg,
+      administrationContext,
+      new SimpleMeterRegistry(),
+      mock(ScheduledExecutorService.class)
+    );
+  }
+
+  @Test
+  void shouldFlagIndexedCommitsOfKey() {
+    keyCommitIndex.record(repository, List.of(signed("1", "0x42"), signed("2", "0x42"), signed("3", "0x21")));
+
+    int flagged = flagger.flag("0x42");
+
+    assertThat(flagged).isEqualTo(2);
+    verify(violationStore).flag(repository, "1", "Changeset was signed with removed key 0x42");
+    verify(violationStore).flag(repository, "2", "Changeset was signed with removed key 0x42");
+  }
+
+  @Test
+  void shouldNotFlagAnythingForUnknownKey() {
+    assertThat(flagger.flag("0x42")).isZero();
+    verifyNoInteractions(violationStore);
+  }
+
+  @Test
+  void shouldNotFlagAutomaticallyIfDisabled() {
+    keyCommitIndex.record(repository, List.of(signed("1", "0x42")));
+
+    flagger.flagCommitsOfRemovedKeys();
+
+    verifyNoInteractions(gpg, violationStore);
+  }
+
+  @Test
+  void shouldFlagCommitsOfRemovedKeysAutomatically() {
+    globalConfig.setFlagCommitsOfRemovedKeys(true);
+    keyCommitIndex.record(repository, List.of(signed("1", "0x42"), signed("2", "0x21")));
+    when(gpg.findPublicKey("0x42")).thenReturn(Optional.empty());
+    when(gpg.findPublicKey("0x21")).thenReturn(Optional.of(mock(PublicKey.class)));
+
+    flagger.flagCommitsOfRemovedKeys();
+
+    verify(violationStore).flag(repository, "1", "Changeset was signed with removed key 0x42");
+    assertThat(keyCommitIndex.getKeyIds()).containsOnly("0x21");
+  }
+
+  private Changeset signed(String id, String keyId) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    changeset.setSignatures(List.of(new Signature(keyId, "gpg", SignatureStatus.VERIFIED, null, Collections.emptySet())));
+    return changeset;
+  }
+}
@@ -60,6 +60,9 @@ class RepositoryEnricherTest {
   @Mock
   private NamespaceManager namespaceManager;
 
+  @Mock
+  private HistoryImportVerifier historyImportVerifier;
+
   private HalEnricherContext halEnricherContext;
 
   private RepositoryEnricher repositoryEnricher;
@@ -70,7 +73,7 @@ class RepositoryEnricherTest {
     scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
     Provider<ScmPathInfoStore> scmPathInfoStoreProvider = Providers.of(scmPathInfoStore);
 
-    repositoryEnricher = new RepositoryEnricher(scmPathInfoStoreProvider, signatureConfigService, namespaceManager);
+    repositoryEnricher = new RepositoryEnricher(scmPathInfoStoreProvider, signatureConfigService, namespaceManager, historyImportVerifier);
     halEnricherContext = HalEnricherContext.of(repository);
   }
 
@@ -137,4 +140,16 @@ class RepositoryEnricherTest {
       "https://scm-manager.org/scm/api/v2/signature-check/" + repository.getNamespace() + "/" + repository.getName()
     );
   }
+
+  @Test
+  void shouldFlagRepositoryWithPendingHistoryVerification() {
+    when(historyImportVerifier.isPending(repository)).thenReturn(true);
+    GlobalSignatureConfig globalSignatureConfig = new GlobalSignatureConfig();
+    globalSignatureConfig.setChildrenConfigDisabled(true);
+    when(signatureConfigService.getGlobalConfig()).thenReturn(globalSignatureConfig);
+
+    repositoryEnricher.enrich(halEnricherContext, halAppender);
+
+    verify(halAppender).appendEmbedded("signatureHistoryVerification", new HistoryVerificationDto(true));
+  }
 }
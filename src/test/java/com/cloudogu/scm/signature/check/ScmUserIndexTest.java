@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.user.User;
+import sonia.scm.user.UserEvent;
+import sonia.scm.user.UserManager;
+import sonia.scm.web.security.AdministrationContext;
+import sonia.scm.web.security.PrivilegedAction;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ScmUserIndexTest {
+
+  @Mock
+  private UserManager userManager;
+
+  @Mock
+  private AdministrationContext administrationContext;
+
+  private ScmUserIndex userIndex;
+
+  @BeforeEach
+  void setUp() {
+    lenient().doAnswer(ic -> {
+      ic.getArgument(0, PrivilegedAction.class).run();
+      return null;
+    }).when(administrationContext).runAsAdmin(any(PrivilegedAction.class));
+    userIndex = createIndex();
+  }
+
+  @Test
+  void shouldBuildIndexOnStartup() {
+    User trillian = new User("trillian");
+    User marvin = new User("marvin");
+    marvin.setActive(false);
+    when(userManager.getAll()).thenReturn(List.of(trillian, marvin));
+
+    userIndex = createIndex();
+
+    assertThat(userIndex.isActiveUser("trillian")).isTrue();
+    assertThat(userIndex.isActiveUser("marvin")).isFalse();
+    verify(userManager, times(0)).get(any());
+  }
+
+  @Test
+  void shouldLookupUnknownUserOnlyOnce() {
+    when(userManager.get("trillian")).thenReturn(new User("trillian"));
+
+    assertThat(userIndex.isActiveUser("trillian")).isTrue();
+    assertThat(userIndex.isActiveUser("trillian")).isTrue();
+
+    verify(userManager, times(1)).get("trillian");
+  }
+
+  @Test
+  void shouldTreatMissingUserAsInactive() {
+    assertThat(userIndex.isActiveUser("zaphod")).isFalse();
+  }
+
+  @Test
+  void shouldNotCacheMissingUsers() {
+    assertThat(userIndex.isActiveUser("zaphod")).isFalse();
+    when(userManager.get("zaphod")).thenReturn(new User("zaphod"));
+
+    assertThat(userIndex.isActiveUser("zaphod")).isTrue();
+  }
+
+  @Test
+  void shouldUpdateIndexOnUserEvents() {
+    when(userManager.get("trillian")).thenReturn(new User("trillian"));
+    assertThat(userIndex.isActiveUser("trillian")).isTrue();
+
+    User deactivated = new User("trillian");
+    deactivated.setActive(false);
+    userIndex.onUserEvent(new UserEvent(HandlerEventType.MODIFY, deactivated));
+    assertThat(userIndex.isActiveUser("trillian")).isFalse();
+
+    userIndex.onUserEvent(new UserEvent(HandlerEventType.CREATE, new User("marvin")));
+    assertThat(userIndex.isActiveUser("marvin")).isTrue();
+
+    userIndex.onUserEvent(new UserEvent(HandlerEventType.DELETE, new User("marvin")));
+    assertThat(userIndex.isActiveUser("marvin")).isFalse();
+  }
+
+  private ScmUserIndex createIndex() {
+    return new ScmUserIndex(userManager, administrationContext, Runnable::run);
+  }
+
+  @Test
+  void shouldIgnoreBeforeEvents() {
+    User deactivated = new User("trillian");
+    deactivated.setActive(false);
+    userIndex.onUserEvent(new UserEvent(HandlerEventType.BEFORE_CREATE, deactivated));
+    when(userManager.get("trillian")).thenReturn(new User("trillian"));
+
+    assertThat(userIndex.isActiveUser("trillian")).isTrue();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.event.ScmEventBus;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class SignatureCheckEventDispatcherTest {
+
+  @Mock
+  private ScmEventBus eventBus;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @Test
+  void shouldPostEvent() {
+    SignatureCheckEventDispatcher dispatcher = new SignatureCheckEventDispatcher(
+      eventBus, meterRegistry, MoreExecutors.newDirectExecutorService()
+    );
+    Object event = new Object();
+
+    dispatcher.dispatch(event);
+
+    verify(eventBus).post(event);
+  }
+
+  @Test
+  void shouldNotPropagateFailuresOfTheEventBus() {
+    SignatureCheckEventDispatcher dispatcher = new SignatureCheckEventDispatcher(
+      eventBus, meterRegistry, MoreExecutors.newDirectExecutorService()
+    );
+    doThrow(new IllegalStateException("failed")).when(eventBus).post(any());
+
+    dispatcher.dispatch(new Object());
+
+    verify(eventBus).post(any());
+  }
+
+  @Test
+  void shouldCountDroppedEvents() {
+    ExecutorService executor = mock(ExecutorService.class);
+    doThrow(new RejectedExecutionException()).when(executor).execute(any());
+    SignatureCheckEventDispatcher dispatcher = new SignatureCheckEventDispatcher(eventBus, meterRegistry, executor);
+
+    dispatcher.dispatch(new Object());
+
+    verifyNoInteractions(eventBus);
+    assertThat(meterRegistry.counter("scm.signature.check.events.dropped").count()).isEqualTo(1);
+  }
+}
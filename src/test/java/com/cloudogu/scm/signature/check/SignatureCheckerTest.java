@@ -16,18 +16,37 @@
 
 package com.cloudogu.scm.signature.check;
 
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.audit.AuditLog;
+import com.cloudogu.scm.signature.check.audit.AuditRecord;
 import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.BranchRule;
 import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
 import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
 import com.cloudogu.scm.signature.check.config.GpgVerificationType;
 import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
 import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
 import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import com.cloudogu.scm.signature.check.recording.PushRecorder;
+import com.cloudogu.scm.signature.check.rejection.RejectionHistory;
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import com.cloudogu.scm.signature.check.stats.SignatureCheckStatistics;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCounters;
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.group.GroupCollector;
+import sonia.scm.repository.Branch;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.Namespace;
 import sonia.scm.repository.NamespaceManager;
@@ -38,18 +57,35 @@ import sonia.scm.repository.Signature;
 import sonia.scm.repository.SignatureStatus;
 import sonia.scm.repository.api.HookChangesetBuilder;
 import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
-@ExtendWith({MockitoExtension.class})
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("trillian")
 class SignatureCheckerTest {
 
   private final Repository repository = RepositoryTestData.create42Puzzle("git");
@@ -59,9 +95,16 @@ class SignatureCheckerTest {
   private final NamespaceSignatureConfig namespaceConfig = new NamespaceSignatureConfig();
   private final RepositorySignatureConfig repoConfig = new RepositorySignatureConfig();
 
-  @InjectMocks
   private SignatureChecker signatureChecker;
 
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Mock
+  private KeyCommitIndex keyCommitIndex;
+
+  @Mock
+  private ScmUserIndex userIndex;
+
   @Mock
   private SignatureConfigService signatureConfigService;
 
@@ -80,6 +123,83 @@ class SignatureCheckerTest {
   @Mock
   private HookChangesetBuilder changesetBuilder;
 
+  @Mock
+  private DeferredSignatureVerifier deferredSignatureVerifier;
+
+  @Mock
+  private CommitInspector commitInspector;
+
+  @Mock
+  private RepositoryServiceFactory repositoryServiceFactory;
+
+  @Mock
+  private GroupCollector groupCollector;
+
+  @Mock
+  private HistoryImportVerifier historyImportVerifier;
+
+  @Mock
+  private AuditLog auditLog;
+
+  @Mock
+  private RejectionHistory rejectionHistory;
+
+  @Mock
+  private SignatureCheckEventDispatcher eventDispatcher;
+
+  @Mock
+  private SignatureCheckStatistics statistics;
+
+  @Mock
+  private SignedCommitCounters signedCommitCounters;
+
+  @Mock
+  private PushRecorder pushRecorder;
+
+  @Captor
+  private ArgumentCaptor<AuditRecord> auditRecord;
+
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private RepositoryService repositoryService;
+
+  @BeforeEach
+  void setUpChecker() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PolicyCompiler policyCompiler = new PolicyCompiler(
+      signatureConfigService,
+      namespaceManager,
+      configEvaluator,
+      new ChangesetVerifier(Set.of(
+        new SignatureExistsVerifier(),
+        new ValidSignatureVerifier(),
+        new ScmUserSignatureVerifier(userIndex)
+      ))
+    );
+    signatureChecker = new SignatureChecker(
+      policyCompiler,
+      deferredSignatureVerifier,
+      new VerificationBulkhead(meterRegistry, namespaceManager),
+      new InFlightVerifications(meterRegistry, new ComplianceCache(meterRegistry)),
+      new CommitLookup(Set.of(commitInspector), repositoryServiceFactory),
+      keyCommitIndex,
+      historyImportVerifier,
+      groupCollector,
+      auditLog,
+      rejectionHistory,
+      eventDispatcher,
+      statistics,
+      signedCommitCounters,
+      pushRecorder,
+      meterRegistry,
+      new Ticker() {
+        @Override
+        public long read() {
+          return nanoTime.get();
+        }
+      }
+    );
+  }
+
   @Test
   void shouldDoNothingBecauseRepoTypeIsHg() {
     when(event.getRepository()).thenReturn(RepositoryTestData.create42Puzzle("hg"));
@@ -115,6 +235,34 @@ class SignatureCheckerTest {
     verifyConfigMocks();
   }
 
+  @Test
+  void shouldRecordPushesWithoutActiveSignatureCheck() {
+    setupEventMocks(List.of(signedChangeset("signed")));
+    when(pushRecorder.isRecording(any())).thenReturn(true);
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(false);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(pushRecorder).record(eq(repository), any(), argThat(pushed -> pushed.size() == 1), eq(Set.of()), eq(AuditDecision.ACCEPTED), eq(0L));
+    verifyNoInteractions(auditLog);
+  }
+
+  @Test
+  void shouldNotReadChangesetsWithoutActiveSignatureCheckIfNotRecording() {
+    when(event.getRepository()).thenReturn(repository);
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(false);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(event, never()).getContext();
+  }
+
   @Test
   void shouldCheckForAnySignaturesButSignaturesNotSetForChangeset() {
     Changeset invalidChangeset = new Changeset();
@@ -268,6 +416,7 @@ class SignatureCheckerTest {
       new Signature("keyId", "gpg", SignatureStatus.VERIFIED, "scmadmin", Collections.emptySet()))
     );
     setupEventMocks(List.of(validChangeset));
+    when(userIndex.isActiveUser("scmadmin")).thenReturn(true);
 
     BaseSignatureConfig activeConfig = new BaseSignatureConfig();
     activeConfig.setEnabled(true);
@@ -278,6 +427,28 @@ class SignatureCheckerTest {
     signatureChecker.onPush(event);
 
     verifyConfigMocks();
+    verify(keyCommitIndex).record(repository, List.of(validChangeset));
+  }
+
+  @Test
+  void shouldRejectVerifiedSignatureFromInactiveScmUser() {
+    Changeset changeset = new Changeset();
+    changeset.setId("changeset");
+    changeset.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.VERIFIED, "marvin", Collections.emptySet()))
+    );
+    setupEventMocks(List.of(changeset));
+    when(userIndex.isActiveUser("marvin")).thenReturn(false);
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(new ArrayList<>(0));
+    activeConfig.setVerificationType(GpgVerificationType.SCM_USER_SIGNATURE);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class)
+      .hasMessage("Changeset does not have a valid signature from a scm user");
   }
 
   @Test
@@ -324,7 +495,491 @@ class SignatureCheckerTest {
     verifyConfigMocks();
   }
 
-  private void setupEventMocks(List<Changeset> changesets) {
+  @Test
+  void shouldVerifyChangesetAgainstUnionOfItsBranches() {
+    Changeset viaFeature = new Changeset();
+    viaFeature.setId("invalidChangeset");
+    viaFeature.setBranches(List.of("feature"));
+    viaFeature.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.INVALID, null, Collections.emptySet()))
+    );
+    Changeset viaProtected = new Changeset();
+    viaProtected.setId("invalidChangeset");
+    viaProtected.setBranches(List.of("protected"));
+    setupEventMocks(List.of(viaFeature, viaProtected));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(List.of("protected"));
+    activeConfig.setVerificationType(GpgVerificationType.ANY_SIGNATURE);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class)
+      .hasMessage("Changeset has invalid signature");
+  }
+
+  @Test
+  void shouldApplyVerificationTypeOfMatchingBranchRule() {
+    Changeset changeset = new Changeset();
+    changeset.setId("changeset");
+    changeset.setBranches(List.of("develop"));
+    changeset.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.NOT_FOUND, null, Collections.emptySet()))
+    );
+    setupEventMocks(List.of(changeset));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(List.of("main"));
+    activeConfig.setVerificationType(GpgVerificationType.SCM_USER_SIGNATURE);
+    activeConfig.setBranchRules(List.of(new BranchRule("develop", GpgVerificationType.ANY_SIGNATURE)));
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verifyNoInteractions(userIndex);
+  }
+
+  @Test
+  void shouldApplyStrictestVerificationTypeOfAllBranches() {
+    Changeset changeset = new Changeset();
+    changeset.setId("changeset");
+    changeset.setBranches(List.of("develop", "main"));
+    changeset.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.NOT_FOUND, null, Collections.emptySet()))
+    );
+    setupEventMocks(List.of(changeset));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(List.of("main"));
+    activeConfig.setVerificationType(GpgVerificationType.SCM_USER_SIGNATURE);
+    activeConfig.setBranchRules(List.of(new BranchRule("develop", GpgVerificationType.ANY_SIGNATURE)));
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class)
+      .hasMessage("Changeset does not have a valid signature from a scm user");
+  }
+
+  @Test
+  void shouldSkipVerificationForExemptUser() {
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setExemptUsers(List.of("trillian"));
+    when(event.getRepository()).thenReturn(repository);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(event, never()).getContext();
+    verifyNoInteractions(groupCollector);
+    verify(signedCommitCounters).discard(repository);
+  }
+
+  @Test
+  void shouldSkipVerificationForMemberOfExemptGroup() {
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setExemptGroups(List.of("bots"));
+    when(event.getRepository()).thenReturn(repository);
+    when(groupCollector.collect("trillian")).thenReturn(Set.of("_authenticated", "bots"));
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(event, never()).getContext();
+  }
+
+  @Test
+  void shouldVerifyPushOfUserWhoIsNotExempt() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(unsigned));
+    when(groupCollector.collect("trillian")).thenReturn(Set.of("_authenticated"));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setExemptUsers(List.of("dent"));
+    activeConfig.setExemptGroups(List.of("bots"));
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+  }
+
+  @Test
+  void shouldDeferVerificationOfInitialHistory() throws IOException {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    unsigned.setBranches(List.of("main"));
+    Changeset feature = new Changeset();
+    feature.setId("feature");
+    feature.setBranches(List.of("feature"));
+    setupEventMocks(List.of(unsigned, feature));
+    globalConfig.setDeferHistoryImports(true);
+    globalConfig.setHistoryImportUsers(List.of("trillian"));
+    when(repositoryServiceFactory.create(repository)).thenReturn(repositoryService);
+    when(repositoryService.getBranchesCommand().setDisableCache(true).getBranches().getBranches()).thenReturn(List.of());
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(List.of("main"));
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(historyImportVerifier).enqueue(
+      eq(repository),
+      any(SignaturePolicy.class),
+      eq(Map.of(GpgVerificationType.ANY_SIGNATURE, List.of(unsigned)))
+    );
+  }
+
+  @Test
+  void shouldVerifyInitialPushOfUserWhichIsNoImportUser() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(unsigned));
+    globalConfig.setDeferHistoryImports(true);
+    globalConfig.setHistoryImportUsers(List.of("mirror"));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+    verifyNoInteractions(historyImportVerifier);
+    verifyNoInteractions(repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldVerifyPushIntoRepositoryWithHistory() throws IOException {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(unsigned));
+    globalConfig.setDeferHistoryImports(true);
+    globalConfig.setHistoryImportUsers(List.of("trillian"));
+    when(repositoryServiceFactory.create(repository)).thenReturn(repositoryService);
+    when(repositoryService.getBranchesCommand().setDisableCache(true).getBranches().getBranches())
+      .thenReturn(List.of(Branch.normalBranch("main", "42")));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+    verifyNoInteractions(historyImportVerifier);
+  }
+
+  @Test
+  void shouldAuditAcceptedPush() {
+    Changeset changeset = signedChangeset("signed");
+    setupEventMocks(List.of(changeset));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(auditLog).publish(auditRecord.capture());
+    AuditRecord record = auditRecord.getValue();
+    assertThat(record.getRepositoryId()).isEqualTo(repository.getId());
+    assertThat(record.getPusher()).isEqualTo("trillian");
+    assertThat(record.getDecision()).isEqualTo(AuditDecision.ACCEPTED);
+    assertThat(record.getRule()).isEqualTo("ANY_SIGNATURE");
+    assertThat(record.getCommitIds()).containsExactly("signed");
+    verify(pushRecorder).record(eq(repository), any(), argThat(pushed -> pushed.size() == 1), eq(Set.of()), eq(AuditDecision.ACCEPTED), anyLong());
+  }
+
+  @Test
+  void shouldAuditRejectedPush() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(signedChangeset("signed"), unsigned));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+
+    verify(auditLog).publish(auditRecord.capture());
+    AuditRecord record = auditRecord.getValue();
+    assertThat(record.getDecision()).isEqualTo(AuditDecision.REJECTED);
+    assertThat(record.getRule()).isEqualTo("ANY_SIGNATURE");
+    assertThat(record.getReason()).isEqualTo("Changeset is missing a signature");
+    assertThat(record.getCommitIds()).containsExactly("unsigned");
+    verify(rejectionHistory).record(repository, "trillian", "unsigned", "DDTuAVZpr1", "Changeset is missing a signature");
+  }
+
+  @Test
+  void shouldPrepareSignedCommitCountsOfAcceptedPush() {
+    Changeset signed = signedChangeset("signed");
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    unsigned.setBranches(List.of("feature/unprotected"));
+    setupEventMocks(List.of(signed, unsigned, signed));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(List.of("main"));
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(signedCommitCounters).prepare(repository, List.of(signed, unsigned));
+  }
+
+  @Test
+  void shouldNotPrepareSignedCommitCountsOfRejectedPush() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(unsigned));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+
+    verify(signedCommitCounters, never()).prepare(any(), any());
+  }
+
+  @Test
+  void shouldNotReplaceRejectionIfRecordingFails() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(unsigned));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+    doThrow(new IllegalStateException("recording failed"))
+      .when(pushRecorder).record(any(), any(), any(), any(), any(), anyLong());
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+  }
+
+  @Test
+  void shouldPublishPassedEventOncePerPush() {
+    setupEventMocks(List.of(signedChangeset("one"), signedChangeset("two")));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(eventDispatcher).dispatch(captor.capture());
+    assertThat(captor.getValue()).isInstanceOfSatisfying(SignatureCheckPassedEvent.class, passed -> {
+      assertThat(passed.getRepository()).isSameAs(repository);
+      assertThat(passed.getPusher()).isEqualTo("trillian");
+      assertThat(passed.getVerifiedChangesets()).isEqualTo(2);
+      assertThat(passed.getDeferredChangesets()).isZero();
+      assertThat(passed.getVerificationTypes()).containsExactly(GpgVerificationType.ANY_SIGNATURE);
+    });
+    verify(statistics).recordPassed(eq(repository), eq(2), anyLong());
+  }
+
+  @Test
+  void shouldPublishRejectedEvent() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(signedChangeset("signed"), unsigned));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(eventDispatcher).dispatch(captor.capture());
+    assertThat(captor.getValue()).isInstanceOfSatisfying(SignatureCheckRejectedEvent.class, rejected -> {
+      assertThat(rejected.getChangesetId()).isEqualTo("unsigned");
+      assertThat(rejected.getCode()).isEqualTo("DDTuAVZpr1");
+      assertThat(rejected.getCheckedChangesets()).isEqualTo(2);
+    });
+    verify(statistics).recordRejected(eq(repository), eq(2), eq(RejectionReason.MISSING_SIGNATURE), anyLong());
+  }
+
+  @Test
+  void shouldAuditExemptPush() {
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setExemptUsers(List.of("trillian"));
+    when(event.getRepository()).thenReturn(repository);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(auditLog).publish(auditRecord.capture());
+    assertThat(auditRecord.getValue().getDecision()).isEqualTo(AuditDecision.EXEMPT);
+    assertThat(auditRecord.getValue().getReason()).isEqualTo("exempt user");
+  }
+
+  @Test
+  void shouldSkipCommitsWhichAreAlreadyKnown() {
+    Changeset known = new Changeset();
+    known.setId("known");
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(known, unsigned));
+    when(commitInspector.isSupported(repository)).thenReturn(true);
+    when(commitInspector.findKnownCommits(eq(repository), eq(List.of("known", "unsigned")), any())).thenReturn(Set.of("known"));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setVerifyOnlyNewCommits(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class)
+      .hasMessage("Changeset is missing a signature")
+      .matches(e -> ((InvalidSignatureException) e).getContext().get(0).getId().equals("unsigned"));
+  }
+
+  @Test
+  void shouldOnlyTreatCommitsOfEquallyVerifiedBranchesAsKnown() {
+    Changeset changeset = new Changeset();
+    changeset.setId("signed");
+    changeset.setBranches(List.of("main"));
+    changeset.setSignatures(List.of(new Signature("keyId", "gpg", SignatureStatus.VERIFIED, "trillian", Collections.emptySet())));
+    setupEventMocks(List.of(changeset));
+    when(commitInspector.isSupported(repository)).thenReturn(true);
+    ArgumentCaptor<Predicate<String>> verifiedBranch = ArgumentCaptor.forClass(Predicate.class);
+    when(commitInspector.findKnownCommits(eq(repository), eq(List.of("signed")), verifiedBranch.capture())).thenReturn(Set.of());
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setVerifyOnlyNewCommits(true);
+    activeConfig.setProtectedBranches(List.of("main", "develop"));
+    activeConfig.setBranchRules(List.of(new BranchRule("main", GpgVerificationType.SCM_USER_SIGNATURE)));
+    setupConfigMocks(activeConfig);
+    when(userIndex.isActiveUser("trillian")).thenReturn(true);
+
+    signatureChecker.onPush(event);
+
+    assertThat(verifiedBranch.getValue().test("main")).isTrue();
+    assertThat(verifiedBranch.getValue().test("develop")).isFalse();
+    assertThat(verifiedBranch.getValue().test("feature/unprotected")).isFalse();
+  }
+
+  @Test
+  void shouldVerifyAllCommitsWithoutOption() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(unsigned));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+    verifyNoInteractions(commitInspector);
+  }
+
+  @Test
+  void shouldRejectPushIfTimeBudgetIsExceeded() {
+    Changeset first = new Changeset();
+    first.setId("first");
+    first.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.VERIFIED, null, Collections.emptySet()))
+    );
+    setupEventMocks(new SlowChangesets(List.of(first, signedChangeset("second"))));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setVerificationTimeout(1);
+    activeConfig.setTimeoutFallback(TimeoutFallback.REJECT);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(VerificationTimeoutException.class)
+      .hasMessageContaining("too large to verify signatures inline");
+
+    verifyNoInteractions(deferredSignatureVerifier);
+  }
+
+  @Test
+  void shouldDeferRemainingChangesetsIfTimeBudgetIsExceeded() {
+    Changeset first = new Changeset();
+    first.setId("first");
+    first.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.VERIFIED, null, Collections.emptySet()))
+    );
+    Changeset second = signedChangeset("second");
+    setupEventMocks(new SlowChangesets(List.of(first, second)));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setVerificationTimeout(1);
+    activeConfig.setTimeoutFallback(TimeoutFallback.ACCEPT_AND_VERIFY_LATER);
+    setupConfigMocks(activeConfig);
+
+    signatureChecker.onPush(event);
+
+    verify(deferredSignatureVerifier).enqueue(repository, activeConfig, List.of(first, second));
+  }
+
+  @Test
+  void shouldRejectUnsignedChangesetBeforeVerifyingAnySignature() {
+    Changeset invalid = new Changeset();
+    invalid.setId("invalid");
+    invalid.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.INVALID, null, Collections.emptySet()))
+    );
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(List.of(invalid, unsigned));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class)
+      .hasMessageContaining("missing a signature");
+  }
+
+  @Test
+  void shouldRejectUnsignedChangesetEvenIfTimeBudgetIsExceeded() {
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    setupEventMocks(new SlowChangesets(List.of(signedChangeset("first"), unsigned)));
+
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setVerificationTimeout(1);
+    activeConfig.setTimeoutFallback(TimeoutFallback.ACCEPT_AND_VERIFY_LATER);
+    setupConfigMocks(activeConfig);
+
+    assertThatThrownBy(() -> signatureChecker.onPush(event))
+      .isInstanceOf(InvalidSignatureException.class);
+    verifyNoInteractions(deferredSignatureVerifier);
+  }
+
+  private Changeset signedChangeset(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    changeset.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.VERIFIED, null, Collections.emptySet()))
+    );
+    return changeset;
+  }
+
+  private void setupEventMocks(Iterable<Changeset> changesets) {
     when(event.getRepository()).thenReturn(repository);
     when(event.getContext()).thenReturn(context);
     when(context.getChangesetProvider()).thenReturn(changesetBuilder);
@@ -347,4 +1002,32 @@ class SignatureCheckerTest {
     verify(configEvaluator).evaluate(globalConfig, namespaceConfig, repoConfig);
   }
 
+  /**
+   * Advances the fake ticker by two seconds for every changeset that is read.
+   */
+  private class SlowChangesets implements Iterable<Changeset> {
+
+    private final List<Changeset> changesets;
+
+    private SlowChangesets(List<Changeset> changesets) {
+      this.changesets = changesets;
+    }
+
+    @Override
+    public Iterator<Changeset> iterator() {
+      Iterator<Changeset> delegate = changesets.iterator();
+      return new Iterator<>() {
+        @Override
+        public boolean hasNext() {
+          return delegate.hasNext();
+        }
+
+        @Override
+        public Changeset next() {
+          nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(2));
+          return delegate.next();
+        }
+      };
+    }
+  }
 }
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check;
+
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VerificationBulkheadTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final NamespaceManager namespaceManager = mock(NamespaceManager.class);
+  private final VerificationBulkhead bulkhead = new VerificationBulkhead(meterRegistry, namespaceManager);
+
+  private final Repository heartOfGold = RepositoryTestData.createHeartOfGold("git");
+  private final Repository puzzle = RepositoryTestData.create42Puzzle("git");
+
+  @Test
+  void shouldNotLimitWithoutConfiguredMaximum() {
+    GlobalSignatureConfig config = new GlobalSignatureConfig();
+
+    VerificationBulkhead.Permit first = bulkhead.acquire(heartOfGold, config);
+    VerificationBulkhead.Permit second = bulkhead.acquire(heartOfGold, config);
+
+    first.close();
+    second.close();
+    assertThat(activeGauge()).isZero();
+  }
+
+  @Test
+  void shouldFailFastIfQueueIsFull() {
+    GlobalSignatureConfig config = limitedConfig();
+
+    try (VerificationBulkhead.Permit ignored = bulkhead.acquire(heartOfGold, config)) {
+      assertThat(activeGauge()).isEqualTo(1);
+      assertThatThrownBy(() -> bulkhead.acquire(puzzle, config))
+        .isInstanceOf(VerificationCapacityExceededException.class)
+        .hasMessageContaining("retry");
+    }
+
+    assertThat(activeGauge()).isZero();
+  }
+
+  @Test
+  void shouldReleasePermitOnClose() {
+    GlobalSignatureConfig config = limitedConfig();
+
+    bulkhead.acquire(heartOfGold, config).close();
+
+    try (VerificationBulkhead.Permit permit = bulkhead.acquire(puzzle, config)) {
+      assertThat(permit).isNotNull();
+    }
+  }
+
+  @Test
+  void shouldLimitPerNamespace() {
+    GlobalSignatureConfig config = limitedConfig();
+    config.setLimitConcurrencyPerNamespace(true);
+    Repository otherNamespace = RepositoryTestData.create42Puzzle("git");
+    otherNamespace.setNamespace("other");
+
+    try (VerificationBulkhead.Permit ignored = bulkhead.acquire(heartOfGold, config);
+         VerificationBulkhead.Permit other = bulkhead.acquire(otherNamespace, config)) {
+      assertThat(activeGauge()).isEqualTo(2);
+      assertThatThrownBy(() -> bulkhead.acquire(puzzle, config))
+        .isInstanceOf(VerificationCapacityExceededException.class);
+    }
+  }
+
+  @Test
+  void shouldCountHeldPermitsAgainstIncreasedLimit() {
+    GlobalSignatureConfig config = limitedConfig();
+
+    try (VerificationBulkhead.Permit ignored = bulkhead.acquire(heartOfGold, config)) {
+      config.setMaxConcurrentVerifications(2);
+      try (VerificationBulkhead.Permit other = bulkhead.acquire(puzzle, config)) {
+        assertThat(activeGauge()).isEqualTo(2);
+        assertThatThrownBy(() -> bulkhead.acquire(puzzle, config))
+          .isInstanceOf(VerificationCapacityExceededException.class);
+      }
+    }
+  }
+
+  @Test
+  void shouldCountHeldPermitsAgainstDecreasedLimit() {
+    GlobalSignatureConfig config = limitedConfig();
+    config.setMaxConcurrentVerifications(2);
+
+    VerificationBulkhead.Permit first = bulkhead.acquire(heartOfGold, config);
+    VerificationBulkhead.Permit second = bulkhead.acquire(puzzle, config);
+    config.setMaxConcurrentVerifications(1);
+    first.close();
+
+    assertThatThrownBy(() -> bulkhead.acquire(puzzle, config))
+      .isInstanceOf(VerificationCapacityExceededException.class);
+
+    second.close();
+    bulkhead.acquire(puzzle, config).close();
+  }
+
+  @Test
+  void shouldReportActivePermitsPerPool() {
+    GlobalSignatureConfig config = limitedConfig();
+    config.setLimitConcurrencyPerNamespace(true);
+
+    try (VerificationBulkhead.Permit ignored = bulkhead.acquire(heartOfGold, config)) {
+      assertThat(poolGauge(heartOfGold.getNamespace())).isEqualTo(1);
+    }
+
+    assertThat(poolGauge(heartOfGold.getNamespace())).isZero();
+  }
+
+  @Test
+  void shouldRemovePoolsIfLimitIsDisabled() {
+    GlobalSignatureConfig config = limitedConfig();
+    bulkhead.acquire(heartOfGold, config).close();
+
+    config.setMaxConcurrentVerifications(0);
+    bulkhead.acquire(heartOfGold, config).close();
+
+    assertThat(poolGauges()).isEmpty();
+  }
+
+  @Test
+  void shouldRemovePoolsIfModeChanges() {
+    GlobalSignatureConfig config = limitedConfig();
+    bulkhead.acquire(heartOfGold, config).close();
+
+    config.setLimitConcurrencyPerNamespace(true);
+    bulkhead.acquire(heartOfGold, config).close();
+
+    assertThat(poolGauges()).containsExactly(heartOfGold.getNamespace());
+  }
+
+  @Test
+  void shouldRemovePoolOfDeletedNamespace() {
+    GlobalSignatureConfig config = limitedConfig();
+    config.setLimitConcurrencyPerNamespace(true);
+    Repository otherNamespace = RepositoryTestData.create42Puzzle("git");
+    otherNamespace.setNamespace("other");
+    bulkhead.acquire(heartOfGold, config).close();
+    bulkhead.acquire(otherNamespace, config).close();
+    when(namespaceManager.get(heartOfGold.getNamespace())).thenReturn(Optional.of(new Namespace(heartOfGold.getNamespace())));
+    when(namespaceManager.get("other")).thenReturn(Optional.empty());
+
+    bulkhead.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, otherNamespace));
+
+    assertThat(poolGauges()).containsExactly(heartOfGold.getNamespace());
+  }
+
+  @Test
+  void shouldKeepPoolsOnCreate() {
+    GlobalSignatureConfig config = limitedConfig();
+    config.setLimitConcurrencyPerNamespace(true);
+    bulkhead.acquire(heartOfGold, config).close();
+    when(namespaceManager.get(heartOfGold.getNamespace())).thenReturn(Optional.empty());
+
+    bulkhead.onRepositoryEvent(new RepositoryEvent(HandlerEventType.CREATE, heartOfGold));
+
+    assertThat(poolGauges()).containsExactly(heartOfGold.getNamespace());
+  }
+
+  private GlobalSignatureConfig limitedConfig() {
+    GlobalSignatureConfig config = new GlobalSignatureConfig();
+    config.setMaxConcurrentVerifications(1);
+    config.setMaxQueuedVerifications(0);
+    return config;
+  }
+
+  private double activeGauge() {
+    return meterRegistry.get("scm.signature.check.verifications.active").gauge().value();
+  }
+
+  private double poolGauge(String pool) {
+    return meterRegistry.get("scm.signature.check.verifications.pool.active").tag("pool", pool).gauge().value();
+  }
+
+  private List<String> poolGauges() {
+    return meterRegistry.find("scm.signature.check.verifications.pool.active").gauges().stream()
+      .map(gauge -> gauge.getId().getTag("pool"))
+      .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.audit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditLogTest {
+
+  private final Instant now = Instant.parse("2024-06-01T12:00:00Z");
+
+  @TempDir
+  Path directory;
+
+  private SimpleMeterRegistry meterRegistry;
+  private AuditLog auditLog;
+
+  @BeforeEach
+  void setUpAuditLog() {
+    meterRegistry = new SimpleMeterRegistry();
+    auditLog = new AuditLog(
+      directory,
+      meterRegistry,
+      Clock.fixed(now, ZoneOffset.UTC),
+      Executors.newSingleThreadScheduledExecutor()
+    );
+  }
+
+  @Test
+  void shouldWriteRecordsAsJsonLines() throws IOException {
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.publish(record("puzzle", AuditDecision.REJECTED));
+
+    auditLog.flush();
+
+    List<Path> segments = auditLog.getSegments();
+    assertThat(segments).hasSize(1);
+    List<String> lines = Files.readAllLines(segments.get(0));
+    assertThat(lines).hasSize(2);
+    assertThat(lines.get(0))
+      .contains("\"repositoryId\":\"hog\"")
+      .contains("\"decision\":\"ACCEPTED\"")
+      .contains("\"timestamp\":" + now.toEpochMilli());
+    assertThat(lines.get(1)).contains("\"decision\":\"REJECTED\"");
+  }
+
+  @Test
+  void shouldAppendToCurrentSegment() throws IOException {
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.flush();
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.flush();
+
+    assertThat(auditLog.getSegments()).hasSize(1);
+    assertThat(Files.readAllLines(auditLog.getSegments().get(0))).hasSize(2);
+  }
+
+  @Test
+  void shouldCountDroppedRecords() {
+    for (int i = 0; i <= AuditLog.BUFFER_SIZE; i++) {
+      auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    }
+
+    assertThat(meterRegistry.counter("scm.signature.check.audit.dropped").count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRemoveExpiredSegments() throws IOException {
+    Path expired = directory.resolve("audit-00000000000000000001.log");
+    Files.writeString(expired, "{}\n");
+    Files.setLastModifiedTime(expired, FileTime.from(now.minus(AuditLog.RETENTION).minus(Duration.ofDays(1))));
+    Path recent = directory.resolve("audit-00000000000000000002.log");
+    Files.writeString(recent, "{}\n");
+    Files.setLastModifiedTime(recent, FileTime.from(now.minus(Duration.ofDays(1))));
+
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.flush();
+
+    assertThat(auditLog.getSegments())
+      .doesNotContain(expired)
+      .contains(recent)
+      .hasSize(2);
+  }
+
+  @Test
+  void shouldRemoveExpiredSegmentsWithoutRotation() throws IOException {
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.flush();
+    Path current = auditLog.getSegments().get(0);
+    Files.setLastModifiedTime(current, FileTime.from(now.minus(AuditLog.RETENTION).minus(Duration.ofDays(1))));
+
+    auditLog.removeExpiredSegments();
+
+    assertThat(auditLog.getSegments()).isEmpty();
+
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.flush();
+
+    assertThat(auditLog.getSegments()).hasSize(1);
+  }
+
+  @Test
+  void shouldLimitNumberOfSegments() throws IOException {
+    for (int i = 0; i < AuditLog.MAX_SEGMENTS; i++) {
+      Path segment = directory.resolve(String.format("audit-%020d.log", i));
+      Files.writeString(segment, "{}\n");
+    }
+
+    auditLog.publish(record("hog", AuditDecision.ACCEPTED));
+    auditLog.flush();
+
+    List<Path> segments = auditLog.getSegments();
+    assertThat(segments).hasSize(AuditLog.MAX_SEGMENTS);
+    assertThat(segments.get(0).getFileName()).hasToString(String.format("audit-%020d.log", 1));
+  }
+
+  private AuditRecord record(String repositoryId, AuditDecision decision) {
+    return new AuditRecord(0L, repositoryId, "trillian", decision, "ANY_SIGNATURE", null, List.of("42"), 1_000L);
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingBufferTest {
+
+  @Test
+  void shouldRoundCapacityToPowerOfTwo() {
+    assertThat(new AuditRingBuffer<String>(5).capacity()).isEqualTo(8);
+    assertThat(new AuditRingBuffer<String>(8).capacity()).isEqualTo(8);
+  }
+
+  @Test
+  void shouldDrainInOrder() {
+    AuditRingBuffer<String> buffer = new AuditRingBuffer<>(4);
+    buffer.offer("a");
+    buffer.offer("b");
+    buffer.offer("c");
+
+    List<String> drained = new ArrayList<>();
+    assertThat(buffer.drainTo(drained, 2)).isEqualTo(2);
+    assertThat(buffer.drainTo(drained, 2)).isEqualTo(1);
+
+    assertThat(drained).containsExactly("a", "b", "c");
+  }
+
+  @Test
+  void shouldRejectOffersIfFull() {
+    AuditRingBuffer<String> buffer = new AuditRingBuffer<>(2);
+
+    assertThat(buffer.offer("a")).isTrue();
+    assertThat(buffer.offer("b")).isTrue();
+    assertThat(buffer.offer("c")).isFalse();
+
+    buffer.drainTo(new ArrayList<>(), 1);
+    assertThat(buffer.offer("c")).isTrue();
+  }
+
+  @Test
+  void shouldNotLoseElementsOfConcurrentProducers() throws InterruptedException {
+    AuditRingBuffer<Integer> buffer = new AuditRingBuffer<>(4096);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int producer = 0; producer < 4; producer++) {
+      int offset = producer * 1000;
+      executor.execute(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        for (int i = 0; i < 1000; i++) {
+          buffer.offer(offset + i);
+        }
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+    List<Integer> drained = new ArrayList<>();
+    buffer.drainTo(drained, Integer.MAX_VALUE);
+
+    assertThat(drained).hasSize(4000).doesNotHaveDuplicates();
+  }
+}
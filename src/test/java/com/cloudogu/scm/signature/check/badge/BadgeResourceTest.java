@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.badge;
+
+import com.cloudogu.scm.signature.check.ChangesetVerifier;
+import com.cloudogu.scm.signature.check.PolicyCompiler;
+import com.cloudogu.scm.signature.check.SignaturePolicy;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCount;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCounters;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("TrainerRed")
+class BadgeResourceTest {
+
+  private final Repository heartOfGold = RepositoryTestData.createHeartOfGold("git");
+  private final Repository puzzle = RepositoryTestData.create42Puzzle("hg");
+  private final GlobalSignatureConfig config = new GlobalSignatureConfig();
+
+  @Mock
+  private PolicyCompiler policyCompiler;
+  @Mock
+  private SignedCommitCounters signedCommitCounters;
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  private RestDispatcher dispatcher;
+
+  @BeforeEach
+  void init() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new BadgeResource(policyCompiler, signedCommitCounters, repositoryManager, scmPathInfoStore));
+
+    config.setEnabled(true);
+    lenient().when(policyCompiler.getPolicy(heartOfGold))
+      .thenReturn(new SignaturePolicy(config, config, new ChangesetVerifier(Set.of())));
+    lenient().when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(heartOfGold);
+    lenient().when(repositoryManager.get(new NamespaceAndName("hitchhiker", "42Puzzle"))).thenReturn(puzzle);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:read:*")
+  void shouldReturnBadges() throws URISyntaxException {
+    when(signedCommitCounters.get(heartOfGold.getId())).thenReturn(Optional.of(new SignedCommitCount(4, 3)));
+
+    JsonMockHttpResponse response = invoke("{\"repositories\":[{\"namespace\":\"hitchhiker\",\"name\":\"HeartOfGold\"}]}");
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode badge = response.getContentAsJson().get("badges").get(0);
+    assertThat(badge.get("namespace").asText()).isEqualTo("hitchhiker");
+    assertThat(badge.get("name").asText()).isEqualTo("HeartOfGold");
+    assertThat(badge.get("enforced").asBoolean()).isTrue();
+    assertThat(badge.get("changesets").asLong()).isEqualTo(4);
+    assertThat(badge.get("signedChangesets").asLong()).isEqualTo(3);
+    assertThat(badge.get("signedRatio").asDouble()).isEqualTo(0.75);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:read:*")
+  void shouldReturnBadgeWithoutRatioForRepositoryWithoutCounters() throws URISyntaxException {
+    config.setEnabled(false);
+    when(signedCommitCounters.get(heartOfGold.getId())).thenReturn(Optional.empty());
+
+    JsonMockHttpResponse response = invoke("{\"repositories\":[{\"namespace\":\"hitchhiker\",\"name\":\"HeartOfGold\"}]}");
+
+    JsonNode badge = response.getContentAsJson().get("badges").get(0);
+    assertThat(badge.get("enforced").asBoolean()).isFalse();
+    assertThat(badge.get("signedRatio").isNull()).isTrue();
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:read:*")
+  void shouldLeaveOutUnknownAndNonGitRepositories() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(
+      "{\"repositories\":[{\"namespace\":\"hitchhiker\",\"name\":\"42Puzzle\"},{\"namespace\":\"hitchhiker\",\"name\":\"unknown\"}]}"
+    );
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsJson().get("badges")).isEmpty();
+  }
+
+  @Test
+  void shouldLeaveOutRepositoriesWithoutPermission() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke("{\"repositories\":[{\"namespace\":\"hitchhiker\",\"name\":\"HeartOfGold\"}]}");
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsJson().get("badges")).isEmpty();
+  }
+
+  @Test
+  void shouldRejectEmptyRequest() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke("{\"repositories\":[]}");
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  private JsonMockHttpResponse invoke(String body) throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.post("/v2/signature-check/badges")
+      .contentType("application/json")
+      .content(body.getBytes(StandardCharsets.UTF_8));
+    JsonMockHttpResponse response = new JsonMockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}
@@ -26,6 +26,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.api.v2.resources.ScmPathInfoStore;
@@ -156,7 +157,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           null,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -175,7 +182,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           protectedBranches,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -194,7 +207,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           protectedBranches,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -210,7 +229,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           List.of("main", "develop"),
-          null
+          null,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -224,7 +249,13 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("main"),
-        GpgVerificationType.ANY_SIGNATURE
+        GpgVerificationType.ANY_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        List.of(),
+        List.of()
       ));
 
       assertThat(response.getStatus()).isEqualTo(403);
@@ -241,7 +272,13 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("main", "develop"),
-        GpgVerificationType.SCM_USER_SIGNATURE
+        GpgVerificationType.SCM_USER_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        List.of(),
+        List.of()
       ));
 
       assertThat(response.getStatus()).isEqualTo(404);
@@ -256,7 +293,13 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("main", "develop"),
-        GpgVerificationType.SCM_USER_SIGNATURE
+        GpgVerificationType.SCM_USER_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        List.of(),
+        List.of()
       );
 
       RepositorySignatureConfig expectedConfig = new RepositorySignatureConfig();
@@ -317,7 +360,13 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("develop"),
-        GpgVerificationType.ANY_SIGNATURE
+        GpgVerificationType.ANY_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        List.of(),
+        List.of()
       ));
 
       assertThat(response.getStatus()).isEqualTo(403);
@@ -376,7 +425,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           null,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -395,7 +450,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           protectedBranches,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -414,7 +475,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           protectedBranches,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -430,7 +497,13 @@ class SignatureConfigResourceTest {
           true,
           true,
           List.of("main", "develop"),
-          null
+          null,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          List.of(),
+          List.of()
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -447,7 +520,13 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("main", "develop"),
-        GpgVerificationType.SCM_USER_SIGNATURE
+        GpgVerificationType.SCM_USER_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        List.of(),
+        List.of()
       ));
 
       assertThat(response.getStatus()).isEqualTo(404);
@@ -463,7 +542,13 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("main", "develop"),
-        GpgVerificationType.SCM_USER_SIGNATURE
+        GpgVerificationType.SCM_USER_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        List.of(),
+        List.of()
       );
 
       NamespaceSignatureConfig expectedConfig = new NamespaceSignatureConfig();
@@ -520,7 +605,22 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("develop"),
-        GpgVerificationType.ANY_SIGNATURE
+        GpgVerificationType.ANY_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        0,
+        false,
+        0,
+        10,
+        false,
+        List.of(),
+        List.of(),
+        false,
+        2,
+        List.of(),
+        false
       ));
 
       assertThat(response.getStatus()).isEqualTo(403);
@@ -563,7 +663,22 @@ class SignatureConfigResourceTest {
           true,
           true,
           null,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          0,
+          false,
+          0,
+          10,
+          false,
+          List.of(),
+          List.of(),
+          false,
+          2,
+          List.of(),
+          false
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -580,7 +695,22 @@ class SignatureConfigResourceTest {
           true,
           true,
           protectedBranches,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          0,
+          false,
+          0,
+          10,
+          false,
+          List.of(),
+          List.of(),
+          false,
+          2,
+          List.of(),
+          false
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -597,7 +727,22 @@ class SignatureConfigResourceTest {
           true,
           true,
           protectedBranches,
-          GpgVerificationType.SCM_USER_SIGNATURE
+          GpgVerificationType.SCM_USER_SIGNATURE,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          0,
+          false,
+          0,
+          10,
+          false,
+          List.of(),
+          List.of(),
+          false,
+          2,
+          List.of(),
+          false
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -611,7 +756,22 @@ class SignatureConfigResourceTest {
           true,
           true,
           List.of("main", "develop"),
-          null
+          null,
+          0,
+          TimeoutFallback.REJECT,
+          false,
+          new ArrayList<>(),
+          0,
+          false,
+          0,
+          10,
+          false,
+          List.of(),
+          List.of(),
+          false,
+          2,
+          List.of(),
+          false
         ));
 
       assertThat(response.getStatus()).isEqualTo(400);
@@ -625,7 +785,22 @@ class SignatureConfigResourceTest {
         true,
         true,
         List.of("main", "develop"),
-        GpgVerificationType.SCM_USER_SIGNATURE
+        GpgVerificationType.SCM_USER_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        new ArrayList<>(),
+        0,
+        false,
+        0,
+        10,
+        false,
+        List.of(),
+        List.of(),
+        false,
+        2,
+        List.of(),
+        false
       );
 
       GlobalSignatureConfig expectedConfig = new GlobalSignatureConfig();
@@ -642,6 +817,76 @@ class SignatureConfigResourceTest {
       );
     }
 
+    @Test
+    @SubjectAware(permissions = "configuration:write:signatureCheck")
+    void shouldSetGlobalConfigWithBranchRules() throws URISyntaxException, JsonProcessingException {
+      GlobalSignatureConfigDto configDto = new GlobalSignatureConfigDto(
+        false,
+        true,
+        List.of("main", "develop"),
+        GpgVerificationType.ANY_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        List.of(
+          new BranchRuleDto("main", GpgVerificationType.SCM_USER_SIGNATURE),
+          new BranchRuleDto("release/*", GpgVerificationType.SCM_USER_SIGNATURE)
+        ),
+        0,
+        false,
+        0,
+        10,
+        false,
+        List.of(),
+        List.of(),
+        false,
+        2,
+        List.of(),
+        false
+      );
+
+      JsonMockHttpResponse response = invokeSetGlobalConfig(configDto);
+
+      assertThat(response.getStatus()).isEqualTo(204);
+      ArgumentCaptor<GlobalSignatureConfig> captor = ArgumentCaptor.forClass(GlobalSignatureConfig.class);
+      verify(signatureConfigService).setGlobalConfig(captor.capture());
+      assertThat(captor.getValue().getBranchRules()).containsExactly(
+        new BranchRule("main", GpgVerificationType.SCM_USER_SIGNATURE),
+        new BranchRule("release/*", GpgVerificationType.SCM_USER_SIGNATURE)
+      );
+    }
+
+    @Test
+    @SubjectAware(permissions = "configuration:write:signatureCheck")
+    void shouldReturnBadRequestForBranchRuleWithoutPattern() throws URISyntaxException, JsonProcessingException {
+      GlobalSignatureConfigDto configDto = new GlobalSignatureConfigDto(
+        false,
+        true,
+        List.of(),
+        GpgVerificationType.ANY_SIGNATURE,
+        0,
+        TimeoutFallback.REJECT,
+        false,
+        List.of(new BranchRuleDto("", GpgVerificationType.SCM_USER_SIGNATURE)),
+        0,
+        false,
+        0,
+        10,
+        false,
+        List.of(),
+        List.of(),
+        false,
+        2,
+        List.of(),
+        false
+      );
+
+      JsonMockHttpResponse response = invokeSetGlobalConfig(configDto);
+
+      assertThat(response.getStatus()).isEqualTo(400);
+      verifyNoInteractions(signatureConfigService);
+    }
+
     private JsonMockHttpResponse invokeGetGlobalConfig() throws URISyntaxException {
       MockHttpRequest request = MockHttpRequest.get(basePath + globalConfigPath);
       JsonMockHttpResponse response = new JsonMockHttpResponse();
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.git;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.GpgSignature;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.GitRepositoryHandler;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.security.GPG;
+import sonia.scm.security.PublicKey;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GitCommitInspectorTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle("git");
+
+  @Mock
+  private GitRepositoryHandler repositoryHandler;
+
+  @Mock
+  private GPG gpg;
+
+  @Mock
+  private PublicKey publicKey;
+
+  private Git git;
+  private GitCommitInspector inspector;
+
+  @BeforeEach
+  void initRepository(@TempDir Path directory) throws GitAPIException {
+    git = Git.init().setDirectory(directory.toFile()).setInitialBranch("main").call();
+    inspector = new GitCommitInspector(repositoryHandler, gpg, new SignatureVerificationCache(new SimpleMeterRegistry()));
+  }
+
+  @Test
+  void shouldFindCommitsReachableFromExistingRefs() throws GitAPIException {
+    RevCommit onMain = commit("initial");
+    git.checkout().setCreateBranch(true).setName("feature").call();
+    RevCommit onFeature = commit("feature");
+    git.checkout().setName("main").call();
+    // simulates a pushed commit, which is not yet referenced by any ref
+    RevCommit pushed = commit("pushed");
+    git.reset().setMode(ResetCommand.ResetType.SOFT).setRef(onMain.name()).call();
+
+    mockDirectory();
+
+    Set<String> known = inspector.findKnownCommits(repository, List.of(onMain.name(), onFeature.name(), pushed.name()), branch -> true);
+
+    assertThat(known).containsOnly(onMain.name(), onFeature.name());
+  }
+
+  @Test
+  void shouldOnlyConsiderVerifiedBranches() throws GitAPIException {
+    RevCommit onMain = commit("initial");
+    git.checkout().setCreateBranch(true).setName("feature").call();
+    RevCommit onFeature = commit("feature");
+    RevCommit tagged = commit("tagged");
+    git.tag().setName("v1").setObjectId(tagged).call();
+    git.reset().setMode(ResetCommand.ResetType.HARD).setRef(onFeature.name()).call();
+    git.checkout().setName("main").call();
+
+    mockDirectory();
+
+    Set<String> known = inspector.findKnownCommits(
+      repository,
+      List.of(onMain.name(), onFeature.name(), tagged.name()),
+      "main"::equals
+    );
+
+    assertThat(known).containsOnly(onMain.name());
+  }
+
+  @Test
+  void shouldIgnoreUnknownObjects() throws GitAPIException {
+    commit("initial");
+    mockDirectory();
+
+    Set<String> known = inspector.findKnownCommits(repository, List.of("0000000000000000000000000000000000000001"), branch -> true);
+
+    assertThat(known).isEmpty();
+  }
+
+  @Test
+  void shouldReadUnsignedCommitWithoutSignatures() throws GitAPIException, IOException {
+    RevCommit unsigned = commit("unsigned");
+    mockDirectory();
+
+    List<Changeset> changesets = inspector.readSignatures(repository, List.of(unsigned.name()));
+
+    assertThat(changesets).hasSize(1);
+    assertThat(changesets.get(0).getId()).isEqualTo(unsigned.name());
+    assertThat(changesets.get(0).getSignatures()).isEmpty();
+  }
+
+  @Test
+  void shouldVerifySignatureAgainstPayloadWithoutSignatureHeader() throws GitAPIException, IOException {
+    RevCommit parent = commit("initial");
+    ObjectId signed = signedCommit(parent, "signature");
+    mockDirectory();
+    when(gpg.findPublicKeyId("signature".getBytes())).thenReturn("0x42");
+    when(gpg.findPublicKey("0x42")).thenReturn(Optional.of(publicKey));
+    when(publicKey.getRaw()).thenReturn("public key");
+    when(publicKey.getOwner()).thenReturn(Optional.of("trillian"));
+    when(publicKey.verify(any(byte[].class), eq("signature".getBytes()))).thenAnswer(ic -> {
+      String payload = new String(ic.getArgument(0, byte[].class));
+      return !payload.contains("gpgsig") && payload.contains("signed\n");
+    });
+
+    List<Changeset> changesets = inspector.readSignatures(repository, List.of(signed.name()));
+
+    Signature signature = changesets.get(0).getSignatures().iterator().next();
+    assertThat(signature.getKeyId()).isEqualTo("0x42");
+    assertThat(signature.getStatus()).isEqualTo(SignatureStatus.VERIFIED);
+    assertThat(signature.getOwner()).contains("trillian");
+  }
+
+  @Test
+  void shouldVerifySameSignatureOnlyOnce() throws GitAPIException, IOException {
+    RevCommit parent = commit("initial");
+    ObjectId signed = signedCommit(parent, "signature");
+    mockDirectory();
+    when(gpg.findPublicKeyId("signature".getBytes())).thenReturn("0x42");
+    when(gpg.findPublicKey("0x42")).thenReturn(Optional.of(publicKey));
+    when(publicKey.getRaw()).thenReturn("public key");
+    when(publicKey.verify(any(byte[].class), eq("signature".getBytes()))).thenReturn(true);
+
+    inspector.readSignatures(repository, List.of(signed.name()));
+    List<Changeset> changesets = inspector.readSignatures(repository, List.of(signed.name()));
+
+    assertThat(changesets.get(0).getSignatures().iterator().next().getStatus()).isEqualTo(SignatureStatus.VERIFIED);
+    verify(publicKey, times(1)).verify(any(byte[].class), eq("signature".getBytes()));
+  }
+
+  @Test
+  void shouldMarkSignatureWithUnknownKeyAsNotFound() throws GitAPIException, IOException {
+    RevCommit parent = commit("initial");
+    ObjectId signed = signedCommit(parent, "signature");
+    mockDirectory();
+    when(gpg.findPublicKeyId("signature".getBytes())).thenReturn("0x42");
+    when(gpg.findPublicKey("0x42")).thenReturn(Optional.empty());
+
+    List<Changeset> changesets = inspector.readSignatures(repository, List.of(signed.name()));
+
+    Signature signature = changesets.get(0).getSignatures().iterator().next();
+    assertThat(signature.getStatus()).isEqualTo(SignatureStatus.NOT_FOUND);
+  }
+
+  @Test
+  void shouldOmitUnknownCommitsWhenReadingSignatures() throws GitAPIException, IOException {
+    commit("initial");
+    mockDirectory();
+
+    List<Changeset> changesets = inspector.readSignatures(repository, List.of("0000000000000000000000000000000000000001"));
+
+    assertThat(changesets).isEmpty();
+  }
+
+  private ObjectId signedCommit(RevCommit parent, String signature) throws IOException {
+    CommitBuilder builder = new CommitBuilder();
+    builder.setTreeId(parent.getTree());
+    builder.setParentId(parent);
+    PersonIdent ident = new PersonIdent("Trillian", "trillian@hitchhiker.com");
+    builder.setAuthor(ident);
+    builder.setCommitter(ident);
+    builder.setMessage("signed\n");
+    builder.setGpgSignature(new GpgSignature(signature.getBytes()));
+    try (ObjectInserter inserter = git.getRepository().newObjectInserter()) {
+      ObjectId id = inserter.insert(builder);
+      inserter.flush();
+      return id;
+    }
+  }
+
+  private void mockDirectory() {
+    File gitDir = git.getRepository().getDirectory();
+    when(repositoryHandler.getDirectory(repository.getId())).thenReturn(gitDir);
+  }
+
+  private RevCommit commit(String message) throws GitAPIException {
+    return git.commit().setMessage(message).setAllowEmpty(true).setSign(false).call();
+  }
+}
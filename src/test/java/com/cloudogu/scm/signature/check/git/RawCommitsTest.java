@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.git;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RawCommitsTest {
+
+  @Test
+  void shouldRemoveSignatureHeaderWithContinuationLines() {
+    String raw = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+      "author Trillian <trillian@hitchhiker.com> 1 +0000\n" +
+      "committer Trillian <trillian@hitchhiker.com> 1 +0000\n" +
+      "gpgsig -----BEGIN PGP SIGNATURE-----\n" +
+      " \n" +
+      " abc\n" +
+      " -----END PGP SIGNATURE-----\n" +
+      "\n" +
+      "message\n" +
+      " indented message line\n";
+
+    byte[] payload = RawCommits.withoutSignature(raw.getBytes());
+
+    assertThat(new String(payload)).isEqualTo("tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n" +
+      "author Trillian <trillian@hitchhiker.com> 1 +0000\n" +
+      "committer Trillian <trillian@hitchhiker.com> 1 +0000\n" +
+      "\n" +
+      "message\n" +
+      " indented message line\n");
+  }
+
+  @Test
+  void shouldKeepUnsignedCommitUntouched() {
+    String raw = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n\nmessage";
+
+    assertThat(new String(RawCommits.withoutSignature(raw.getBytes()))).isEqualTo(raw);
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.git;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SignatureVerificationCacheTest {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final AtomicInteger verifications = new AtomicInteger();
+
+  private SimpleMeterRegistry meterRegistry;
+  private SignatureVerificationCache cache;
+
+  @BeforeEach
+  void initCache() {
+    meterRegistry = new SimpleMeterRegistry();
+    Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+        return nanoTime.get();
+      }
+    };
+    cache = new SignatureVerificationCache(meterRegistry, ticker);
+  }
+
+  @Test
+  void shouldReuseResultForSameCommitSignatureAndKey() {
+    assertThat(cache.verify("42", "0x42", "signature".getBytes(), this::verification)).isTrue();
+    assertThat(cache.verify("42", "0x42", "signature".getBytes(), this::verification)).isTrue();
+
+    assertThat(verifications).hasValue(1);
+    assertThat(meterRegistry.counter(SignatureVerificationCache.HIT_COUNTER).count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldVerifyAgainForDifferentSignature() {
+    cache.verify("42", "0x42", "signature".getBytes(), this::verification);
+    cache.verify("42", "0x42", "other signature".getBytes(), this::verification);
+
+    assertThat(verifications).hasValue(2);
+  }
+
+  @Test
+  void shouldVerifyAgainAfterExpiration() {
+    cache.verify("42", "0x42", "signature".getBytes(), this::verification);
+    nanoTime.addAndGet(SignatureVerificationCache.TTL.toNanos() + TimeUnit.SECONDS.toNanos(1));
+    cache.verify("42", "0x42", "signature".getBytes(), this::verification);
+
+    assertThat(verifications).hasValue(2);
+  }
+
+  @Test
+  void shouldVerifyAgainForReplacedPublicKey() {
+    cache.verify("42", "public key", "signature".getBytes(), this::verification);
+    cache.verify("42", "replaced public key", "signature".getBytes(), this::verification);
+
+    assertThat(verifications).hasValue(2);
+  }
+
+  private boolean verification() {
+    verifications.incrementAndGet();
+    return true;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.preflight;
+
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("TrainerRed")
+class PreflightResourceTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private PreflightVerifier preflightVerifier;
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  private RestDispatcher dispatcher;
+
+  @BeforeEach
+  void init() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new PreflightResource(preflightVerifier, repositoryManager, scmPathInfoStore));
+  }
+
+  @Test
+  void shouldRejectRequestWithoutPushPermission() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+
+    JsonMockHttpResponse response = invoke(request("{\"branch\":\"main\",\"commitIds\":[\"42\"]}"));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verifyNoInteractions(preflightVerifier);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:push:*")
+  void shouldRejectRequestWithoutCommits() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(request("{\"branch\":\"main\",\"commitIds\":[]}"));
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:push:*")
+  void shouldReturnResults() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+    when(preflightVerifier.verify(repository, "main", List.of("42", "21"))).thenReturn(new PreflightReport(
+      GpgVerificationType.ANY_SIGNATURE,
+      List.of(
+        PreflightResult.of("42", PreflightStatus.ACCEPTED),
+        new PreflightResult("21", PreflightStatus.REJECTED, "MISSING_SIGNATURE", "Changeset is missing a signature")
+      )
+    ));
+
+    JsonMockHttpResponse response = invoke(request("{\"branch\":\"main\",\"commitIds\":[\"42\",\"21\"]}"));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode root = response.getContentAsJson();
+    assertThat(root.get("accepted").asBoolean()).isFalse();
+    assertThat(root.get("verificationType").asText()).isEqualTo("ANY_SIGNATURE");
+    assertThat(root.get("commits")).hasSize(2);
+    assertThat(root.get("commits").get(1).get("status").asText()).isEqualTo("REJECTED");
+    assertThat(root.get("commits").get(1).get("reason").asText()).isEqualTo("MISSING_SIGNATURE");
+  }
+
+  private MockHttpRequest request(String body) throws URISyntaxException {
+    return MockHttpRequest.post("/v2/signature-check/preflight/hitchhiker/HeartOfGold")
+      .contentType("application/json")
+      .content(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private JsonMockHttpResponse invoke(MockHttpRequest request) {
+    JsonMockHttpResponse response = new JsonMockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}
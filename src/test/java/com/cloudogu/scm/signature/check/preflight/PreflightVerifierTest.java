@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.preflight;
+
+import com.cloudogu.scm.signature.check.ChangesetVerifier;
+import com.cloudogu.scm.signature.check.CommitLookup;
+import com.cloudogu.scm.signature.check.ComplianceCache;
+import com.cloudogu.scm.signature.check.InFlightVerifications;
+import com.cloudogu.scm.signature.check.PolicyCompiler;
+import com.cloudogu.scm.signature.check.SignatureExistsVerifier;
+import com.cloudogu.scm.signature.check.ValidSignatureVerifier;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PreflightVerifierTest {
+
+  private final Repository repository = RepositoryTestData.create42Puzzle("git");
+  private final Namespace namespace = new Namespace(repository.getNamespace());
+
+  private final GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+  private final NamespaceSignatureConfig namespaceConfig = new NamespaceSignatureConfig();
+  private final RepositorySignatureConfig repoConfig = new RepositorySignatureConfig();
+
+  @Mock
+  private SignatureConfigService signatureConfigService;
+
+  @Mock
+  private NamespaceManager namespaceManager;
+
+  @Mock
+  private ConfigEvaluator configEvaluator;
+
+  @Mock
+  private CommitLookup commitLookup;
+
+  private PreflightVerifier preflightVerifier;
+
+  @BeforeEach
+  void setUpVerifier() {
+    PolicyCompiler policyCompiler = new PolicyCompiler(
+      signatureConfigService,
+      namespaceManager,
+      configEvaluator,
+      new ChangesetVerifier(Set.of(new SignatureExistsVerifier(), new ValidSignatureVerifier()))
+    );
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    preflightVerifier = new PreflightVerifier(policyCompiler, commitLookup, new InFlightVerifications(meterRegistry, new ComplianceCache(meterRegistry)));
+  }
+
+  @Test
+  void shouldNotEnforceUnprotectedBranch() {
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setProtectedBranches(List.of("main"));
+    setupConfigMocks(activeConfig);
+
+    PreflightReport report = preflightVerifier.verify(repository, "feature", List.of("42"));
+
+    assertThat(report.getVerificationType()).isNull();
+    assertThat(report.isAccepted()).isTrue();
+    assertThat(report.getResults()).containsExactly(PreflightResult.of("42", PreflightStatus.NOT_ENFORCED));
+    verifyNoInteractions(commitLookup);
+  }
+
+  @Test
+  void shouldReturnResultForEveryCommit() throws IOException {
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    setupConfigMocks(activeConfig);
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    when(commitLookup.readSignatures(any(), any())).thenReturn(List.of(signedChangeset("signed"), unsigned));
+
+    PreflightReport report = preflightVerifier.verify(repository, "main", List.of("signed", "unsigned", "missing"));
+
+    assertThat(report.getVerificationType()).isEqualTo(GpgVerificationType.ANY_SIGNATURE);
+    assertThat(report.isAccepted()).isFalse();
+    assertThat(report.getResults()).containsExactly(
+      PreflightResult.of("signed", PreflightStatus.ACCEPTED),
+      new PreflightResult("unsigned", PreflightStatus.REJECTED, "MISSING_SIGNATURE", "Changeset is missing a signature"),
+      PreflightResult.of("missing", PreflightStatus.NOT_FOUND)
+    );
+  }
+
+  @Test
+  void shouldSkipKnownCommits() throws IOException {
+    BaseSignatureConfig activeConfig = new BaseSignatureConfig();
+    activeConfig.setEnabled(true);
+    activeConfig.setVerifyOnlyNewCommits(true);
+    setupConfigMocks(activeConfig);
+    Changeset unsigned = new Changeset();
+    unsigned.setId("unsigned");
+    when(commitLookup.findKnownCommits(any(), any(), any())).thenReturn(Set.of("unsigned"));
+    when(commitLookup.readSignatures(any(), any())).thenReturn(List.of(unsigned));
+
+    PreflightReport report = preflightVerifier.verify(repository, "main", List.of("unsigned"));
+
+    assertThat(report.isAccepted()).isTrue();
+    assertThat(report.getResults()).containsExactly(PreflightResult.of("unsigned", PreflightStatus.KNOWN));
+  }
+
+  private Changeset signedChangeset(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    changeset.setSignatures(List.of(
+      new Signature("keyId", "gpg", SignatureStatus.VERIFIED, null, Collections.emptySet()))
+    );
+    return changeset;
+  }
+
+  private void setupConfigMocks(BaseSignatureConfig activeConfig) {
+    when(namespaceManager.get(repository.getNamespace())).thenReturn(Optional.of(namespace));
+    when(signatureConfigService.getGlobalConfig()).thenReturn(globalConfig);
+    when(signatureConfigService.getNamespaceConfig(namespace)).thenReturn(namespaceConfig);
+    when(signatureConfigService.getRepoConfig(repository)).thenReturn(repoConfig);
+    when(configEvaluator.evaluate(globalConfig, namespaceConfig, repoConfig)).thenReturn(activeConfig);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import org.junit.jupiter.api.Test;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PushRecordCodecTest {
+
+  @Test
+  void shouldWriteAndReadRecord() throws IOException {
+    PushRecord record = record();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    PushRecordCodec.writeHeader(out);
+    PushRecordCodec.write(out, record);
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    PushRecordCodec.readHeader(in);
+    PushRecord read = PushRecordCodec.read(in);
+
+    assertThat(read).usingRecursiveComparison().isEqualTo(record);
+    assertThat(bytes.size()).isLessThan(64);
+  }
+
+  @Test
+  void shouldRejectUnknownFiles() {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+
+    assertThatThrownBy(() -> PushRecordCodec.readHeader(in)).isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void shouldEncodeLargeNumbers() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    PushRecordCodec.writeVarLong(new DataOutputStream(bytes), -1L);
+
+    assertThat(PushRecordCodec.readVarLong(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))).isEqualTo(-1L);
+  }
+
+  @Test
+  void shouldReconstructConfig() {
+    BaseSignatureConfig config = record().toConfig();
+
+    assertThat(config.isEnabled()).isTrue();
+    assertThat(config.getProtectedBranches()).containsExactly(PushRecord.UNMATCHED_BRANCH);
+    assertThat(config.getBranchRules()).containsExactly(new BranchRule("main", GpgVerificationType.SCM_USER_SIGNATURE));
+  }
+
+  @Test
+  void shouldReconstructChangesets() {
+    List<Changeset> changesets = record().toChangesets("0-");
+
+    assertThat(changesets).hasSize(2);
+    assertThat(changesets.get(0).getId()).isEqualTo("0-0");
+    assertThat(changesets.get(0).getBranches()).containsExactly("main", "~0123456789ab");
+    Signature signature = changesets.get(0).getSignatures().iterator().next();
+    assertThat(signature.getStatus()).isEqualTo(SignatureStatus.VERIFIED);
+    assertThat(signature.getOwner()).contains(PushRecord.ACTIVE_OWNER);
+    assertThat(changesets.get(1).getBranches()).containsExactly("~0123456789ab");
+    assertThat(changesets.get(1).getSignatures()).isEmpty();
+  }
+
+  private static PushRecord record() {
+    return new PushRecord(
+      1717243200000L,
+      "42",
+      true,
+      GpgVerificationType.ANY_SIGNATURE,
+      true,
+      5,
+      TimeoutFallback.ACCEPT_AND_VERIFY_LATER,
+      List.of(
+        new PushRecord.RecordedBranch("main", GpgVerificationType.SCM_USER_SIGNATURE),
+        new PushRecord.RecordedBranch("~0123456789ab", null)
+      ),
+      List.of(
+        new PushRecord.RecordedChangeset(0b11, false, new byte[]{
+          PushRecord.toFlags(new Signature("key", "gpg", SignatureStatus.VERIFIED, "trillian", null), true)
+        }),
+        new PushRecord.RecordedChangeset(0b10, true, new byte[0])
+      ),
+      AuditDecision.ACCEPTED,
+      1_500_000
+    );
+  }
+}
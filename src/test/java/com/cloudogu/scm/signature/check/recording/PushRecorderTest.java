@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.PushedChangeset;
+import com.cloudogu.scm.signature.check.ScmUserIndex;
+import com.cloudogu.scm.signature.check.SignaturePolicy;
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PushRecorderTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private ScmUserIndex userIndex;
+
+  @Mock
+  private SignaturePolicy policy;
+
+  @TempDir
+  private Path directory;
+
+  private final GlobalSignatureConfig globalConfig = new GlobalSignatureConfig();
+
+  private PushRecorder recorder;
+
+  @BeforeEach
+  void setUpRecorder() {
+    recorder = createRecorder();
+    lenient().when(policy.getGlobalConfig()).thenReturn(globalConfig);
+  }
+
+  @Test
+  void shouldNotRecordIfDisabled() throws IOException {
+    recorder.record(repository, policy, List.of(), Set.of(), AuditDecision.ACCEPTED, 0);
+
+    assertThat(recorder.getSegments()).isEmpty();
+  }
+
+  @Test
+  void shouldRecordAnonymisedPush() throws IOException {
+    globalConfig.setRecordPushes(true);
+    BaseSignatureConfig config = new BaseSignatureConfig();
+    config.setEnabled(true);
+    when(policy.getConfig()).thenReturn(config);
+    when(policy.isEnabled()).thenReturn(true);
+    when(policy.resolveVerificationType(List.of("main"))).thenReturn(GpgVerificationType.ANY_SIGNATURE);
+    when(policy.resolveVerificationType(List.of("feature/secret"))).thenReturn(null);
+    when(userIndex.isActiveUser("trillian")).thenReturn(true);
+
+    recorder.record(
+      repository,
+      policy,
+      pushed(changeset("1", "main", "trillian"), changeset("2", "feature/secret", null)),
+      Set.of("2"),
+      AuditDecision.REJECTED,
+      42
+    );
+    recorder.flush();
+
+    assertThat(recorder.getSegments()).hasSize(1);
+    try (PushRecordReader reader = new PushRecordReader(recorder.getSegments().get(0))) {
+      PushRecord record = reader.next();
+      assertThat(record.getRepositoryId()).isEqualTo(repository.getId());
+      assertThat(record.isEnabled()).isTrue();
+      assertThat(record.getOutcome()).isEqualTo(AuditDecision.REJECTED);
+      assertThat(record.getDurationNanos()).isEqualTo(42);
+      assertThat(record.getBranches()).hasSize(2);
+      assertThat(record.getBranches().get(0)).isEqualTo(new PushRecord.RecordedBranch("main", GpgVerificationType.ANY_SIGNATURE));
+      assertThat(record.getBranches().get(1).getName())
+        .isEqualTo(recorder.branchKey("feature/secret"))
+        .startsWith("~")
+        .doesNotContain("secret");
+      assertThat(record.getChangesets().get(0).isKnown()).isFalse();
+      assertThat(record.getChangesets().get(0).getSignatures()[0] & PushRecord.OWNER_ACTIVE).isNotZero();
+      assertThat(record.getChangesets().get(1).isKnown()).isTrue();
+      assertThat(reader.next()).isNull();
+    }
+  }
+
+  @Test
+  void shouldRecordPushesWithoutActiveSignatureCheck() throws IOException {
+    globalConfig.setRecordPushes(true);
+    when(policy.getConfig()).thenReturn(new BaseSignatureConfig());
+
+    recorder.record(repository, policy, pushed(changeset("1", "main", null)), Set.of(), AuditDecision.ACCEPTED, 0);
+    recorder.flush();
+
+    try (PushRecordReader reader = new PushRecordReader(recorder.getSegments().get(0))) {
+      PushRecord record = reader.next();
+      assertThat(record.isEnabled()).isFalse();
+      assertThat(record.countVerifiedChangesets()).isZero();
+    }
+  }
+
+  @Test
+  void shouldKeepBranchKeysAcrossRestarts() {
+    String key = recorder.branchKey("feature/secret");
+
+    assertThat(createRecorder().branchKey("feature/secret")).isEqualTo(key);
+    assertThat(recorder.branchKey("feature/other")).isNotEqualTo(key);
+  }
+
+  private PushRecorder createRecorder() {
+    return new PushRecorder(directory, userIndex, new SimpleMeterRegistry(), Clock.systemUTC(), MoreExecutors.newDirectExecutorService());
+  }
+
+  private Changeset changeset(String id, String branch, String owner) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    changeset.setBranches(List.of(branch));
+    changeset.setSignatures(new ArrayList<>(List.of(
+      new Signature("key", "gpg", SignatureStatus.VERIFIED, owner, Collections.emptySet())
+    )));
+    return changeset;
+  }
+
+  private Collection<PushedChangeset> pushed(Changeset... changesets) {
+    return PushedChangeset.collectUnique(List.of(changesets));
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.ChangesetVerifier;
+import com.cloudogu.scm.signature.check.CommitInspector;
+import com.cloudogu.scm.signature.check.CommitLookup;
+import com.cloudogu.scm.signature.check.ComplianceCache;
+import com.cloudogu.scm.signature.check.DeferredSignatureVerifier;
+import com.cloudogu.scm.signature.check.HistoryImportVerifier;
+import com.cloudogu.scm.signature.check.InFlightVerifications;
+import com.cloudogu.scm.signature.check.KeyCommitIndex;
+import com.cloudogu.scm.signature.check.PolicyCompiler;
+import com.cloudogu.scm.signature.check.ScmUserIndex;
+import com.cloudogu.scm.signature.check.ScmUserSignatureVerifier;
+import com.cloudogu.scm.signature.check.SignatureCheckEventDispatcher;
+import com.cloudogu.scm.signature.check.SignatureChecker;
+import com.cloudogu.scm.signature.check.SignatureExistsVerifier;
+import com.cloudogu.scm.signature.check.ValidSignatureVerifier;
+import com.cloudogu.scm.signature.check.VerificationBulkhead;
+import com.cloudogu.scm.signature.check.audit.AuditLog;
+import com.cloudogu.scm.signature.check.config.BaseSignatureConfig;
+import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.cloudogu.scm.signature.check.rejection.RejectionHistory;
+import com.cloudogu.scm.signature.check.stats.SignatureCheckStatistics;
+import com.cloudogu.scm.signature.check.stats.SignedCommitCounters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Value;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import sonia.scm.ExceptionWithContext;
+import sonia.scm.group.GroupCollector;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.PreReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.HookChangesetBuilder;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.store.InMemoryByteConfigurationStoreFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Feeds recorded pushes through a {@link SignatureChecker} with the real policy compiler, verifiers, bulkhead and
+ * in-flight deduplication. The changeset provider, config store, user index and commit lookup are replaced by
+ * local stand-ins built from the recording; all side effects like the audit log are discarded. Every repository is
+ * configured with the configuration of its last recorded push.
+ */
+public class PushReplayHarness {
+
+  private static final String NAMESPACE = "replay";
+
+  private final double speed;
+  private final int concurrency;
+
+  /**
+   * @param speed factor by which the recorded time between pushes is shortened; {@code 0} replays without any pause
+   * @param concurrency number of pushes, which are checked at the same time at most
+   */
+  public PushReplayHarness(double speed, int concurrency) {
+    this.speed = speed;
+    this.concurrency = concurrency;
+  }
+
+  public ReplayResult replay(List<PushRecord> records) throws InterruptedException {
+    List<PushRecord> ordered = records.stream().sorted(Comparator.comparingLong(PushRecord::getTimestamp)).toList();
+    Set<String> knownCommits = ConcurrentHashMap.newKeySet();
+    SignatureChecker checker = createChecker(ordered, knownCommits);
+    List<PreReceiveRepositoryHookEvent> events = createEvents(ordered, knownCommits);
+
+    long[] latencies = new long[ordered.size()];
+    AtomicInteger rejected = new AtomicInteger();
+    Subject subject = stub(Subject.class);
+    when(subject.getPrincipal()).thenReturn("replay");
+
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < ordered.size(); i++) {
+        awaitScheduledTime(start, ordered.get(i).getTimestamp() - ordered.get(0).getTimestamp());
+        int index = i;
+        executor.execute(() -> {
+          ThreadContext.bind(subject);
+          long pushStart = System.nanoTime();
+          try {
+            checker.onPush(events.get(index));
+          } catch (ExceptionWithContext e) {
+            rejected.incrementAndGet();
+          } finally {
+            latencies[index] = System.nanoTime() - pushStart;
+          }
+        });
+      }
+    } finally {
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.HOURS);
+    }
+    long duration = System.nanoTime() - start;
+
+    Arrays.sort(latencies);
+    return new ReplayResult(
+      ordered.size(),
+      rejected.get(),
+      duration,
+      percentile(latencies, 0.5),
+      percentile(latencies, 0.99),
+      latencies.length == 0 ? 0 : latencies[latencies.length - 1]
+    );
+  }
+
+  private void awaitScheduledTime(long start, long recordedOffsetMillis) throws InterruptedException {
+    if (speed <= 0) {
+      return;
+    }
+    long waitNanos = start + (long) (TimeUnit.MILLISECONDS.toNanos(recordedOffsetMillis) / speed) - System.nanoTime();
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  private static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)];
+  }
+
+  private SignatureChecker createChecker(List<PushRecord> records, Set<String> knownCommits) {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    SignatureConfigService configService = new SignatureConfigService(new InMemoryByteConfigurationStoreFactory());
+    Map<String, BaseSignatureConfig> configs = new HashMap<>();
+    for (PushRecord record : records) {
+      configs.put(record.getRepositoryId(), record.toConfig());
+    }
+    configs.forEach((repositoryId, config) -> configService.setRepoConfig(repository(repositoryId), overwrite(config)));
+
+    NamespaceManager namespaceManager = stub(NamespaceManager.class);
+    when(namespaceManager.get(NAMESPACE)).thenReturn(Optional.of(new Namespace(NAMESPACE)));
+    ScmUserIndex userIndex = stub(ScmUserIndex.class);
+    when(userIndex.isActiveUser(PushRecord.ACTIVE_OWNER)).thenReturn(true);
+
+    PolicyCompiler policyCompiler = new PolicyCompiler(
+      configService,
+      namespaceManager,
+      new ConfigEvaluator(),
+      new ChangesetVerifier(Set.of(
+        new SignatureExistsVerifier(),
+        new ValidSignatureVerifier(),
+        new ScmUserSignatureVerifier(userIndex)
+      ))
+    );
+
+    return new SignatureChecker(
+      policyCompiler,
+      stub(DeferredSignatureVerifier.class),
+      new VerificationBulkhead(meterRegistry, namespaceManager),
+      new InFlightVerifications(meterRegistry, new ComplianceCache(meterRegistry)),
+      new CommitLookup(Set.of(new KnownCommits(knownCommits)), stub(RepositoryServiceFactory.class)),
+      stub(KeyCommitIndex.class),
+      stub(HistoryImportVerifier.class),
+      stub(GroupCollector.class),
+      stub(AuditLog.class),
+      stub(RejectionHistory.class),
+      stub(SignatureCheckEventDispatcher.class),
+      new SignatureCheckStatistics(),
+      stub(SignedCommitCounters.class),
+      stub(PushRecorder.class),
+      meterRegistry
+    );
+  }
+
+  private static List<PreReceiveRepositoryHookEvent> createEvents(List<PushRecord> records, Set<String> knownCommits) {
+    List<PreReceiveRepositoryHookEvent> events = new ArrayList<>(records.size());
+    for (int i = 0; i < records.size(); i++) {
+      PushRecord record = records.get(i);
+      List<Changeset> changesets = record.toChangesets(i + "-");
+      for (int c = 0; c < changesets.size(); c++) {
+        if (record.getChangesets().get(c).isKnown()) {
+          knownCommits.add(changesets.get(c).getId());
+        }
+      }
+
+      HookChangesetBuilder changesetProvider = stub(HookChangesetBuilder.class);
+      when(changesetProvider.getChangesets()).thenReturn(changesets);
+      HookContext context = stub(HookContext.class);
+      when(context.getChangesetProvider()).thenReturn(changesetProvider);
+      PreReceiveRepositoryHookEvent event = stub(PreReceiveRepositoryHookEvent.class);
+      when(event.getRepository()).thenReturn(repository(record.getRepositoryId()));
+      when(event.getContext()).thenReturn(context);
+      events.add(event);
+    }
+    return events;
+  }
+
+  private static Repository repository(String id) {
+    return new Repository(id, "git", NAMESPACE, id);
+  }
+
+  private static RepositorySignatureConfig overwrite(BaseSignatureConfig config) {
+    RepositorySignatureConfig repoConfig = new RepositorySignatureConfig();
+    repoConfig.setOverwriteParentConfig(true);
+    repoConfig.setEnabled(config.isEnabled());
+    repoConfig.setProtectedBranches(config.getProtectedBranches());
+    repoConfig.setVerificationType(config.getVerificationType());
+    repoConfig.setVerificationTimeout(config.getVerificationTimeout());
+    repoConfig.setTimeoutFallback(config.getTimeoutFallback());
+    repoConfig.setVerifyOnlyNewCommits(config.isVerifyOnlyNewCommits());
+    repoConfig.setBranchRules(config.getBranchRules());
+    return repoConfig;
+  }
+
+  private static <T> T stub(Class<T> type) {
+    return mock(type, withSettings().stubOnly());
+  }
+
+  private static class KnownCommits implements CommitInspector {
+
+    private final Set<String> knownCommits;
+
+    private KnownCommits(Set<String> knownCommits) {
+      this.knownCommits = knownCommits;
+    }
+
+    @Override
+    public boolean isSupported(Repository repository) {
+      return true;
+    }
+
+    @Override
+    public Set<String> findKnownCommits(Repository repository, Collection<String> commitIds, Predicate<String> verifiedBranch) {
+      return commitIds.stream().filter(knownCommits::contains).collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<Changeset> readSignatures(Repository repository, Collection<String> commitIds) {
+      return List.of();
+    }
+  }
+
+  @Value
+  public static class ReplayResult {
+    int pushes;
+    int rejected;
+    long durationNanos;
+    long medianLatencyNanos;
+    long p99LatencyNanos;
+    long maxLatencyNanos;
+  }
+}
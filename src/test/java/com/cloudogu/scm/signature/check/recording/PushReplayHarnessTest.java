@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.recording;
+
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.SignatureStatus;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PushReplayHarnessTest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PushReplayHarnessTest.class);
+
+  private static final byte VERIFIED = (byte) (SignatureStatus.VERIFIED.ordinal() + 1);
+  private static final byte INVALID = (byte) (SignatureStatus.INVALID.ordinal() + 1);
+
+  @Test
+  void shouldReplayRecordedPushes() throws InterruptedException {
+    List<PushRecord> records = List.of(
+      record(0, "main", GpgVerificationType.ANY_SIGNATURE, new byte[]{VERIFIED}),
+      record(10, "main", GpgVerificationType.ANY_SIGNATURE, new byte[]{INVALID}),
+      record(20, "main", GpgVerificationType.SCM_USER_SIGNATURE, new byte[]{VERIFIED}),
+      record(30, "~feature", null, new byte[0])
+    );
+
+    PushReplayHarness.ReplayResult result = new PushReplayHarness(0, 2).replay(records);
+
+    assertThat(result.getPushes()).isEqualTo(4);
+    assertThat(result.getRejected()).isEqualTo(2);
+    assertThat(result.getMaxLatencyNanos()).isGreaterThanOrEqualTo(result.getMedianLatencyNanos());
+  }
+
+  /**
+   * Replays a recording of a real instance, e.g.
+   * {@code ./gradlew test --tests '*PushReplayHarnessTest' -Dsignature-check.replay=pushes.bin -Dsignature-check.replay.speed=10 -Dsignature-check.replay.concurrency=8}
+   */
+  @Test
+  @EnabledIfSystemProperty(named = "signature-check.replay", matches = ".+")
+  void shouldReplayRecording() throws IOException, InterruptedException {
+    Path recording = Paths.get(System.getProperty("signature-check.replay"));
+    double speed = Double.parseDouble(System.getProperty("signature-check.replay.speed", "1"));
+    int concurrency = Integer.parseInt(System.getProperty("signature-check.replay.concurrency", "4"));
+
+    List<PushRecord> records = new ArrayList<>();
+    try (PushRecordReader reader = new PushRecordReader(recording)) {
+      for (PushRecord record = reader.next(); record != null; record = reader.next()) {
+        records.add(record);
+      }
+    }
+
+    PushReplayHarness.ReplayResult result = new PushReplayHarness(speed, concurrency).replay(records);
+
+    String summary = String.format(
+      "replayed %d pushes (%d rejected) in %d ms, latency median %d us, p99 %d us, max %d us",
+      result.getPushes(),
+      result.getRejected(),
+      TimeUnit.NANOSECONDS.toMillis(result.getDurationNanos()),
+      TimeUnit.NANOSECONDS.toMicros(result.getMedianLatencyNanos()),
+      TimeUnit.NANOSECONDS.toMicros(result.getP99LatencyNanos()),
+      TimeUnit.NANOSECONDS.toMicros(result.getMaxLatencyNanos())
+    );
+    LOG.info(summary);
+    assertThat(result.getPushes()).as(summary).isEqualTo(records.size());
+  }
+
+  private static PushRecord record(long timestamp, String branch, GpgVerificationType verificationType, byte[] signatures) {
+    return new PushRecord(
+      timestamp,
+      "repo-" + timestamp,
+      true,
+      GpgVerificationType.ANY_SIGNATURE,
+      false,
+      0,
+      TimeoutFallback.REJECT,
+      List.of(new PushRecord.RecordedBranch(branch, verificationType)),
+      List.of(new PushRecord.RecordedChangeset(1, false, signatures)),
+      AuditDecision.ACCEPTED,
+      0
+    );
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.rejection;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("TrainerRed")
+class RejectionHistoryResourceTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private RejectionHistory rejectionHistory;
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  private RestDispatcher dispatcher;
+
+  @BeforeEach
+  void init() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new RejectionHistoryResource(rejectionHistory, repositoryManager, scmPathInfoStore));
+  }
+
+  @Test
+  void shouldRejectGlobalQueryWithoutPermission() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/rejections"));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verifyNoInteractions(rejectionHistory);
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:read:signatureCheck")
+  void shouldReturnPageWithNextLink() throws URISyntaxException {
+    RejectionEvent event = new RejectionEvent(
+      1717243200000L, repository.getId(), repository.getNamespace(), repository.getName(), "trillian", "42", "DDTuAVZpr1", "Changeset is missing a signature"
+    );
+    when(rejectionHistory.query(new RejectionQuery(null, "trillian", null, null, null, 1)))
+      .thenReturn(new RejectionPage(List.of(event), "1717243200000-0"));
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/rejections?user=trillian&limit=1"));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode root = response.getContentAsJson();
+    assertThat(root.get("rejections")).hasSize(1);
+    assertThat(root.get("rejections").get(0).get("changesetId").asText()).isEqualTo("42");
+    assertThat(root.get("nextCursor").asText()).isEqualTo("1717243200000-0");
+    assertThat(root.get("_links").get("next").get("href").asText())
+      .isEqualTo("https://scm-manager.org/scm/api/v2/signature-check/rejections?limit=1&cursor=1717243200000-0&user=trillian");
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:read:signatureCheck")
+  void shouldRejectInvalidCursor() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/rejections?cursor=oops"));
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  @Test
+  void shouldRejectRepositoryQueryWithoutPermission() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/rejections/hitchhiker/HeartOfGold"));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:signatureCheck:*")
+  void shouldQueryRejectionsOfRepository() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+    when(rejectionHistory.query(any())).thenReturn(new RejectionPage(List.of(), null));
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/rejections/hitchhiker/HeartOfGold"));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsJson().get("_links").has("next")).isFalse();
+    verify(rejectionHistory).query(new RejectionQuery(repository.getId(), null, null, null, null, 50));
+  }
+
+  @Test
+  void shouldReturnNotFoundForUnknownRepository() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/rejections/hitchhiker/unknown"));
+
+    assertThat(response.getStatus()).isEqualTo(404);
+  }
+
+  private JsonMockHttpResponse invoke(MockHttpRequest request) {
+    JsonMockHttpResponse response = new JsonMockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}
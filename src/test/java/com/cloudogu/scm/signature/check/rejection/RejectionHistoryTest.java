@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.rejection;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.InMemoryByteConfigurationStoreFactory;
+import sonia.scm.store.InMemoryByteDataStoreFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class RejectionHistoryTest {
+
+  private static final Instant START = Instant.parse("2024-06-01T12:00:00Z");
+
+  private final Repository heartOfGold = new Repository("hog", "git", "hitchhiker", "HeartOfGold");
+  private final Repository puzzle = new Repository("puzzle", "git", "hitchhiker", "puzzle42");
+
+  private final AtomicReference<Instant> now = new AtomicReference<>(START);
+  private final InMemoryByteDataStoreFactory dataStoreFactory = new InMemoryByteDataStoreFactory();
+  private final InMemoryByteConfigurationStoreFactory configurationStoreFactory = new InMemoryByteConfigurationStoreFactory();
+
+  private RejectionHistory history;
+
+  @BeforeEach
+  void setUpHistory() {
+    history = createHistory();
+  }
+
+  @Test
+  void shouldReturnNewestEventsFirst() {
+    record(heartOfGold, "trillian", "1");
+    record(heartOfGold, "trillian", "2");
+
+    RejectionPage page = history.query(query(null, null, null, 10));
+
+    assertThat(changesetIds(page)).containsExactly("2", "1");
+    assertThat(page.getNextCursor()).isNull();
+  }
+
+  @Test
+  void shouldPageThroughBuckets() {
+    for (int i = 0; i < 5; i++) {
+      record(heartOfGold, "trillian", String.valueOf(i));
+      now.set(now.get().plus(Duration.ofMinutes(40)));
+    }
+
+    RejectionPage first = history.query(query(null, null, null, 2));
+    RejectionPage second = history.query(query(null, null, first.getNextCursor(), 2));
+    RejectionPage third = history.query(query(null, null, second.getNextCursor(), 2));
+
+    assertThat(changesetIds(first)).containsExactly("4", "3");
+    assertThat(changesetIds(second)).containsExactly("2", "1");
+    assertThat(changesetIds(third)).containsExactly("0");
+    assertThat(third.getNextCursor()).isNull();
+  }
+
+  @Test
+  void shouldFilterByRepositoryAndUser() {
+    record(heartOfGold, "trillian", "1");
+    record(puzzle, "trillian", "2");
+    record(heartOfGold, "dent", "3");
+    now.set(now.get().plus(Duration.ofHours(2)));
+    record(puzzle, "dent", "4");
+
+    assertThat(changesetIds(history.query(query(heartOfGold.getId(), null, null, 10)))).containsExactly("3", "1");
+    assertThat(changesetIds(history.query(query(null, "dent", null, 10)))).containsExactly("4", "3");
+    assertThat(changesetIds(history.query(query(puzzle.getId(), "trillian", null, 10)))).containsExactly("2");
+  }
+
+  @Test
+  void shouldFilterByTime() {
+    record(heartOfGold, "trillian", "1");
+    now.set(now.get().plus(Duration.ofHours(3)));
+    record(heartOfGold, "trillian", "2");
+    now.set(now.get().plus(Duration.ofHours(3)));
+    record(heartOfGold, "trillian", "3");
+
+    RejectionPage page = history.query(new RejectionQuery(
+      null,
+      null,
+      START.plus(Duration.ofHours(1)).toEpochMilli(),
+      START.plus(Duration.ofHours(4)).toEpochMilli(),
+      null,
+      10
+    ));
+
+    assertThat(changesetIds(page)).containsExactly("2");
+  }
+
+  @Test
+  void shouldRebuildIndexesAfterReload() {
+    record(heartOfGold, "trillian", "1");
+    record(puzzle, "dent", "2");
+
+    RejectionHistory reloaded = createHistory();
+
+    assertThat(changesetIds(reloaded.query(query(puzzle.getId(), null, null, 10)))).containsExactly("2");
+  }
+
+  @Test
+  void shouldRemoveExpiredBuckets() {
+    record(heartOfGold, "trillian", "1");
+    now.set(now.get().plus(RejectionHistory.RETENTION).plus(Duration.ofHours(2)));
+    record(heartOfGold, "trillian", "2");
+
+    assertThat(changesetIds(history.query(query(null, null, null, 10)))).containsExactly("2");
+  }
+
+  @Test
+  void shouldWriteQueuedEventsInOneBatch() {
+    ExecutorService executor = mock(ExecutorService.class);
+    history = new RejectionHistory(dataStoreFactory, configurationStoreFactory, clock(), executor);
+
+    record(heartOfGold, "trillian", "1");
+    record(puzzle, "dent", "2");
+
+    assertThat(history.query(query(null, null, null, 10)).getEvents()).isEmpty();
+
+    ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(2)).execute(task.capture());
+    task.getAllValues().get(0).run();
+
+    assertThat(changesetIds(createHistory().query(query(null, null, null, 10)))).containsExactly("2", "1");
+    // the second task finds nothing left to write
+    task.getAllValues().get(1).run();
+    assertThat(changesetIds(history.query(query(null, null, null, 10)))).containsExactly("2", "1");
+  }
+
+  private RejectionHistory createHistory() {
+    return new RejectionHistory(dataStoreFactory, configurationStoreFactory, clock(), MoreExecutors.newDirectExecutorService());
+  }
+
+  private Clock clock() {
+    return new Clock() {
+      @Override
+      public ZoneOffset getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public Instant instant() {
+        return now.get();
+      }
+    };
+  }
+
+  private void record(Repository repository, String user, String changesetId) {
+    history.record(repository, user, changesetId, "DDTuAVZpr1", "Changeset is missing a signature");
+  }
+
+  private RejectionQuery query(String repositoryId, String user, String cursor, int limit) {
+    return new RejectionQuery(repositoryId, user, null, null, cursor, limit);
+  }
+
+  private List<String> changesetIds(RejectionPage page) {
+    return page.getEvents().stream().map(RejectionEvent::getChangesetId).toList();
+  }
+}
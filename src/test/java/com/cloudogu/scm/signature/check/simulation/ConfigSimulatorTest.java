@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.simulation;
+
+import com.cloudogu.scm.signature.check.ScmUserIndex;
+import com.cloudogu.scm.signature.check.ScmUserSignatureVerifier;
+import com.cloudogu.scm.signature.check.SignatureExistsVerifier;
+import com.cloudogu.scm.signature.check.ValidSignatureVerifier;
+import com.cloudogu.scm.signature.check.audit.AuditDecision;
+import com.cloudogu.scm.signature.check.config.BranchRule;
+import com.cloudogu.scm.signature.check.config.ConfigEvaluator;
+import com.cloudogu.scm.signature.check.config.GlobalSignatureConfig;
+import com.cloudogu.scm.signature.check.config.GpgVerificationType;
+import com.cloudogu.scm.signature.check.config.NamespaceSignatureConfig;
+import com.cloudogu.scm.signature.check.config.SignatureConfigService;
+import com.cloudogu.scm.signature.check.config.TimeoutFallback;
+import com.cloudogu.scm.signature.check.recording.PushRecord;
+import com.cloudogu.scm.signature.check.recording.PushRecordCodec;
+import com.cloudogu.scm.signature.check.recording.PushRecorder;
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Namespace;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.store.InMemoryByteConfigurationStoreFactory;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ConfigSimulatorTest {
+
+  private final Repository heartOfGold = RepositoryTestData.createHeartOfGold("git");
+  private final Repository puzzle = new Repository("puzzle-id", "git", "earth", "puzzle");
+
+  @Mock
+  private PushRecorder pushRecorder;
+  @Mock
+  private NamespaceManager namespaceManager;
+  @Mock
+  private RepositoryManager repositoryManager;
+  @Mock
+  private ScmUserIndex userIndex;
+
+  @TempDir
+  private Path directory;
+
+  private final List<PushRecord> records = new ArrayList<>();
+
+  private ConfigSimulator simulator;
+
+  @BeforeEach
+  void setUpSimulator() {
+    lenient().when(pushRecorder.branchKey(anyString())).thenAnswer(invocation -> "~" + invocation.getArgument(0));
+    simulator = new ConfigSimulator(
+      pushRecorder,
+      new SignatureConfigService(new InMemoryByteConfigurationStoreFactory()),
+      namespaceManager,
+      repositoryManager,
+      new ConfigEvaluator(),
+      Set.of(new SignatureExistsVerifier(), new ValidSignatureVerifier(), new ScmUserSignatureVerifier(userIndex))
+    );
+  }
+
+  @Test
+  void shouldReportPushesWhichWouldBeRejected() throws IOException {
+    record(heartOfGold, AuditDecision.ACCEPTED, TimeUnit.MILLISECONDS.toNanos(10), false);
+    record(heartOfGold, AuditDecision.ACCEPTED, TimeUnit.MILLISECONDS.toNanos(30), true);
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold, puzzle));
+
+    SimulationResult result = simulator.simulateGlobal(globalConfig(GpgVerificationType.SCM_USER_SIGNATURE), 7);
+
+    assertThat(result.getRepositories()).isEqualTo(1);
+    assertThat(result.getPushes()).isEqualTo(2);
+    assertThat(result.getAcceptedPushes()).isEqualTo(1);
+    assertThat(result.getRejectedPushes()).isEqualTo(1);
+    assertThat(result.getNewlyRejectedPushes()).isEqualTo(1);
+    assertThat(result.getRejections()).containsEntry(RejectionReason.UNTRUSTED_SIGNATURE, 1);
+    assertThat(result.getRecordedLatency().getMaxMillis()).isEqualTo(30);
+  }
+
+  @Test
+  void shouldReportPushesWhichWouldBeAccepted() throws IOException {
+    record(heartOfGold, AuditDecision.REJECTED, 0, false);
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+
+    SimulationResult result = simulator.simulateGlobal(globalConfig(GpgVerificationType.ANY_SIGNATURE), 7);
+
+    assertThat(result.getAcceptedPushes()).isEqualTo(1);
+    assertThat(result.getNewlyAcceptedPushes()).isEqualTo(1);
+    assertThat(result.getVerifiedChangesets()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldEstimateTimeouts() throws IOException {
+    record(heartOfGold, AuditDecision.ACCEPTED, TimeUnit.SECONDS.toNanos(4), true);
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+    GlobalSignatureConfig config = globalConfig(GpgVerificationType.ANY_SIGNATURE);
+    config.setVerificationTimeout(1);
+
+    SimulationResult rejected = simulator.simulateGlobal(config, 7);
+    config.setTimeoutFallback(TimeoutFallback.ACCEPT_AND_VERIFY_LATER);
+    SimulationResult deferred = simulator.simulateGlobal(config, 7);
+
+    assertThat(rejected.getRejections()).containsEntry(RejectionReason.TIMEOUT, 1);
+    assertThat(deferred.getAcceptedPushes()).isEqualTo(1);
+    assertThat(deferred.getVerifiedChangesets()).isEqualTo(1);
+    assertThat(deferred.getDeferredChangesets()).isEqualTo(1);
+    assertThat(deferred.getEstimatedLatency().getMeanMillis()).isEqualTo(2000);
+  }
+
+  @Test
+  void shouldOnlyReplayRepositoriesOfNamespace() throws IOException {
+    record(heartOfGold, AuditDecision.ACCEPTED, 0, true);
+    record(puzzle, AuditDecision.ACCEPTED, 0, false);
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold, puzzle));
+    NamespaceSignatureConfig config = new NamespaceSignatureConfig();
+    config.setOverwriteParentConfig(true);
+    config.setEnabled(true);
+    config.setVerificationType(GpgVerificationType.SCM_USER_SIGNATURE);
+
+    SimulationResult result = simulator.simulateNamespace(new Namespace("earth"), config, 7);
+
+    assertThat(result.getRepositories()).isEqualTo(1);
+    assertThat(result.getPushes()).isEqualTo(1);
+    assertThat(result.getNewlyRejectedPushes()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldIgnoreOldPushes() throws IOException {
+    records.add(record(heartOfGold, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8)));
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+
+    SimulationResult result = simulator.simulateGlobal(globalConfig(GpgVerificationType.ANY_SIGNATURE), 7);
+
+    assertThat(result.getPushes()).isZero();
+    assertThat(result.getRepositories()).isZero();
+  }
+
+  @Test
+  void shouldSimulateEnablingTheCheck() throws IOException {
+    records.add(unprotectedRecord(false, "~develop"));
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+
+    SimulationResult result = simulator.simulateGlobal(globalConfig(GpgVerificationType.SCM_USER_SIGNATURE), 7);
+
+    assertThat(result.getPushes()).isEqualTo(1);
+    assertThat(result.getNewlyRejectedPushes()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldMatchUnprotectedBranchesByTheirKeys() throws IOException {
+    records.add(unprotectedRecord(true, "~develop"));
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+    GlobalSignatureConfig develop = globalConfig(GpgVerificationType.SCM_USER_SIGNATURE);
+    develop.setProtectedBranches(List.of("develop"));
+    GlobalSignatureConfig main = globalConfig(GpgVerificationType.SCM_USER_SIGNATURE);
+    main.setProtectedBranches(List.of("main"));
+
+    SimulationResult developResult = simulator.simulateGlobal(develop, 7);
+    SimulationResult mainResult = simulator.simulateGlobal(main, 7);
+
+    assertThat(developResult.getNewlyRejectedPushes()).isEqualTo(1);
+    assertThat(mainResult.getAcceptedPushes()).isEqualTo(1);
+    assertThat(mainResult.getVerifiedChangesets()).isZero();
+  }
+
+  @Test
+  void shouldMatchKnownNamesOfUnprotectedBranchesAgainstWildcards() throws IOException {
+    records.add(unprotectedRecord(true, "~release/1.0"));
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+    GlobalSignatureConfig config = globalConfig(GpgVerificationType.ANY_SIGNATURE);
+    config.setProtectedBranches(List.of("release/1.0"));
+    config.setBranchRules(List.of(new BranchRule("release/*", GpgVerificationType.SCM_USER_SIGNATURE)));
+
+    SimulationResult result = simulator.simulateGlobal(config, 7);
+
+    assertThat(result.getNotSimulatablePushes()).isZero();
+    assertThat(result.getRejections()).containsEntry(RejectionReason.UNTRUSTED_SIGNATURE, 1);
+  }
+
+  @Test
+  void shouldReportPushesToUnknownBranchesAsNotSimulatableForWildcardRules() throws IOException {
+    records.add(unprotectedRecord(true, "~develop"));
+    record(heartOfGold, AuditDecision.ACCEPTED, 0, true);
+    recordings();
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+    GlobalSignatureConfig config = globalConfig(GpgVerificationType.ANY_SIGNATURE);
+    config.setBranchRules(List.of(new BranchRule("release/*", GpgVerificationType.SCM_USER_SIGNATURE)));
+
+    SimulationResult result = simulator.simulateGlobal(config, 7);
+
+    assertThat(result.getNotSimulatablePushes()).isEqualTo(1);
+    assertThat(result.getPushes()).isEqualTo(1);
+    assertThat(result.getAcceptedPushes()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldSkipRecordingsOfOtherVersions() throws IOException {
+    Path segment = directory.resolve(String.format("pushes-%020d.bin", 0));
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(segment))) {
+      out.writeInt(0x53435052);
+      out.writeByte(1);
+    }
+    when(pushRecorder.getSegments()).thenReturn(List.of(segment));
+    when(repositoryManager.getAll()).thenReturn(List.of(heartOfGold));
+
+    SimulationResult result = simulator.simulateGlobal(globalConfig(GpgVerificationType.ANY_SIGNATURE), 7);
+
+    assertThat(result.getPushes()).isZero();
+  }
+
+  private GlobalSignatureConfig globalConfig(GpgVerificationType verificationType) {
+    GlobalSignatureConfig config = new GlobalSignatureConfig();
+    config.setEnabled(true);
+    config.setVerificationType(verificationType);
+    return config;
+  }
+
+  private void record(Repository repository, AuditDecision outcome, long durationNanos, boolean activeOwner) {
+    records.add(new PushRecord(
+      System.currentTimeMillis(),
+      repository.getId(),
+      true,
+      GpgVerificationType.ANY_SIGNATURE,
+      false,
+      0,
+      TimeoutFallback.REJECT,
+      List.of(new PushRecord.RecordedBranch("main", GpgVerificationType.ANY_SIGNATURE)),
+      List.of(changeset(activeOwner), changeset(activeOwner)),
+      outcome,
+      durationNanos
+    ));
+  }
+
+  private PushRecord record(Repository repository, long timestamp) {
+    return new PushRecord(
+      timestamp,
+      repository.getId(),
+      true,
+      GpgVerificationType.ANY_SIGNATURE,
+      false,
+      0,
+      TimeoutFallback.REJECT,
+      List.of(new PushRecord.RecordedBranch("main", GpgVerificationType.ANY_SIGNATURE)),
+      List.of(changeset(true)),
+      AuditDecision.ACCEPTED,
+      0
+    );
+  }
+
+  private PushRecord unprotectedRecord(boolean enabled, String branchKey) {
+    return new PushRecord(
+      System.currentTimeMillis(),
+      heartOfGold.getId(),
+      enabled,
+      GpgVerificationType.ANY_SIGNATURE,
+      false,
+      0,
+      TimeoutFallback.REJECT,
+      List.of(new PushRecord.RecordedBranch(branchKey, null)),
+      List.of(changeset(false)),
+      AuditDecision.ACCEPTED,
+      0
+    );
+  }
+
+  private PushRecord.RecordedChangeset changeset(boolean activeOwner) {
+    Signature signature = new Signature("key", "gpg", SignatureStatus.VERIFIED, "trillian", Collections.emptySet());
+    return new PushRecord.RecordedChangeset(1, false, new byte[]{PushRecord.toFlags(signature, activeOwner)});
+  }
+
+  private void recordings() throws IOException {
+    Path segment = directory.resolve(String.format("pushes-%020d.bin", 0));
+    try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(segment))) {
+      PushRecordCodec.writeHeader(out);
+      for (PushRecord record : records) {
+        PushRecordCodec.write(out, record);
+      }
+    }
+    when(pushRecorder.getSegments()).thenReturn(List.of(segment));
+  }
+}
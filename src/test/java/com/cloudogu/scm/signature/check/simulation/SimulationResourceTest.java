@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.simulation;
+
+import com.cloudogu.scm.signature.check.config.RepositorySignatureConfig;
+import com.cloudogu.scm.signature.check.stats.RejectionReason;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.NamespaceManager;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("TrainerRed")
+class SimulationResourceTest {
+
+  private static final String CONFIG = "{\"overwriteParentConfig\":true,\"enabled\":true,\"protectedBranches\":[],"
+    + "\"verificationType\":\"SCM_USER_SIGNATURE\",\"verificationTimeout\":0,\"timeoutFallback\":\"REJECT\","
+    + "\"branchRules\":[],\"exemptUsers\":[],\"exemptGroups\":[]}";
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+
+  @Mock
+  private ConfigSimulator configSimulator;
+  @Mock
+  private NamespaceManager namespaceManager;
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  private RestDispatcher dispatcher;
+
+  @BeforeEach
+  void init() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new SimulationResource(configSimulator, namespaceManager, repositoryManager, scmPathInfoStore));
+  }
+
+  @Test
+  void shouldRejectGlobalSimulationWithoutPermission() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(request("/v2/signature-check/simulation/global-config", CONFIG));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verifyNoInteractions(configSimulator);
+  }
+
+  @Test
+  void shouldRejectRepositorySimulationWithoutPermission() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+
+    JsonMockHttpResponse response = invoke(request("/v2/signature-check/simulation/hitchhiker/HeartOfGold", CONFIG));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verifyNoInteractions(configSimulator);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:signatureCheck:*")
+  void shouldRejectTooLongPeriod() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(request("/v2/signature-check/simulation/hitchhiker/HeartOfGold?days=365", CONFIG));
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:signatureCheck:*")
+  void shouldSimulateRepositoryConfig() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+    when(configSimulator.simulateRepository(eq(repository), any(), eq(3))).thenReturn(new SimulationResult(
+      1, 2, 0, 1_000, 2_000, 1, 1, 1, 0,
+      Map.of(RejectionReason.UNTRUSTED_SIGNATURE, 1),
+      2, 0,
+      new SimulationResult.Latency(5, 8, 8),
+      new SimulationResult.Latency(7, 10, 10)
+    ));
+
+    JsonMockHttpResponse response = invoke(request("/v2/signature-check/simulation/hitchhiker/HeartOfGold?days=3", CONFIG));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode root = response.getContentAsJson();
+    assertThat(root.get("pushes").asInt()).isEqualTo(2);
+    assertThat(root.get("newlyRejectedPushes").asInt()).isEqualTo(1);
+    assertThat(root.get("rejections").get("UNTRUSTED_SIGNATURE").asInt()).isEqualTo(1);
+    assertThat(root.get("estimatedLatency").get("p95Millis").asDouble()).isEqualTo(10);
+    assertThat(root.get("_links").get("self").get("href").asText())
+      .isEqualTo("https://scm-manager.org/scm/api/v2/signature-check/simulation/hitchhiker/HeartOfGold");
+
+    ArgumentCaptor<RepositorySignatureConfig> config = ArgumentCaptor.forClass(RepositorySignatureConfig.class);
+    verify(configSimulator).simulateRepository(eq(repository), config.capture(), eq(3));
+    assertThat(config.getValue().isOverwriteParentConfig()).isTrue();
+  }
+
+  private MockHttpRequest request(String uri, String body) throws URISyntaxException {
+    return MockHttpRequest.post(uri)
+      .contentType("application/json")
+      .content(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private JsonMockHttpResponse invoke(MockHttpRequest request) {
+    JsonMockHttpResponse response = new JsonMockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}
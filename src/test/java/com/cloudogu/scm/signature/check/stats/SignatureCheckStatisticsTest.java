@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SignatureCheckStatisticsTest {
+
+  private static final Instant START = Instant.parse("2024-06-01T12:00:00Z");
+
+  private final Repository heartOfGold = RepositoryTestData.createHeartOfGold("git");
+  private final Repository damagedHeartOfGold = RepositoryTestData.createHeartOfGold("git");
+
+  private Instant now = START;
+  private SignatureCheckStatistics statistics;
+
+  @BeforeEach
+  void setUpStatistics() {
+    damagedHeartOfGold.setId("damaged");
+    statistics = new SignatureCheckStatistics(new Clock() {
+      @Override
+      public ZoneOffset getZone() {
+        return ZoneOffset.UTC;
+      }
+
+      @Override
+      public Clock withZone(java.time.ZoneId zone) {
+        return this;
+      }
+
+      @Override
+      public Instant instant() {
+        return now;
+      }
+    });
+  }
+
+  @Test
+  void shouldReturnEmptyStatisticsForUnknownRepository() {
+    Map<StatisticsWindow, WindowStatistics> windows = statistics.getRepositoryStatistics("unknown");
+
+    assertThat(windows).containsOnlyKeys(StatisticsWindow.values());
+    assertThat(windows.get(StatisticsWindow.HOUR).getPushes()).isZero();
+  }
+
+  @Test
+  void shouldCountPushesAndRejections() {
+    statistics.recordPassed(heartOfGold, 3, 2_000_000);
+    statistics.recordRejected(heartOfGold, 2, RejectionReason.MISSING_SIGNATURE, 1_000_000);
+    statistics.recordRejected(heartOfGold, 1, RejectionReason.TIMEOUT, 1_000_000);
+
+    WindowStatistics hour = statistics.getRepositoryStatistics(heartOfGold.getId()).get(StatisticsWindow.HOUR);
+    assertThat(hour.getPushes()).isEqualTo(3);
+    assertThat(hour.getChangesets()).isEqualTo(6);
+    assertThat(hour.getVerificationNanos()).isEqualTo(4_000_000);
+    assertThat(hour.getRejectedPushes()).isEqualTo(2);
+    assertThat(hour.getRejections())
+      .containsEntry(RejectionReason.MISSING_SIGNATURE, 1L)
+      .containsEntry(RejectionReason.TIMEOUT, 1L)
+      .doesNotContainKey(RejectionReason.CAPACITY);
+  }
+
+  @Test
+  void shouldSlideWindows() {
+    statistics.recordRejected(heartOfGold, 1, RejectionReason.INVALID_SIGNATURE, 0);
+    now = START.plus(Duration.ofHours(2));
+    statistics.recordPassed(heartOfGold, 1, 0);
+
+    Map<StatisticsWindow, WindowStatistics> windows = statistics.getRepositoryStatistics(heartOfGold.getId());
+    assertThat(windows.get(StatisticsWindow.HOUR).getPushes()).isEqualTo(1);
+    assertThat(windows.get(StatisticsWindow.HOUR).getRejectedPushes()).isZero();
+    assertThat(windows.get(StatisticsWindow.DAY).getPushes()).isEqualTo(2);
+    assertThat(windows.get(StatisticsWindow.DAY).getRejectedPushes()).isEqualTo(1);
+
+    now = START.plus(Duration.ofDays(2));
+    windows = statistics.getRepositoryStatistics(heartOfGold.getId());
+    assertThat(windows.get(StatisticsWindow.DAY).getPushes()).isZero();
+    assertThat(windows.get(StatisticsWindow.WEEK).getPushes()).isEqualTo(2);
+
+    now = START.plus(Duration.ofDays(8));
+    assertThat(statistics.getRepositoryStatistics(heartOfGold.getId()).get(StatisticsWindow.WEEK).getPushes()).isZero();
+  }
+
+  @Test
+  void shouldResetReusedBuckets() {
+    statistics.recordPassed(heartOfGold, 5, 0);
+    now = START.plus(Duration.ofHours(1));
+    statistics.recordPassed(heartOfGold, 1, 0);
+
+    WindowStatistics hour = statistics.getRepositoryStatistics(heartOfGold.getId()).get(StatisticsWindow.HOUR);
+    assertThat(hour.getPushes()).isEqualTo(1);
+    assertThat(hour.getChangesets()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldIgnoreOutdatedRecords() {
+    now = START.plus(Duration.ofHours(1));
+    statistics.recordPassed(heartOfGold, 1, 0);
+    now = START;
+    statistics.recordPassed(heartOfGold, 1, 0);
+
+    now = START.plus(Duration.ofHours(1));
+    assertThat(statistics.getRepositoryStatistics(heartOfGold.getId()).get(StatisticsWindow.HOUR).getPushes()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldAggregateNamespace() {
+    statistics.recordPassed(heartOfGold, 1, 0);
+    statistics.recordRejected(damagedHeartOfGold, 1, RejectionReason.CAPACITY, 0);
+
+    WindowStatistics hour = statistics.getNamespaceStatistics(heartOfGold.getNamespace()).get(StatisticsWindow.HOUR);
+    assertThat(hour.getPushes()).isEqualTo(2);
+    assertThat(hour.getRejectedPushes()).isEqualTo(1);
+    assertThat(statistics.getNamespaceStatistics("other").get(StatisticsWindow.HOUR).getPushes()).isZero();
+  }
+
+  @Test
+  void shouldForgetDeletedRepositories() {
+    statistics.recordPassed(heartOfGold, 1, 0);
+
+    statistics.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, heartOfGold));
+
+    assertThat(statistics.getRepositoryStatistics(heartOfGold.getId()).get(StatisticsWindow.HOUR).getPushes()).isZero();
+  }
+}
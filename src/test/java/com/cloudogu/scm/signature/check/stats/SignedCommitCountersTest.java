@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.Signature;
+import sonia.scm.repository.SignatureStatus;
+import sonia.scm.store.InMemoryByteDataStoreFactory;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SignedCommitCountersTest {
+
+  private final Repository heartOfGold = new Repository("hog", "git", "hitchhiker", "HeartOfGold");
+  private final InMemoryByteDataStoreFactory dataStoreFactory = new InMemoryByteDataStoreFactory();
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  @Mock
+  private PostReceiveRepositoryHookEvent event;
+
+  private SignedCommitCounters counters;
+
+  @BeforeEach
+  void setUpCounters() {
+    lenient().when(event.getRepository()).thenReturn(heartOfGold);
+    counters = createCounters();
+  }
+
+  @Test
+  void shouldReturnEmptyForUnknownRepository() {
+    assertThat(counters.get("unknown")).isEmpty();
+  }
+
+  @Test
+  void shouldCountSignedChangesets() {
+    push(List.of(signed("1"), unsigned("2")));
+    push(List.of(signed("3")));
+
+    assertThat(counters.get(heartOfGold.getId()))
+      .contains(new SignedCommitCount(3, 2));
+  }
+
+  @Test
+  void shouldOnlyCountVerifiedSignatures() {
+    push(List.of(signed("1"), withSignature("2", SignatureStatus.NOT_FOUND), withSignature("3", SignatureStatus.INVALID)));
+
+    assertThat(counters.get(heartOfGold.getId()))
+      .contains(new SignedCommitCount(3, 1));
+  }
+
+  @Test
+  void shouldCountChangesetsOnlyOnce() {
+    push(List.of(signed("1"), signed("1"), unsigned("2")));
+
+    assertThat(counters.get(heartOfGold.getId()))
+      .contains(new SignedCommitCount(2, 1));
+  }
+
+  @Test
+  void shouldNotCountPreparedPushBeforeItIsReceived() {
+    counters.prepare(heartOfGold, List.of(signed("1")));
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+  }
+
+  @Test
+  void shouldNotReadChangesetsOfReceivedPush() {
+    push(List.of(signed("1")));
+
+    verify(event, never()).getContext();
+  }
+
+  @Test
+  void shouldCountPreparedPushOnlyOnce() {
+    push(List.of(signed("1")));
+
+    counters.onPush(event);
+
+    assertThat(counters.get(heartOfGold.getId()))
+      .contains(new SignedCommitCount(1, 1));
+  }
+
+  @Test
+  void shouldNotCountPushesWhichWereNotPrepared() {
+    counters.onPush(event);
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+  }
+
+  @Test
+  void shouldNotCountDiscardedPushes() {
+    counters.prepare(heartOfGold, List.of(signed("1")));
+    counters.discard(heartOfGold);
+
+    counters.onPush(event);
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+  }
+
+  @Test
+  void shouldNotCountPushesPreparedByOtherThreads() throws InterruptedException {
+    Thread thread = new Thread(() -> counters.prepare(heartOfGold, List.of(signed("1"))));
+    thread.start();
+    thread.join();
+
+    counters.onPush(event);
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+  }
+
+  @Test
+  void shouldExpirePreparedPushes() {
+    counters.prepare(heartOfGold, List.of(signed("1")));
+    nanoTime.addAndGet(SignedCommitCounters.PREPARED_TTL.toNanos() + 1);
+
+    counters.onPush(event);
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+  }
+
+  @Test
+  void shouldIgnoreEmptyPushes() {
+    push(List.of());
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+  }
+
+  @Test
+  void shouldLoadStoredCounters() {
+    push(List.of(signed("1"), unsigned("2")));
+
+    assertThat(createCounters().get(heartOfGold.getId()))
+      .contains(new SignedCommitCount(2, 1));
+  }
+
+  @Test
+  void shouldRemoveCountersOfDeletedRepository() {
+    push(List.of(signed("1")));
+
+    counters.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, heartOfGold));
+
+    assertThat(counters.get(heartOfGold.getId())).isEmpty();
+    assertThat(createCounters().get(heartOfGold.getId())).isEmpty();
+  }
+
+  private void push(List<Changeset> changesets) {
+    counters.prepare(heartOfGold, changesets);
+    counters.onPush(event);
+  }
+
+  private SignedCommitCounters createCounters() {
+    return new SignedCommitCounters(dataStoreFactory, MoreExecutors.newDirectExecutorService(), new Ticker() {
+      @Override
+      public long read() {
+        return nanoTime.get();
+      }
+    });
+  }
+
+  private static Changeset signed(String id) {
+    return withSignature(id, SignatureStatus.VERIFIED);
+  }
+
+  private static Changeset withSignature(String id, SignatureStatus status) {
+    Changeset changeset = unsigned(id);
+    changeset.setSignatures(List.of(new Signature("key", "gpg", status, "trillian", Set.of())));
+    return changeset;
+  }
+
+  private static Changeset unsigned(String id) {
+    Changeset changeset = new Changeset();
+    changeset.setId(id);
+    return changeset;
+  }
+}
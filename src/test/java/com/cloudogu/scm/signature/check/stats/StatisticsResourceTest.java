@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+
+package com.cloudogu.scm.signature.check.stats;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.web.JsonMockHttpResponse;
+import sonia.scm.web.RestDispatcher;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+@SubjectAware("TrainerRed")
+class StatisticsResourceTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+  private final SignatureCheckStatistics statistics = new SignatureCheckStatistics();
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  private RestDispatcher dispatcher;
+
+  @BeforeEach
+  void init() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("https://scm-manager.org/scm/api/"));
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new StatisticsResource(statistics, repositoryManager, scmPathInfoStore));
+  }
+
+  @Test
+  void shouldRejectRepositoryStatisticsWithoutPermission() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/statistics/hitchhiker/HeartOfGold"));
+
+    assertThat(response.getStatus()).isEqualTo(403);
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:signatureCheck:*")
+  void shouldReturnRepositoryStatistics() throws URISyntaxException {
+    when(repositoryManager.get(new NamespaceAndName("hitchhiker", "HeartOfGold"))).thenReturn(repository);
+    statistics.recordPassed(repository, 2, 4_000_000);
+    statistics.recordRejected(repository, 1, RejectionReason.MISSING_SIGNATURE, 2_000_000);
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/statistics/hitchhiker/HeartOfGold"));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    JsonNode hour = response.getContentAsJson().get("hour");
+    assertThat(hour.get("pushes").asLong()).isEqualTo(2);
+    assertThat(hour.get("changesets").asLong()).isEqualTo(3);
+    assertThat(hour.get("rejectedPushes").asLong()).isEqualTo(1);
+    assertThat(hour.get("rejections").get("MISSING_SIGNATURE").asLong()).isEqualTo(1);
+    assertThat(hour.get("averageVerificationMillis").asDouble()).isEqualTo(3.0);
+  }
+
+  @Test
+  void shouldReturnNotFoundForUnknownRepository() throws URISyntaxException {
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/statistics/hitchhiker/unknown"));
+
+    assertThat(response.getStatus()).isEqualTo(404);
+  }
+
+  @Test
+  @SubjectAware(permissions = "namespace:signatureCheck:hitchhiker")
+  void shouldReturnNamespaceStatistics() throws URISyntaxException {
+    statistics.recordPassed(repository, 2, 0);
+
+    JsonMockHttpResponse response = invoke(MockHttpRequest.get("/v2/signature-check/statistics/hitchhiker"));
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsJson().get("week").get("pushes").asLong()).isEqualTo(1);
+  }
+
+  private JsonMockHttpResponse invoke(MockHttpRequest request) {
+    JsonMockHttpResponse response = new JsonMockHttpResponse();
+    dispatcher.invoke(request, response);
+    return response;
+  }
+}